@@ -0,0 +1,45 @@
+/*
+ * ArffBlockSource.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Supplies the {@link ArffTokenizer} with blocks of raw (UTF-8) bytes.
+ * Each block only contains complete lines, i.e., it ends with a newline.
+ * Only the very last block of the input may end without one.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface ArffBlockSource
+  extends Closeable {
+
+  /**
+   * Returns the next block of complete lines, from position to limit.
+   * The content of a block does not change once it has been handed out,
+   * i.e., blocks can be processed concurrently.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   */
+  public ByteBuffer nextBlock() throws IOException;
+
+  /**
+   * Returns the absolute offset in the input of the position of the last block.
+   *
+   * @return		the offset
+   */
+  public long getBlockOffset();
+
+  /**
+   * Returns the size of the input, if known without reading it.
+   *
+   * @return		the size in bytes, -1 if unknown
+   */
+  public long getSize();
+}
@@ -0,0 +1,49 @@
+/*
+ * ArffBufferAllocator.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for classes that hand out the off-heap buffers of the
+ * {@link ArffOffHeapColumn} columns. Implementations keep track of the
+ * number of bytes in use and refuse allocations beyond their limit, which
+ * keeps the parser inside the memory of the container.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface ArffBufferAllocator {
+
+  /**
+   * Allocates a buffer with little endian byte order.
+   *
+   * @param capacity	the capacity in bytes
+   * @return		the buffer
+   * @throws IllegalStateException	if the allocation would exceed the limit
+   */
+  public ByteBuffer allocate(int capacity);
+
+  /**
+   * Releases a buffer that is no longer used.
+   *
+   * @param buffer	the buffer to release
+   */
+  public void release(ByteBuffer buffer);
+
+  /**
+   * Returns the number of bytes currently allocated.
+   *
+   * @return		the number of bytes
+   */
+  public long getAllocated();
+
+  /**
+   * Returns the maximum number of bytes that can be allocated.
+   *
+   * @return		the limit, less than 1 for no limit
+   */
+  public long getLimit();
+}
@@ -0,0 +1,76 @@
+/*
+ * ArffBufferBlockSource.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hands out a single buffer of complete lines as the only block,
+ * e.g., a chunk of the data section that gets parsed on its own.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffBufferBlockSource
+  implements ArffBlockSource {
+
+  protected ByteBuffer buffer;
+  protected long offset;
+  protected long size;
+  protected boolean done;
+
+  /**
+   * Initializes the source.
+   *
+   * @param buffer	the buffer with the lines, from position to limit
+   * @param offset	the absolute offset of the buffer's position in the input
+   */
+  public ArffBufferBlockSource(ByteBuffer buffer, long offset) {
+    this.buffer = buffer;
+    this.offset = offset;
+    size        = offset + buffer.remaining();
+    done        = false;
+  }
+
+  /**
+   * Returns the buffer on the first call.
+   *
+   * @return		the buffer, null on subsequent calls
+   */
+  @Override
+  public ByteBuffer nextBlock() {
+    if (done)
+      return null;
+    done = true;
+    return buffer;
+  }
+
+  /**
+   * Returns the absolute offset of the buffer's position in the input.
+   *
+   * @return		the offset
+   */
+  @Override
+  public long getBlockOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the absolute offset of the buffer's limit in the input.
+   *
+   * @return		the offset
+   */
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,960 @@
+/*
+ * ArffCache.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary cache of the parsed (columnar) data of an ARFF file. Re-reading
+ * the cache memory-maps it and copies the arrays in bulk, rather than
+ * tokenizing and parsing the text again.
+ * <br>
+ * The cache is keyed by the location, size, modification time and CRC32C
+ * checksum of the ARFF file, as well as the parsing options that influence
+ * the stored data (float precision, trusted input, selected columns, row
+ * filters). A cache with a different key gets ignored (and overwritten).
+ * The header is not cached, it gets parsed from the ARFF file every time.
+ * <br>
+ * All numbers are stored in little endian byte order.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffCache {
+
+  /** the extension of cache files. */
+  public static final String EXTENSION = ".djlcache";
+
+  /** the magic bytes at the start of the file. */
+  public static final long MAGIC = 0x4843414346465241L; // "ARFFCACH"
+
+  /** the version of the file format. */
+  public static final int VERSION = 1;
+
+  /** the size of the buffer for writing. */
+  public static final int BUFFER_SIZE = 1024 * 1024;
+
+  /** the maximum size of a mapped window when reading. */
+  public static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+  /** column kind: not loaded. */
+  protected static final byte KIND_SKIPPED = 0;
+
+  /** column kind: NUMERIC (double). */
+  protected static final byte KIND_NUMERIC = 1;
+
+  /** column kind: NUMERIC (float). */
+  protected static final byte KIND_FLOAT = 2;
+
+  /** column kind: DATE. */
+  protected static final byte KIND_DATE = 3;
+
+  /** column kind: NOMINAL/STRING. */
+  protected static final byte KIND_DICTIONARY = 4;
+
+  /**
+   * Buffered output to a file channel.
+   */
+  protected static class Output {
+
+    /** the channel to write to. */
+    protected FileChannel channel;
+
+    /** the buffer. */
+    protected ByteBuffer buffer;
+
+    /**
+     * Initializes the output.
+     *
+     * @param channel	the channel to write to
+     */
+    public Output(FileChannel channel) {
+      this.channel = channel;
+      buffer       = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Makes sure that the buffer has room for the number of bytes.
+     *
+     * @param bytes	the number of bytes, at most the buffer size
+     * @throws IOException	if writing fails
+     */
+    protected void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes)
+	flush();
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException	if writing fails
+     */
+    public void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining())
+	channel.write(buffer);
+      buffer.clear();
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param value	the byte
+     * @throws IOException	if writing fails
+     */
+    public void writeByte(byte value) throws IOException {
+      ensure(1);
+      buffer.put(value);
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param value	the int
+     * @throws IOException	if writing fails
+     */
+    public void writeInt(int value) throws IOException {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    /**
+     * Writes a long.
+     *
+     * @param value	the long
+     * @throws IOException	if writing fails
+     */
+    public void writeLong(long value) throws IOException {
+      ensure(8);
+      buffer.putLong(value);
+    }
+
+    /**
+     * Writes a UTF-8 encoded string, preceded by its length.
+     *
+     * @param value	the string
+     * @throws IOException	if writing fails
+     */
+    public void writeString(String value) throws IOException {
+      byte[]	bytes;
+      int	offset;
+      int	n;
+
+      bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeInt(bytes.length);
+      offset = 0;
+      while (offset < bytes.length) {
+	ensure(1);
+	n = Math.min(buffer.remaining(), bytes.length - offset);
+	buffer.put(bytes, offset, n);
+	offset += n;
+      }
+    }
+
+    /**
+     * Writes the first values of the array, preceded by their number.
+     *
+     * @param values	the array
+     * @param length	the number of values to write
+     * @throws IOException	if writing fails
+     */
+    public void writeInts(int[] values, int length) throws IOException {
+      int	offset;
+      int	n;
+
+      writeInt(length);
+      offset = 0;
+      while (offset < length) {
+	ensure(4);
+	n = Math.min(buffer.remaining() / 4, length - offset);
+	buffer.asIntBuffer().put(values, offset, n);
+	buffer.position(buffer.position() + n * 4);
+	offset += n;
+      }
+    }
+
+    /**
+     * Writes the first values of the array, preceded by their number.
+     *
+     * @param values	the array
+     * @param length	the number of values to write
+     * @throws IOException	if writing fails
+     */
+    public void writeLongs(long[] values, int length) throws IOException {
+      int	offset;
+      int	n;
+
+      writeInt(length);
+      offset = 0;
+      while (offset < length) {
+	ensure(8);
+	n = Math.min(buffer.remaining() / 8, length - offset);
+	buffer.asLongBuffer().put(values, offset, n);
+	buffer.position(buffer.position() + n * 8);
+	offset += n;
+      }
+    }
+
+    /**
+     * Writes the first values of the array, preceded by their number.
+     *
+     * @param values	the array
+     * @param length	the number of values to write
+     * @throws IOException	if writing fails
+     */
+    public void writeFloats(float[] values, int length) throws IOException {
+      int	offset;
+      int	n;
+
+      writeInt(length);
+      offset = 0;
+      while (offset < length) {
+	ensure(4);
+	n = Math.min(buffer.remaining() / 4, length - offset);
+	buffer.asFloatBuffer().put(values, offset, n);
+	buffer.position(buffer.position() + n * 4);
+	offset += n;
+      }
+    }
+
+    /**
+     * Writes the first values of the array, preceded by their number.
+     *
+     * @param values	the array
+     * @param length	the number of values to write
+     * @throws IOException	if writing fails
+     */
+    public void writeDoubles(double[] values, int length) throws IOException {
+      int	offset;
+      int	n;
+
+      writeInt(length);
+      offset = 0;
+      while (offset < length) {
+	ensure(8);
+	n = Math.min(buffer.remaining() / 8, length - offset);
+	buffer.asDoubleBuffer().put(values, offset, n);
+	buffer.position(buffer.position() + n * 8);
+	offset += n;
+      }
+    }
+
+    /**
+     * Writes the words of the bitset.
+     *
+     * @param value	the bitset
+     * @throws IOException	if writing fails
+     */
+    public void writeBitSet(BitSet value) throws IOException {
+      long[]	words;
+
+      words = value.toLongArray();
+      writeLongs(words, words.length);
+    }
+
+    /**
+     * Writes the strings, preceded by their number.
+     *
+     * @param values	the strings
+     * @throws IOException	if writing fails
+     */
+    public void writeStrings(List<String> values) throws IOException {
+      writeInt(values.size());
+      for (String value: values)
+	writeString(value);
+    }
+
+    /**
+     * Writes the raw bytes of fixed-width values (little endian), preceded
+     * by their number.
+     *
+     * @param values	the buffer with the values, from position to limit
+     * @param width	the number of bytes per value
+     * @throws IOException	if writing fails
+     */
+    public void writeBuffer(ByteBuffer values, int width) throws IOException {
+      ByteBuffer	src;
+
+      writeInt(values.remaining() / width);
+      flush();
+      src = values.duplicate();
+      while (src.hasRemaining())
+	channel.write(src);
+    }
+  }
+
+  /**
+   * Reads from a file channel via memory-mapped windows.
+   */
+  protected static class Input {
+
+    /** the channel to read from. */
+    protected FileChannel channel;
+
+    /** the size of the file. */
+    protected long size;
+
+    /** the position of the current window in the file. */
+    protected long windowStart;
+
+    /** the current window. */
+    protected ByteBuffer window;
+
+    /**
+     * Initializes the input.
+     *
+     * @param channel	the channel to read from
+     * @throws IOException	if determining the size fails
+     */
+    public Input(FileChannel channel) throws IOException {
+      this.channel = channel;
+      size         = channel.size();
+      windowStart  = 0;
+      window       = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Makes sure that the current window has the number of bytes available,
+     * mapping the next window if necessary.
+     *
+     * @param bytes	the number of bytes
+     * @throws IOException	if the file is too short or mapping fails
+     */
+    protected void ensure(int bytes) throws IOException {
+      MappedByteBuffer	mapped;
+      long		position;
+
+      if (window.remaining() >= bytes)
+	return;
+      position = windowStart + window.position();
+      if (position + bytes > size)
+	throw new IOException("Unexpected end of cache file!");
+      mapped      = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+      window      = mapped.order(ByteOrder.LITTLE_ENDIAN);
+      windowStart = position;
+    }
+
+    /**
+     * Reads a byte.
+     *
+     * @return		the byte
+     * @throws IOException	if reading fails
+     */
+    public byte readByte() throws IOException {
+      ensure(1);
+      return window.get();
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @return		the int
+     * @throws IOException	if reading fails
+     */
+    public int readInt() throws IOException {
+      ensure(4);
+      return window.getInt();
+    }
+
+    /**
+     * Reads a long.
+     *
+     * @return		the long
+     * @throws IOException	if reading fails
+     */
+    public long readLong() throws IOException {
+      ensure(8);
+      return window.getLong();
+    }
+
+    /**
+     * Reads the length of an array or string.
+     *
+     * @return		the length
+     * @throws IOException	if reading fails or the length is invalid
+     */
+    protected int readLength() throws IOException {
+      int	result;
+
+      result = readInt();
+      if (result < 0)
+	throw new IOException("Invalid length in cache file: " + result);
+
+      return result;
+    }
+
+    /**
+     * Reads a UTF-8 encoded string, preceded by its length.
+     *
+     * @return		the string
+     * @throws IOException	if reading fails
+     */
+    public String readString() throws IOException {
+      byte[]	bytes;
+      int	offset;
+      int	n;
+
+      bytes  = new byte[readLength()];
+      offset = 0;
+      while (offset < bytes.length) {
+	ensure(1);
+	n = Math.min(window.remaining(), bytes.length - offset);
+	window.get(bytes, offset, n);
+	offset += n;
+      }
+
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an array, preceded by its length.
+     *
+     * @return		the array
+     * @throws IOException	if reading fails
+     */
+    public int[] readInts() throws IOException {
+      int[]	result;
+      int	offset;
+      int	n;
+
+      result = new int[readLength()];
+      offset = 0;
+      while (offset < result.length) {
+	ensure(4);
+	n = Math.min(window.remaining() / 4, result.length - offset);
+	window.asIntBuffer().get(result, offset, n);
+	window.position(window.position() + n * 4);
+	offset += n;
+      }
+
+      return result;
+    }
+
+    /**
+     * Reads an array, preceded by its length.
+     *
+     * @return		the array
+     * @throws IOException	if reading fails
+     */
+    public long[] readLongs() throws IOException {
+      long[]	result;
+      int	offset;
+      int	n;
+
+      result = new long[readLength()];
+      offset = 0;
+      while (offset < result.length) {
+	ensure(8);
+	n = Math.min(window.remaining() / 8, result.length - offset);
+	window.asLongBuffer().get(result, offset, n);
+	window.position(window.position() + n * 8);
+	offset += n;
+      }
+
+      return result;
+    }
+
+    /**
+     * Reads an array, preceded by its length.
+     *
+     * @return		the array
+     * @throws IOException	if reading fails
+     */
+    public float[] readFloats() throws IOException {
+      float[]	result;
+      int	offset;
+      int	n;
+
+      result = new float[readLength()];
+      offset = 0;
+      while (offset < result.length) {
+	ensure(4);
+	n = Math.min(window.remaining() / 4, result.length - offset);
+	window.asFloatBuffer().get(result, offset, n);
+	window.position(window.position() + n * 4);
+	offset += n;
+      }
+
+      return result;
+    }
+
+    /**
+     * Reads an array, preceded by its length.
+     *
+     * @return		the array
+     * @throws IOException	if reading fails
+     */
+    public double[] readDoubles() throws IOException {
+      double[]	result;
+      int	offset;
+      int	n;
+
+      result = new double[readLength()];
+      offset = 0;
+      while (offset < result.length) {
+	ensure(8);
+	n = Math.min(window.remaining() / 8, result.length - offset);
+	window.asDoubleBuffer().get(result, offset, n);
+	window.position(window.position() + n * 8);
+	offset += n;
+      }
+
+      return result;
+    }
+
+    /**
+     * Reads the words of a bitset.
+     *
+     * @return		the bitset
+     * @throws IOException	if reading fails
+     */
+    public BitSet readBitSet() throws IOException {
+      return BitSet.valueOf(readLongs());
+    }
+
+    /**
+     * Reads strings, preceded by their number.
+     *
+     * @return		the strings
+     * @throws IOException	if reading fails
+     */
+    public List<String> readStrings() throws IOException {
+      List<String>	result;
+      int		i;
+      int		n;
+
+      n      = readLength();
+      result = new ArrayList<>();
+      for (i = 0; i < n; i++)
+	result.add(readString());
+
+      return result;
+    }
+
+    /**
+     * Reads the raw bytes of fixed-width values into the buffer.
+     *
+     * @param dest	the buffer to fill, starting at index 0
+     * @param length	the number of bytes
+     * @throws IOException	if reading fails
+     */
+    public void readBuffer(ByteBuffer dest, int length) throws IOException {
+      ByteBuffer	from;
+      ByteBuffer	to;
+      int		n;
+
+      to = dest.duplicate();
+      to.position(0);
+      while (length > 0) {
+	ensure(1);
+	n    = Math.min(window.remaining(), length);
+	from = window.duplicate();
+	from.limit(from.position() + n);
+	to.put(from);
+	window.position(window.position() + n);
+	length -= n;
+      }
+    }
+  }
+
+  protected Path file;
+
+  /**
+   * Initializes the cache.
+   *
+   * @param file	the cache file
+   */
+  public ArffCache(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the cache file.
+   *
+   * @return		the file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the default cache file for the ARFF file, located next to it.
+   *
+   * @param arffFile	the ARFF file
+   * @return		the cache file
+   */
+  public static Path sidecar(Path arffFile) {
+    return arffFile.resolveSibling(arffFile.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Computes the CRC32C checksum of the file's content.
+   *
+   * @param arffFile	the file to compute the checksum for
+   * @return		the checksum
+   * @throws IOException	if reading fails
+   */
+  public static long checksum(Path arffFile) throws IOException {
+    CRC32C	crc;
+    long	position;
+    long	size;
+
+    crc = new CRC32C();
+    try (FileChannel channel = FileChannel.open(arffFile, StandardOpenOption.READ)) {
+      size     = channel.size();
+      position = 0;
+      while (position < size) {
+	crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position)));
+	position += Math.min(WINDOW_SIZE, size - position);
+      }
+    }
+
+    return crc.getValue();
+  }
+
+  /**
+   * Describes the row filters, see {@link ArffRowFilter#getDescription()}.
+   *
+   * @param filters	the filters to describe
+   * @return		the description, null if a filter has no description
+   */
+  public static String describe(List<ArffRowFilter> filters) {
+    StringBuilder	result;
+    String		description;
+
+    result = new StringBuilder();
+    for (ArffRowFilter filter: filters) {
+      description = filter.getDescription();
+      if (description == null)
+	return null;
+      if (result.length() > 0)
+	result.append("\t");
+      result.append(description);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Generates the key for the ARFF file and the options of the parser.
+   *
+   * @param arffFile	the ARFF file
+   * @param parser	the parser with the options
+   * @return		the key, null if a row filter has no description,
+   * 			i.e., the data can't be cached
+   * @throws IOException	if accessing the file fails
+   */
+  public static String key(Path arffFile, ArffParser parser) throws IOException {
+    StringBuilder	result;
+    String		filters;
+
+    filters = describe(parser.getRowFilters());
+    if (filters == null)
+      return null;
+
+    result = new StringBuilder();
+    result.append("file=").append(arffFile.toAbsolutePath().normalize().toUri());
+    result.append("\nsize=").append(Files.size(arffFile));
+    result.append("\nmtime=").append(Files.getLastModifiedTime(arffFile).toMillis());
+    result.append("\ncrc32c=").append(Long.toHexString(checksum(arffFile)));
+    result.append("\nfloatPrecision=").append(parser.isFloatPrecision());
+    result.append("\ntrustedInput=").append(parser.isTrustedInput());
+    if (parser.getSelectedColumns() != null)
+      result.append("\ncolumns=").append(new TreeSet<>(parser.getSelectedColumns()));
+    if (!filters.isEmpty())
+      result.append("\nrowFilters=").append(filters);
+    if (parser.getNumShards() > 1)
+      result.append("\nshard=").append(parser.getShardRank()).append("/").append(parser.getNumShards());
+
+    return result.toString();
+  }
+
+  /**
+   * Determines the kind of the column.
+   *
+   * @param column	the column
+   * @return		the kind
+   */
+  protected static byte kind(ArffColumn column) {
+    if (column instanceof ArffSkippedColumn)
+      return KIND_SKIPPED;
+    else if (column instanceof ArffNumericColumn)
+      return KIND_NUMERIC;
+    else if (column instanceof ArffFloatColumn)
+      return KIND_FLOAT;
+    else if (column instanceof ArffDateColumn)
+      return KIND_DATE;
+    else if (column instanceof ArffDictionaryColumn)
+      return KIND_DICTIONARY;
+    else if (column instanceof ArffOffHeapNumericColumn)
+      return ((ArffOffHeapNumericColumn) column).isFloatPrecision() ? KIND_FLOAT : KIND_NUMERIC;
+    else if (column instanceof ArffOffHeapDateColumn)
+      return KIND_DATE;
+    else if (column instanceof ArffOffHeapDictionaryColumn)
+      return KIND_DICTIONARY;
+    else
+      throw new IllegalArgumentException("Unsupported column type: " + column.getClass().getName());
+  }
+
+  /**
+   * Writes the dense column. Off-heap columns use the same layout as the
+   * ones on the heap, i.e., the cache works for either storage.
+   *
+   * @param out		the output to write to
+   * @param column	the column to write
+   * @throws IOException	if writing fails
+   */
+  protected void writeColumn(Output out, ArffColumn column) throws IOException {
+    out.writeByte(kind(column));
+    out.writeInt(column.size);
+    out.writeBitSet(column.missing);
+    if (column instanceof ArffOffHeapColumn) {
+      if (column instanceof ArffOffHeapDictionaryColumn)
+	out.writeStrings(((ArffOffHeapDictionaryColumn) column).dictionary.getValues());
+      out.writeBuffer(((ArffOffHeapColumn) column).getBuffer(), ((ArffOffHeapColumn) column).width);
+      return;
+    }
+    switch (kind(column)) {
+      case KIND_NUMERIC:
+	out.writeDoubles(((ArffNumericColumn) column).values, column.size);
+	break;
+      case KIND_FLOAT:
+	out.writeFloats(((ArffFloatColumn) column).values, column.size);
+	break;
+      case KIND_DATE:
+	out.writeLongs(((ArffDateColumn) column).values, column.size);
+	break;
+      case KIND_DICTIONARY:
+	out.writeStrings(((ArffDictionaryColumn) column).dictionary.getValues());
+	out.writeInts(((ArffDictionaryColumn) column).codes, column.size);
+	break;
+      default:
+	break;
+    }
+  }
+
+  /**
+   * Reads the dense column.
+   *
+   * @param in		the input to read from
+   * @param column	the (empty) column to fill
+   * @return		false if the column doesn't match the cached one
+   * @throws IOException	if reading fails
+   */
+  protected boolean readColumn(Input in, ArffColumn column) throws IOException {
+    ArffDictionaryColumn	dictColumn;
+    ArffOffHeapColumn		offHeap;
+    int				size;
+
+    if (in.readByte() != kind(column))
+      return false;
+    size           = in.readInt();
+    column.missing = in.readBitSet();
+    if (column instanceof ArffOffHeapColumn) {
+      offHeap = (ArffOffHeapColumn) column;
+      if (offHeap instanceof ArffOffHeapDictionaryColumn) {
+	((ArffOffHeapDictionaryColumn) offHeap).dictionary = new ArffDictionary();
+	for (String value: in.readStrings())
+	  ((ArffOffHeapDictionaryColumn) offHeap).dictionary.encode(value);
+      }
+      if (in.readLength() != size)
+	return false;
+      offHeap.resize(size);
+      in.readBuffer(offHeap.buffer, size * offHeap.width);
+      offHeap.size = size;
+      return true;
+    }
+    column.size = size;
+    switch (kind(column)) {
+      case KIND_NUMERIC:
+	((ArffNumericColumn) column).values = in.readDoubles();
+	break;
+      case KIND_FLOAT:
+	((ArffFloatColumn) column).values = in.readFloats();
+	break;
+      case KIND_DATE:
+	((ArffDateColumn) column).values = in.readLongs();
+	break;
+      case KIND_DICTIONARY:
+	dictColumn            = (ArffDictionaryColumn) column;
+	dictColumn.dictionary = new ArffDictionary();
+	for (String value: in.readStrings())
+	  dictColumn.dictionary.encode(value);
+	dictColumn.codes = in.readInts();
+	break;
+      default:
+	break;
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes the sparse data.
+   *
+   * @param out		the output to write to
+   * @param data	the data to write
+   * @throws IOException	if writing fails
+   */
+  protected void writeSparseData(Output out, ArffSparseData data) throws IOException {
+    int		i;
+
+    out.writeInt(data.numRows);
+    out.writeInts(data.rowPointers, data.numRows + 1);
+    out.writeInt(data.numValues);
+    out.writeInts(data.colIndices, data.numValues);
+    out.writeDoubles(data.values, data.numValues);
+    out.writeBitSet(data.missing);
+    for (i = 0; i < data.dictionaries.length; i++) {
+      out.writeByte((byte) ((data.dictionaries[i] != null) ? 1 : 0));
+      if (data.dictionaries[i] != null)
+	out.writeStrings(data.dictionaries[i].getValues());
+    }
+  }
+
+  /**
+   * Reads the sparse data.
+   *
+   * @param in		the input to read from
+   * @param data	the (empty) data to fill
+   * @return		false if the data doesn't match the cached one
+   * @throws IOException	if reading fails
+   */
+  protected boolean readSparseData(Input in, ArffSparseData data) throws IOException {
+    int		i;
+
+    data.numRows     = in.readInt();
+    data.rowPointers = in.readInts();
+    data.numValues   = in.readInt();
+    data.colIndices  = in.readInts();
+    data.values      = in.readDoubles();
+    data.missing     = in.readBitSet();
+    for (i = 0; i < data.dictionaries.length; i++) {
+      if ((in.readByte() == 1) != (data.dictionaries[i] != null))
+	return false;
+      if (data.dictionaries[i] != null) {
+	data.dictionaries[i] = new ArffDictionary();
+	for (String value: in.readStrings())
+	  data.dictionaries[i].encode(value);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes the data of the parser to the cache. The file gets written to
+   * a temporary file first, which then replaces the cache file.
+   *
+   * @param parser	the parser that parsed the data
+   * @param key		the key of the data, see {@link #key(Path, ArffParser)}
+   * @throws IOException	if writing fails
+   */
+  public void write(ArffParser parser, String key) throws IOException {
+    Path	tmp;
+    Output	out;
+    double[]	weights;
+
+    tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      out = new Output(channel);
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeString(key);
+      out.writeInt(parser.getColNames().size());
+      out.writeInt(parser.getNumRows());
+      weights = parser.getWeights().getWeights();
+      out.writeByte((byte) ((weights != null) ? 1 : 0));
+      if (weights != null)
+	out.writeDoubles(weights, weights.length);
+      out.writeByte((byte) (parser.isSparse() ? 1 : 0));
+      if (parser.isSparse()) {
+	writeSparseData(out, parser.getSparseData());
+      }
+      else {
+	for (ArffColumn column: parser.getColumns())
+	  writeColumn(out, column);
+      }
+      out.flush();
+    }
+    catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the data from the cache into the parser, which must have parsed
+   * the header of the ARFF file already (with the same options).
+   * Caches that are corrupt or can't be read count as missing.
+   *
+   * @param parser	the parser to fill
+   * @param key		the key of the data, see {@link #key(Path, ArffParser)}
+   * @return		true if the cache was present and matched the key
+   */
+  public boolean read(ArffParser parser, String key) {
+    Input	in;
+    int		numRows;
+    double[]	weights;
+
+    if (!Files.isRegularFile(file))
+      return false;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      in = new Input(channel);
+      if ((in.size < 12) || (in.readLong() != MAGIC) || (in.readInt() != VERSION))
+	return false;
+      if (!in.readString().equals(key))
+	return false;
+      if (in.readInt() != parser.getColNames().size())
+	return false;
+      numRows = in.readInt();
+      weights = null;
+      if (in.readByte() == 1)
+	weights = in.readDoubles();
+
+      if (in.readByte() == 1) {
+	parser.columns    = null;
+	parser.sparseData = parser.newSparseData();
+	if (!readSparseData(in, parser.sparseData))
+	  return false;
+	parser.columns = parser.sparseData.getColumns();
+      }
+      else {
+	parser.sparseData = null;
+	parser.columns    = parser.newColumns();
+	for (ArffColumn column: parser.columns) {
+	  if (!readColumn(in, column))
+	    return false;
+	}
+      }
+
+      parser.weights         = new ArffWeights();
+      parser.weights.size    = numRows;
+      parser.weights.weights = weights;
+      parser.numRows         = numRows;
+    }
+    catch (IOException | RuntimeException e) {
+      return false;
+    }
+
+    return true;
+  }
+}
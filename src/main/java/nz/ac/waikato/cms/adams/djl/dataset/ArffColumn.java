@@ -0,0 +1,244 @@
+/*
+ * ArffColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.BitSet;
+
+/**
+ * Ancestor for the columnar storage of parsed ARFF data.
+ * Missing values are recorded in a bitmap.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class ArffColumn {
+
+  /** the initial capacity, allocated when the first row gets added. */
+  public static final int INITIAL_CAPACITY = 1024;
+
+  protected String name;
+  protected ArffAttributeType type;
+  protected int size;
+  protected BitSet missing;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   */
+  protected ArffColumn(String name, ArffAttributeType type) {
+    this.name = name;
+    this.type = type;
+    size      = 0;
+    missing   = new BitSet();
+  }
+
+  /**
+   * Creates a suitable column for the attribute type.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   * @return		the column
+   */
+  public static ArffColumn newColumn(String name, ArffAttributeType type) {
+    return newColumn(name, type, false);
+  }
+
+  /**
+   * Creates a suitable column for the attribute type.
+   *
+   * @param name		the name of the column
+   * @param type		the type of the column
+   * @param floatPrecision	whether to store NUMERIC values as float rather than double
+   * @return			the column
+   */
+  public static ArffColumn newColumn(String name, ArffAttributeType type, boolean floatPrecision) {
+    switch (type) {
+      case NUMERIC:
+	if (floatPrecision)
+	  return new ArffFloatColumn(name);
+	else
+	  return new ArffNumericColumn(name);
+      case DATE:
+	return new ArffDateColumn(name);
+      default:
+	return new ArffDictionaryColumn(name, type);
+    }
+  }
+
+  /**
+   * Creates a suitable column for the attribute type.
+   *
+   * @param name		the name of the column
+   * @param type		the type of the column
+   * @param floatPrecision	whether to store NUMERIC values as float rather than double
+   * @param allocator		the allocator for storing the values off-heap, null for the heap
+   * @return			the column
+   */
+  public static ArffColumn newColumn(String name, ArffAttributeType type, boolean floatPrecision, ArffBufferAllocator allocator) {
+    if (allocator == null)
+      return newColumn(name, type, floatPrecision);
+
+    switch (type) {
+      case NUMERIC:
+	return new ArffOffHeapNumericColumn(name, allocator, floatPrecision);
+      case DATE:
+	return new ArffOffHeapDateColumn(name, allocator);
+      default:
+	return new ArffOffHeapDictionaryColumn(name, type, allocator);
+    }
+  }
+
+  /**
+   * Turns the NUMERIC value into a string. Integral values are output
+   * without decimals, all others with the shortest representation of
+   * the precision they were stored with.
+   *
+   * @param value		the value to convert
+   * @param floatPrecision	whether the value was stored as float rather than double
+   * @return			the string representation
+   */
+  public static String formatNumber(double value, boolean floatPrecision) {
+    if ((value == Math.rint(value)) && (Math.abs(value) < 1e15))
+      return Long.toString((long) value);
+    else if (floatPrecision)
+      return Float.toString((float) value);
+    else
+      return Double.toString(value);
+  }
+
+  /**
+   * Returns the name of the column.
+   *
+   * @return		the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the type of the column.
+   *
+   * @return		the type
+   */
+  public ArffAttributeType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of rows stored.
+   *
+   * @return		the number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether the value in the specified row is missing.
+   *
+   * @param row		the row index
+   * @return		true if missing
+   */
+  public boolean isMissing(int row) {
+    return missing.get(row);
+  }
+
+  /**
+   * Appends the value of the cell. Cells not present in the row are treated as missing.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  public void add(ArffRow row, int col) {
+    ensureCapacity(size + 1);
+    if ((col >= row.getNumCells()) || row.isMissing(col)) {
+      missing.set(size);
+      addMissing();
+    }
+    else {
+      addValue(row, col);
+    }
+    size++;
+  }
+
+  /**
+   * Appends the default value of the column, i.e., the value of cells that
+   * are absent from sparse rows (0, or the first value for NOMINAL columns).
+   */
+  public void addDefault() {
+    ensureCapacity(size + 1);
+    addDefaultValue();
+    size++;
+  }
+
+  /**
+   * Appends all the values of the other column.
+   *
+   * @param other	the column to append, must be of the same class
+   */
+  public void addAll(ArffColumn other) {
+    int		i;
+
+    ensureCapacity(size + other.size);
+    for (i = other.missing.nextSetBit(0); i >= 0; i = other.missing.nextSetBit(i + 1))
+      missing.set(size + i);
+    addAllValues(other);
+    size += other.size;
+  }
+
+  /**
+   * Ensures that the column can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  protected abstract void ensureCapacity(int capacity);
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  protected abstract void addMissing();
+
+  /**
+   * Stores the default value at the current position.
+   */
+  protected abstract void addDefaultValue();
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  protected abstract void addValue(ArffRow row, int col);
+
+  /**
+   * Appends the values of the other column at the current position.
+   *
+   * @param other	the column to append
+   */
+  protected abstract void addAllValues(ArffColumn other);
+
+  /**
+   * Returns the value in the specified row as string.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  public abstract String getString(int row);
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  public abstract void compact();
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  public abstract ArffColumn newInstance();
+}
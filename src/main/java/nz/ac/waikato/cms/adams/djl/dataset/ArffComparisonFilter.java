@@ -0,0 +1,296 @@
+/*
+ * ArffComparisonFilter.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps rows whose value in a column compares to a constant, e.g.,
+ * "temperature &gt;= 20" or "site = 'A1'". NUMERIC and DATE columns support
+ * all operators, with DATE constants using the format declared in the header.
+ * NOMINAL and STRING columns only support (in)equality, which gets checked
+ * on the raw bytes of the cell. Rows with a missing value in the column
+ * are never kept. NUMERIC constants get parsed like the cells, i.e., they
+ * get rounded to float as well if the reader uses float precision.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffComparisonFilter
+  implements ArffRowFilter {
+
+  /**
+   * The comparison operators.
+   */
+  public enum Operator {
+    EQ("="),
+    NE("!="),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">=");
+
+    /** the symbol. */
+    private final String symbol;
+
+    /**
+     * Initializes the operator.
+     *
+     * @param symbol	the symbol
+     */
+    Operator(String symbol) {
+      this.symbol = symbol;
+    }
+
+    /**
+     * Returns the symbol.
+     *
+     * @return		the symbol
+     */
+    public String getSymbol() {
+      return symbol;
+    }
+
+    /**
+     * Returns the operator for the symbol.
+     *
+     * @param symbol	the symbol, e.g., "&lt;="
+     * @return		the operator
+     * @throws IllegalArgumentException	if unknown symbol
+     */
+    public static Operator fromSymbol(String symbol) {
+      for (Operator op: values()) {
+	if (op.symbol.equals(symbol))
+	  return op;
+      }
+      throw new IllegalArgumentException("Unknown operator: " + symbol);
+    }
+  }
+
+  protected String column;
+  protected Operator operator;
+  protected String value;
+  protected int col;
+  protected ArffAttributeType type;
+  protected double number;
+  protected byte[] bytes;
+  protected boolean defaultAccepted;
+
+  /**
+   * Initializes the filter.
+   *
+   * @param column	the name of the column
+   * @param operator	the comparison operator
+   * @param value	the constant to compare with
+   */
+  public ArffComparisonFilter(String column, Operator operator, String value) {
+    this.column   = column;
+    this.operator = operator;
+    this.value    = value;
+    col           = -1;
+  }
+
+  /**
+   * Initializes the filter.
+   *
+   * @param column	the name of the column
+   * @param operator	the symbol of the comparison operator, e.g., "&gt;="
+   * @param value	the constant to compare with
+   */
+  public ArffComparisonFilter(String column, String operator, String value) {
+    this(column, Operator.fromSymbol(operator), value);
+  }
+
+  /**
+   * Returns the name of the column.
+   *
+   * @return		the name
+   */
+  public String getColumn() {
+    return column;
+  }
+
+  /**
+   * Returns the comparison operator.
+   *
+   * @return		the operator
+   */
+  public Operator getOperator() {
+    return operator;
+  }
+
+  /**
+   * Returns the constant to compare with.
+   *
+   * @return		the constant
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Resolves the column and parses the constant.
+   *
+   * @param reader	the reader that has read the header
+   * @throws Exception	if the column is unknown, the operator not supported
+   * 			for the type of the column or the constant can't be parsed
+   */
+  @Override
+  public void initialize(ArffReader reader) throws Exception {
+    List<String>	values;
+    byte[]		text;
+
+    if (!reader.getAttLookUp().containsKey(column))
+      throw new IllegalArgumentException("Unknown column for row filter: " + column);
+    col  = reader.getAttLookUp().get(column);
+    type = reader.getColTypes().get(col);
+
+    switch (type) {
+      case NUMERIC:
+	text = value.trim().getBytes(StandardCharsets.UTF_8);
+	if (reader.isFloatPrecision())
+	  number = ArffNumberParser.parseFloat(text, 0, text.length, false);
+	else
+	  number = ArffNumberParser.parseDouble(text, 0, text.length, false);
+	defaultAccepted = test(0);
+	break;
+      case DATE:
+	number          = new ArffDateParser(reader.getHeader().get(col).get("format")).parse(value);
+	defaultAccepted = test(0);
+	break;
+      case NOMINAL:
+      case STRING:
+	if ((operator != Operator.EQ) && (operator != Operator.NE))
+	  throw new IllegalArgumentException("Operator '" + operator.getSymbol() + "' not supported for " + type + " column: " + column);
+	bytes  = value.getBytes(StandardCharsets.UTF_8);
+	values = reader.getNominalValues().get(column);
+	if ((type == ArffAttributeType.NOMINAL) && !values.contains(value))
+	  throw new IllegalArgumentException("Value '" + value + "' not declared for column: " + column);
+	if (type == ArffAttributeType.NOMINAL)
+	  defaultAccepted = values.get(0).equals(value) == (operator == Operator.EQ);
+	else
+	  defaultAccepted = value.isEmpty() == (operator == Operator.EQ);
+	break;
+      default:
+	throw new IllegalStateException("Unhandled attribute type: " + type);
+    }
+  }
+
+  /**
+   * Returns the columns that the filter requires to be decoded.
+   *
+   * @return		the column index
+   */
+  @Override
+  public int[] getColumns() {
+    return new int[]{col};
+  }
+
+  /**
+   * Compares the number with the constant.
+   *
+   * @param x		the number to compare
+   * @return		the result of the comparison
+   */
+  protected boolean test(double x) {
+    switch (operator) {
+      case EQ:
+	return (x == number);
+      case NE:
+	return (x != number);
+      case LT:
+	return (x < number);
+      case LE:
+	return (x <= number);
+      case GT:
+	return (x > number);
+      case GE:
+	return (x >= number);
+      default:
+	throw new IllegalStateException("Unhandled operator: " + operator);
+    }
+  }
+
+  /**
+   * Checks whether to keep the row.
+   *
+   * @param row		the row, with the cell of the column decoded
+   * @return		true if to keep
+   */
+  @Override
+  public boolean accept(ArffRow row) {
+    int		cell;
+    boolean	equal;
+
+    cell = row.findCell(col);
+    if (cell == -1)
+      return row.isSparse() && defaultAccepted;
+    if (row.isMissing(cell))
+      return false;
+
+    switch (type) {
+      case NUMERIC:
+	return test(row.getDouble(cell));
+      case DATE:
+	return test(row.getDate(cell));
+      default:
+	equal = Arrays.equals(row.getText(), row.getStart(cell), row.getStart(cell) + row.getLength(cell), bytes, 0, bytes.length);
+	return equal == (operator == Operator.EQ);
+    }
+  }
+
+  /**
+   * Returns the settings of the filter as JSON.
+   *
+   * @return		the settings
+   * @see		#fromJson(JsonObject)
+   */
+  public JsonObject toJson() {
+    JsonObject	result;
+
+    result = new JsonObject();
+    result.addProperty("column", column);
+    result.addProperty("operator", operator.getSymbol());
+    result.addProperty("value", value);
+
+    return result;
+  }
+
+  /**
+   * Creates the filter from its JSON settings.
+   *
+   * @param json	the settings
+   * @return		the filter
+   * @see		#toJson()
+   */
+  public static ArffComparisonFilter fromJson(JsonObject json) {
+    return new ArffComparisonFilter(json.get("column").getAsString(), json.get("operator").getAsString(), json.get("value").getAsString());
+  }
+
+  /**
+   * Returns a description of the filter and its settings that does not
+   * change between runs.
+   *
+   * @return		the description
+   */
+  @Override
+  public String getDescription() {
+    return getClass().getName() + toJson();
+  }
+
+  /**
+   * Returns a short description of the filter.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    return column + " " + operator.getSymbol() + " " + value;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * ArffDataIterable.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.Device;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.training.dataset.Batch;
+import ai.djl.training.dataset.DataIterable;
+import ai.djl.training.dataset.Sampler;
+import ai.djl.translate.Batchifier;
+import ai.djl.translate.Pipeline;
+import ai.djl.translate.StackBatchifier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Iterates the batches of an {@link ArffDataset} or an {@link ArffSubDataset},
+ * assembling each batch as a whole: the sampled rows get sorted and their
+ * features and labels gathered
+ * into one contiguous array each, i.e., only a single NDArray gets created
+ * for the features and one for the labels, rather than one per row that
+ * then get stacked.
+ * <br>
+ * Falls back to the row-wise assembly if a pipeline is to be applied to
+ * the features of the rows or the batchifiers don't stack.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDataIterable
+  extends DataIterable {
+
+  /**
+   * Initializes the iterable.
+   *
+   * @param dataset		the dataset to iterate
+   * @param manager		the manager to create the arrays with
+   * @param sampler		the sampler for the row indices
+   * @param dataBatchifier	the batchifier for the features
+   * @param labelBatchifier	the batchifier for the labels
+   * @param pipeline		the pipeline for the features of the rows, can be null
+   * @param targetPipeline	the pipeline for the labels of the batches, can be null
+   * @param executor		the executor for fetching batches, can be null
+   * @param preFetchNumber	the number of batches to fetch ahead
+   * @param device		the device to move the batches to, can be null
+   */
+  public ArffDataIterable(ArffDataset dataset, NDManager manager, Sampler sampler, Batchifier dataBatchifier,
+			  Batchifier labelBatchifier, Pipeline pipeline, Pipeline targetPipeline,
+			  ExecutorService executor, int preFetchNumber, Device device) {
+    super(dataset, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, executor, preFetchNumber, device);
+  }
+
+  /**
+   * Initializes the iterable for a subset, gathering the rows from the
+   * dataset the subset was taken from.
+   *
+   * @param subset		the subset to iterate
+   * @param manager		the manager to create the arrays with
+   * @param sampler		the sampler for the row indices
+   * @param dataBatchifier	the batchifier for the features
+   * @param labelBatchifier	the batchifier for the labels
+   * @param pipeline		the pipeline for the features of the rows, can be null
+   * @param targetPipeline	the pipeline for the labels of the batches, can be null
+   * @param executor		the executor for fetching batches, can be null
+   * @param preFetchNumber	the number of batches to fetch ahead
+   * @param device		the device to move the batches to, can be null
+   */
+  public ArffDataIterable(ArffSubDataset subset, NDManager manager, Sampler sampler, Batchifier dataBatchifier,
+			  Batchifier labelBatchifier, Pipeline pipeline, Pipeline targetPipeline,
+			  ExecutorService executor, int preFetchNumber, Device device) {
+    super(subset, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, executor, preFetchNumber, device);
+  }
+
+  /**
+   * Returns the dataset to gather the rows from, i.e., for a subset the
+   * dataset it was taken from. With an executor, the superclass already
+   * starts fetching batches in its constructor, i.e., before the fields of
+   * this class get initialized.
+   *
+   * @return		the dataset
+   */
+  protected ArffDataset getArffDataset() {
+    if (dataset instanceof ArffSubDataset)
+      return ((ArffSubDataset) dataset).getDataset();
+    else
+      return (ArffDataset) dataset;
+  }
+
+  /**
+   * Returns the row in the dataset to gather for the sampled index.
+   *
+   * @param index	the sampled index
+   * @return		the row in the dataset
+   * @see		#getArffDataset()
+   */
+  protected long getDatasetRow(long index) {
+    if (dataset instanceof ArffSubDataset)
+      return ((ArffSubDataset) dataset).getDatasetIndex(index);
+    else
+      return index;
+  }
+
+  /**
+   * Checks whether the batch can be assembled as a whole.
+   *
+   * @return		true if possible
+   */
+  protected boolean canGather() {
+    return (pipeline == null)
+	     && (dataBatchifier instanceof StackBatchifier)
+	     && ((labelBatchifier instanceof StackBatchifier) || getArffDataset().getLabels().isEmpty());
+  }
+
+  /**
+   * Assembles the batch for the rows. The rows get sorted by their position
+   * in the dataset, the indices of the batch are the sampled ones in the
+   * same order.
+   *
+   * @param indices	the row indices
+   * @param progress	the progress
+   * @return		the batch
+   * @throws IOException	if assembling fails
+   */
+  @Override
+  protected Batch fetch(List<Long> indices, int progress) throws IOException {
+    ArffDataset	arffDataset;
+    NDManager	subManager;
+    NDList	data;
+    NDList	labels;
+    long[]	mapped;
+    long[]	rows;
+    Integer[]	order;
+    List<Long>	sorted;
+    int		i;
+
+    if (!canGather())
+      return super.fetch(indices, progress);
+
+    arffDataset = getArffDataset();
+    mapped      = new long[indices.size()];
+    order       = new Integer[mapped.length];
+    for (i = 0; i < mapped.length; i++) {
+      mapped[i] = getDatasetRow(indices.get(i));
+      order[i]  = i;
+    }
+    Arrays.sort(order, Comparator.comparingLong(n -> mapped[n]));
+    rows   = new long[mapped.length];
+    sorted = new ArrayList<>(mapped.length);
+    for (i = 0; i < order.length; i++) {
+      rows[i] = mapped[order[i]];
+      sorted.add(indices.get(order[i]));
+    }
+
+    subManager = manager.newSubManager();
+    subManager.setName("dataIter fetch");
+    data = arffDataset.getBatchFeatures(subManager, rows, arffDataset.getFeatures());
+    if (arffDataset.getLabels().isEmpty())
+      labels = new NDList();
+    else
+      labels = arffDataset.getBatchFeatures(subManager, rows, arffDataset.getLabels());
+    if (targetPipeline != null)
+      labels = targetPipeline.transform(labels);
+    if (device != null) {
+      data   = data.toDevice(device, false);
+      labels = labels.toDevice(device, false);
+    }
+
+    return new Batch(subManager, data, labels, rows.length, dataBatchifier, labelBatchifier, progress, dataset.size(), sorted);
+  }
+}
@@ -7,31 +7,54 @@ package nz.ac.waikato.cms.adams.djl.dataset;
 
 import ai.djl.basicdataset.tabular.TabularDataset;
 import ai.djl.basicdataset.tabular.utils.Feature;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.training.dataset.Batch;
+import ai.djl.training.dataset.DataIterable;
+import ai.djl.training.dataset.RandomAccessDataset;
+import ai.djl.training.dataset.Record;
+import ai.djl.training.dataset.Sampler;
+import ai.djl.translate.TranslateException;
 import ai.djl.util.Progress;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -40,39 +63,698 @@ import java.util.zip.GZIPInputStream;
  * By default, DATE and STRING attributes get ignored.
  * DATE attributes can be treated as NUMERIC ones: get parsed
  * and the epoch time is stored as NUMERIC string.
+ * NUMERIC values are stored as primitives and used as is by the
+ * plain numeric featurizer, without parsing them again.
  * STRING attributes can be treated as NOMINAL ones.
+ * Sparse ARFF files get stored in compressed sparse row format, with
+ * values absent from a row being 0 (or the first value for NOMINAL ones).
+ * Batches of sparse data can be assembled as sparse (CSR) NDArrays,
+ * see {@link #getSparseBatch(NDManager, long[])}.
+ * Instance weights ("...,{weight}") are available via {@link #getWeights()},
+ * the {@link ArffWeightedSampler} draws rows in proportion to them.
+ * Only the columns of the features and labels get loaded, the cells of all
+ * other columns are skipped when parsing (see {@link ArffSkippedColumn}).
+ * Rows can be filtered while parsing (see {@link ArffRowFilter}), i.e.,
+ * rows that get rejected are neither fully decoded nor stored.
+ * The parsed data of local files can be cached in a binary file (see
+ * {@link ArffCache}), which gets used instead of parsing the text again
+ * as long as the file and the options have not changed.
+ * The columns can be stored outside the Java heap (see
+ * {@link ArffBufferAllocator}), with NDArrays of whole columns created
+ * straight from their buffers, see {@link #getColumnArray(NDManager, String, int, int)}.
+ * Local, uncompressed files can be accessed without loading the data, using
+ * an index of the byte offsets of the rows (see {@link ArffIndexedRows}):
+ * preparing only scans the file for the rows, which get read and parsed
+ * on demand.
+ * Workers of distributed training can each load a different shard of the
+ * same file (see {@link ArffShardBlockSource}), only parsing their part.
+ * Batches can be assembled ahead by background threads while the current
+ * batch gets trained on, see {@link ArffBuilder#optPrefetch(int, int)}.
  * Ignored columns, explicit or via regexps, should be set first.
  *
  * @author fracpete (fracpete at waikato dot ac dot nz)
  */
 public class ArffDataset extends TabularDataset {
 
+  /** the logger. */
+  protected static final Logger LOGGER = LoggerFactory.getLogger(ArffDataset.class);
+
   protected URL arffUrl;
+  protected boolean memoryMapped;
+  protected int numThreads;
+  protected long minChunkSize;
+  protected boolean trustedInput;
+  protected boolean floatPrecision;
+  protected int shardRank;
+  protected int numShards;
+  protected boolean sparseBatches;
+  protected boolean gatherBatches;
+  protected boolean columnProjection;
+  protected List<ArffRowFilter> rowFilters;
+  protected boolean cache;
+  protected Path cacheDir;
+  protected ArffBufferAllocator allocator;
+  protected boolean rowIndex;
+  protected int rowIndexCacheSize;
+  protected ArffIndexedRows indexedRows;
+  protected int prefetchThreads;
+  protected ExecutorService prefetchExecutor;
   protected String relationName;
   protected List<String> colNames;
   protected List<ArffAttributeType> colTypes;
+  protected List<ArffColumn> columns;
+  protected ArffSparseData sparseData;
+  protected ArffSparseFeaturizer sparseFeaturizer;
+  protected ArffSparseFeaturizer sparseLabelizer;
+  protected ArffRowFeaturizer rowFeaturizer;
+  protected ArffRowFeaturizer rowLabelizer;
+  protected double[] weights;
+  protected int numRows;
   protected List<List<String>> data;
   protected List<Map<String,String>> header;
   protected Map<String,Integer> attLookUp;
+  protected Map<String,List<String>> nominalValues;
   protected JsonObject structure;
 
   protected ArffDataset(ArffBuilder<?> builder) {
     super(builder);
     arffUrl = builder.arffUrl;
+    memoryMapped = builder.memoryMapped;
+    numThreads = builder.numThreads;
+    minChunkSize = builder.minChunkSize;
+    trustedInput = builder.trustedInput;
+    floatPrecision = builder.floatPrecision;
+    shardRank = builder.shardRank;
+    numShards = builder.numShards;
+    sparseBatches = builder.sparseBatches;
+    gatherBatches = builder.gatherBatches;
+    columnProjection = builder.columnProjection;
+    rowFilters = new ArrayList<>(builder.rowFilters);
+    cache = builder.cache;
+    cacheDir = builder.cacheDir;
+    allocator = builder.allocator;
+    rowIndex = builder.rowIndex;
+    rowIndexCacheSize = builder.rowIndexCacheSize;
+    prefetchThreads = builder.prefetchThreads;
     structure = builder.toJson();
   }
 
   /** {@inheritDoc} */
   @Override
   public String getCell(long rowIndex, String featureName) {
-    List<String> record = data.get(Math.toIntExact(rowIndex));
-    return record.get(attLookUp.get(featureName));
+    return getCell(rowIndex, getColumnIndex(featureName));
+  }
+
+  /**
+   * Returns the value of the cell as string.
+   *
+   * @param rowIndex the row index
+   * @param col the column index, see {@link #getColumnIndex(String)}
+   * @return the value, null if missing
+   * @throws IllegalStateException if the column was not loaded, see {@link ArffBuilder#optColumnProjection(boolean)}
+   */
+  public String getCell(long rowIndex, int col) {
+    if (indexedRows != null) {
+      try {
+	return indexedRows.getString(Math.toIntExact(rowIndex), col);
+      }
+      catch (IOException e) {
+	throw new UncheckedIOException(e);
+      }
+    }
+    return columns.get(col).getString(Math.toIntExact(rowIndex));
+  }
+
+  /**
+   * Returns the index of the column.
+   *
+   * @param name the name of the column
+   * @return the index
+   * @throws IllegalArgumentException if the column is unknown
+   */
+  public int getColumnIndex(String name) {
+    Integer	result;
+
+    result = attLookUp.get(name);
+    if (result == null)
+      throw new IllegalArgumentException("Unknown column: " + name);
+
+    return result;
+  }
+
+  /**
+   * Returns the storage of the column.
+   *
+   * @param col the column index, see {@link #getColumnIndex(String)}
+   * @return the column
+   * @throws IllegalStateException if the rows are accessed via the row index
+   */
+  public ArffColumn getColumn(int col) {
+    if (indexedRows != null)
+      throw new IllegalStateException("Columns are not loaded when using the row index: " + relationName);
+    return columns.get(col);
+  }
+
+  /**
+   * Returns whether the rows get read on demand, using the index of their
+   * byte offsets in the file, rather than being loaded.
+   *
+   * @return true if using the row index
+   */
+  public boolean isIndexed() {
+    return (indexedRows != null);
+  }
+
+  /**
+   * Returns the block of rows containing the row, when using the row index.
+   *
+   * @param rowIndex the row index
+   * @return the block
+   */
+  protected ArffIndexedRows.Block getBlock(long rowIndex) {
+    try {
+      return indexedRows.getBlock(Math.toIntExact(rowIndex));
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the featurizer for the rows of the block, when using the row index.
+   * The featurizers of the features and labels are kept with the block.
+   *
+   * @param block the block of rows
+   * @param selected the features to assemble
+   * @return the featurizer
+   */
+  protected ArffRowFeaturizer getRowFeaturizer(ArffIndexedRows.Block block, List<Feature> selected) {
+    if (selected == getFeatures()) {
+      if (block.rowFeaturizer == null)
+	block.rowFeaturizer = new ArffRowFeaturizer(block.getColumns(), attLookUp, selected);
+      return block.rowFeaturizer;
+    }
+    else if (selected == getLabels()) {
+      if (block.rowLabelizer == null)
+	block.rowLabelizer = new ArffRowFeaturizer(block.getColumns(), attLookUp, selected);
+      return block.rowLabelizer;
+    }
+    else {
+      return new ArffRowFeaturizer(block.getColumns(), attLookUp, selected);
+    }
+  }
+
+  /**
+   * Returns the featurizer for assembling the features of rows.
+   *
+   * @return the featurizer
+   */
+  protected ArffRowFeaturizer getRowFeaturizer() {
+    if (rowFeaturizer == null)
+      rowFeaturizer = new ArffRowFeaturizer(columns, attLookUp, getFeatures());
+    return rowFeaturizer;
+  }
+
+  /**
+   * Returns the featurizer for assembling the labels of rows.
+   *
+   * @return the featurizer
+   */
+  protected ArffRowFeaturizer getRowLabelizer() {
+    if (rowLabelizer == null)
+      rowLabelizer = new ArffRowFeaturizer(columns, attLookUp, getLabels());
+    return rowLabelizer;
+  }
+
+  /**
+   * Assembles the features using the already parsed values of NUMERIC and DATE
+   * columns for the plain numeric featurizer, rather than parsing them again.
+   * NOMINAL and STRING values get featurized once per distinct value.
+   * The columns of the features and labels are determined once, when the
+   * dataset gets prepared (see {@link ArffRowFeaturizer}).
+   *
+   * @param manager the manager to create the array with
+   * @param index the row index
+   * @param selected the features to assemble
+   * @return the features
+   */
+  @Override
+  public NDList getRowFeatures(NDManager manager, long index, List<Feature> selected) {
+    ArffRowFeaturizer		featurizer;
+    ArffIndexedRows.Block	block;
+
+    if (indexedRows != null) {
+      block = getBlock(index);
+      return new NDList(getRowFeaturizer(block, selected).toNDArray(manager, Math.toIntExact(index - block.getStart())));
+    }
+
+    if (selected == getFeatures())
+      featurizer = getRowFeaturizer();
+    else if (selected == getLabels())
+      featurizer = getRowLabelizer();
+    else
+      featurizer = new ArffRowFeaturizer(columns, attLookUp, selected);
+
+    return new NDList(featurizer.toNDArray(manager, Math.toIntExact(index)));
+  }
+
+  /**
+   * Returns the record for the row, with the features and the labels each
+   * written straight from the columns into a single float array.
+   *
+   * @param manager the manager to create the arrays with
+   * @param index the row index
+   * @return the record
+   */
+  @Override
+  public Record get(NDManager manager, long index) {
+    NDList	data;
+    NDList	labels;
+    int		row;
+
+    if (indexedRows != null) {
+      data = getRowFeatures(manager, index, getFeatures());
+      if (getLabels().isEmpty())
+	labels = new NDList();
+      else
+	labels = getRowFeatures(manager, index, getLabels());
+      return new Record(data, labels);
+    }
+
+    row  = Math.toIntExact(index);
+    data = new NDList(getRowFeaturizer().toNDArray(manager, row));
+    if (getLabels().isEmpty())
+      labels = new NDList();
+    else
+      labels = new NDList(getRowLabelizer().toNDArray(manager, row));
+
+    return new Record(data, labels);
+  }
+
+  /**
+   * Creates a 1-dimensional NDArray from the stored values of the rows of
+   * a dense column, without converting them: NUMERIC columns as float64
+   * (float32 with float precision), DATE columns as int64 (epoch milliseconds)
+   * and NOMINAL/STRING columns as int32 (the codes, -1 for missing values).
+   * The values are handed to the manager as they are stored, i.e., off-heap
+   * columns don't get copied onto the heap first.
+   *
+   * @param manager the manager to create the array with
+   * @param name the name of the column
+   * @param start the first row (incl)
+   * @param end the last row (excl)
+   * @return the array
+   * @throws IllegalArgumentException if the column is not loaded or sparse
+   * @throws IllegalStateException if the rows are accessed via the row index
+   */
+  public NDArray getColumnArray(NDManager manager, String name, int start, int end) {
+    ArffColumn	column;
+    Buffer	values;
+    DataType	dataType;
+    int		length;
+
+    column = getColumn(attLookUp.get(name));
+    if ((start < 0) || (end > column.size()) || (start > end))
+      throw new IndexOutOfBoundsException("Invalid rows [" + start + "," + end + ") for " + column.size() + " rows");
+    length = end - start;
+    if (column instanceof ArffOffHeapColumn) {
+      values = ((ArffOffHeapColumn) column).getBuffer(start, end);
+      if (column instanceof ArffOffHeapNumericColumn)
+	dataType = ((ArffOffHeapNumericColumn) column).isFloatPrecision() ? DataType.FLOAT32 : DataType.FLOAT64;
+      else if (column instanceof ArffOffHeapDateColumn)
+	dataType = DataType.INT64;
+      else
+	dataType = DataType.INT32;
+    }
+    else if (column instanceof ArffNumericColumn) {
+      values   = DoubleBuffer.wrap(((ArffNumericColumn) column).values, start, length).slice();
+      dataType = DataType.FLOAT64;
+    }
+    else if (column instanceof ArffFloatColumn) {
+      values   = FloatBuffer.wrap(((ArffFloatColumn) column).values, start, length).slice();
+      dataType = DataType.FLOAT32;
+    }
+    else if (column instanceof ArffDateColumn) {
+      values   = LongBuffer.wrap(((ArffDateColumn) column).values, start, length).slice();
+      dataType = DataType.INT64;
+    }
+    else if (column instanceof ArffDictionaryColumn) {
+      values   = IntBuffer.wrap(((ArffDictionaryColumn) column).codes, start, length).slice();
+      dataType = DataType.INT32;
+    }
+    else {
+      throw new IllegalArgumentException("Column is not a loaded, dense column: " + name);
+    }
+
+    return manager.create(values, new Shape(length), dataType);
+  }
+
+  /**
+   * Returns the featurizer for assembling the features of sparse data.
+   *
+   * @return the featurizer
+   */
+  protected ArffSparseFeaturizer getSparseFeaturizer() {
+    if (sparseFeaturizer == null)
+      sparseFeaturizer = new ArffSparseFeaturizer(sparseData, attLookUp, getFeatures());
+    return sparseFeaturizer;
+  }
+
+  /**
+   * Returns the featurizer for assembling the labels of sparse data.
+   *
+   * @return the featurizer
+   */
+  protected ArffSparseFeaturizer getSparseLabelizer() {
+    if (sparseLabelizer == null)
+      sparseLabelizer = new ArffSparseFeaturizer(sparseData, attLookUp, getLabels());
+    return sparseLabelizer;
+  }
+
+  /**
+   * Assembles the features of the rows as sparse (CSR) NDArray with shape
+   * (rows, features), straight from the sparse storage. Only featurizers
+   * other than the plain numeric one get the values of the cells.
+   * Requires an engine that supports the CSR format.
+   *
+   * @param manager the manager to create the array with
+   * @param indices the row indices
+   * @param selected the features to assemble
+   * @return the features
+   * @throws IllegalStateException if the data is not sparse
+   */
+  public NDList getSparseFeatures(NDManager manager, long[] indices, List<Feature> selected) {
+    ArffSparseFeaturizer	featurizer;
+
+    if (!isSparse())
+      throw new IllegalStateException("Data is not sparse: " + relationName);
+    if (selected == getFeatures())
+      featurizer = getSparseFeaturizer();
+    else if (selected == getLabels())
+      featurizer = getSparseLabelizer();
+    else
+      featurizer = new ArffSparseFeaturizer(sparseData, attLookUp, selected);
+
+    return new NDList(featurizer.featurize(indices).toNDArray(manager));
+  }
+
+  /**
+   * Assembles the batch for the rows, with the features as sparse (CSR)
+   * NDArray and the labels as dense NDArray, both with the rows as first
+   * dimension. The pipelines do not get applied.
+   * Requires an engine that supports the CSR format.
+   *
+   * @param manager the manager to create the arrays with
+   * @param indices the row indices
+   * @return the batch
+   * @throws IllegalStateException if the data is not sparse
+   */
+  public Batch getSparseBatch(NDManager manager, long[] indices) {
+    NDManager	batchManager;
+    NDList	data;
+    NDList	labels;
+
+    batchManager = manager.newSubManager();
+    data         = getSparseFeatures(batchManager, indices, getFeatures());
+    labels       = new NDList(getSparseLabelizer().featurize(indices).toDenseNDArray(batchManager));
+
+    return new Batch(batchManager, data, labels, indices.length, dataBatchifier, labelBatchifier, 0, 0);
+  }
+
+  /**
+   * Assembles the features of the rows as 2-dimensional NDArray
+   * (rows x features), gathering the values into a single array.
+   *
+   * @param manager the manager to create the array with
+   * @param indices the row indices
+   * @param selected the features to assemble
+   * @return the features
+   */
+  public NDList getBatchFeatures(NDManager manager, long[] indices, List<Feature> selected) {
+    ArffRowFeaturizer		featurizer;
+    ArffIndexedRows.Block	block;
+    float[]			values;
+    int				width;
+    int				n;
+
+    if (indexedRows != null) {
+      values = new float[0];
+      width  = 0;
+      for (n = 0; n < indices.length; n++) {
+	block      = getBlock(indices[n]);
+	featurizer = getRowFeaturizer(block, selected);
+	if (n == 0) {
+	  width  = featurizer.getWidth();
+	  values = new float[indices.length * width];
+	}
+	featurizer.featurize(values, n * width, Math.toIntExact(indices[n] - block.getStart()));
+      }
+      return new NDList(manager.create(values, new Shape(indices.length, width)));
+    }
+
+    if (selected == getFeatures())
+      featurizer = getRowFeaturizer();
+    else if (selected == getLabels())
+      featurizer = getRowLabelizer();
+    else
+      featurizer = new ArffRowFeaturizer(columns, attLookUp, selected);
+
+    return new NDList(featurizer.toNDArray(manager, indices));
+  }
+
+  /**
+   * Returns the number of threads for assembling batches ahead.
+   *
+   * @return the number of threads, 0 if not prefetching
+   */
+  public int getPrefetchThreads() {
+    return prefetchThreads;
+  }
+
+  /**
+   * Returns the number of batches to assemble ahead.
+   *
+   * @return the number of batches
+   */
+  public int getPrefetchDepth() {
+    return prefetchNumber;
+  }
+
+  /**
+   * Returns the executor for assembling batches ahead, creating it on first
+   * use. Its daemon threads terminate when idle.
+   *
+   * @return the executor, null if not prefetching
+   */
+  public synchronized ExecutorService getPrefetchExecutor() {
+    ThreadPoolExecutor	executor;
+
+    if (prefetchThreads < 1)
+      return null;
+
+    if (prefetchExecutor == null) {
+      executor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+	Thread thread = new Thread(r, "arff-prefetch");
+	thread.setDaemon(true);
+	return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+      prefetchExecutor = executor;
+    }
+
+    return prefetchExecutor;
+  }
+
+  /**
+   * Returns the batches of the dataset. If sparse batches are enabled and the
+   * data is sparse, the features of the batches are sparse (CSR) NDArrays,
+   * see {@link #getSparseBatch(NDManager, long[])}. Otherwise, the batches
+   * get assembled as a whole (see {@link ArffDataIterable}) or, if turned
+   * off, the rows get batchified as usual.
+   * Without an executor, the dataset's own prefetch executor gets used, if
+   * enabled (see {@link #getPrefetchExecutor()}).
+   *
+   * @param manager the manager to create the arrays with
+   * @param sampler the sampler for the row indices
+   * @param executor the executor for fetching batches ahead, can be null
+   * @return the batches
+   * @throws IOException if preparing fails
+   * @throws TranslateException if preparing fails
+   */
+  @Override
+  public Iterable<Batch> getData(NDManager manager, Sampler sampler, ExecutorService executor) throws IOException, TranslateException {
+    Iterable<Batch>	sparse;
+    ExecutorService	prefetch;
+
+    prepare();
+    prefetch = (executor != null) ? executor : getPrefetchExecutor();
+    if (!sparseBatches || !isSparse()) {
+      if (gatherBatches)
+	return new ArffDataIterable(this, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, prefetch, prefetchNumber, device);
+      else
+	return new DataIterable(this, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, prefetch, prefetchNumber, device);
+    }
+
+    sparse = getSparseData(manager, sampler);
+    if (prefetch == null)
+      return sparse;
+    else
+      return () -> new ArffPrefetchIterator(sparse.iterator(), prefetch, prefetchNumber);
+  }
+
+  /**
+   * Returns the sparse batches of the dataset, see {@link #getSparseBatch(NDManager, long[])}.
+   *
+   * @param manager the manager to create the arrays with
+   * @param sampler the sampler for the row indices
+   * @return the batches
+   */
+  protected Iterable<Batch> getSparseData(NDManager manager, Sampler sampler) {
+    return getSparseData(manager, sampler, this, null);
+  }
+
+  /**
+   * Returns the sparse batches of the dataset or a subset of it, see
+   * {@link #getSparseBatch(NDManager, long[])}.
+   *
+   * @param manager the manager to create the arrays with
+   * @param sampler the sampler for the row indices
+   * @param source the dataset to sample, i.e., this dataset or a subset of it
+   * @param rowMap the rows in this dataset for the sampled indices, null if sampling this dataset
+   * @return the batches
+   */
+  protected Iterable<Batch> getSparseData(NDManager manager, Sampler sampler, RandomAccessDataset source, long[] rowMap) {
+    return () -> new Iterator<>() {
+      protected Iterator<List<Long>> indices = sampler.sample(source);
+
+      @Override
+      public boolean hasNext() {
+	return indices.hasNext();
+      }
+
+      @Override
+      public Batch next() {
+	List<Long>	list;
+	long[]		rows;
+	int		i;
+
+	list = indices.next();
+	rows = new long[list.size()];
+	for (i = 0; i < rows.length; i++)
+	  rows[i] = (rowMap == null) ? list.get(i) : rowMap[Math.toIntExact(list.get(i))];
+	return getSparseBatch(manager, rows);
+      }
+    };
   }
 
   /** {@inheritDoc} */
   @Override
   protected long availableSize() {
-    return data.size();
+    return numRows;
+  }
+
+  /**
+   * Creates a subset of the rows, which refers to the rows of this dataset.
+   *
+   * @param indices	the indices of the rows
+   * @param fromIndex	the first index to use (incl)
+   * @param toIndex	the last index to use (excl)
+   * @return		the subset
+   * @see		ArffSubDataset
+   */
+  @Override
+  protected RandomAccessDataset newSubDataset(int[] indices, int fromIndex, int toIndex) {
+    long[]	subset;
+    int		i;
+
+    subset = new long[toIndex - fromIndex];
+    for (i = fromIndex; i < toIndex; i++)
+      subset[i - fromIndex] = indices[i];
+
+    return newSubset(subset);
+  }
+
+  /**
+   * Creates a subset of the rows, which refers to the rows of this dataset.
+   *
+   * @param indices	the indices of the rows
+   * @return		the subset
+   * @see		ArffSubDataset
+   */
+  @Override
+  protected RandomAccessDataset newSubDataset(List<Long> indices) {
+    long[]	subset;
+    int		i;
+
+    subset = new long[indices.size()];
+    for (i = 0; i < subset.length; i++)
+      subset[i] = indices.get(i);
+
+    return newSubset(subset);
+  }
+
+  /**
+   * Creates a subset of the rows with the settings of this dataset.
+   *
+   * @param indices	the indices of the rows
+   * @return		the subset
+   */
+  protected ArffSubDataset newSubset(long[] indices) {
+    ArffSubDataset.ArffSubBuilder	builder;
+
+    builder = ArffSubDataset.builder();
+    builder.setRows(this, indices);
+    builder.setSampling(sampler);
+    builder.optDataBatchifier(dataBatchifier);
+    builder.optLabelBatchifier(labelBatchifier);
+    builder.optPipeline(pipeline);
+    builder.optTargetPipeline(targetPipeline);
+    builder.optPrefetchNumber(prefetchNumber);
+    builder.optDevice(device);
+
+    return builder.build();
+  }
+
+  /**
+   * Creates a new parser, configured with the dataset's parsing options.
+   *
+   * @return			the parser
+   */
+  protected ArffParser newParser() {
+    ArffParser	result;
+
+    result = new ArffParser();
+    result.setNumThreads(numThreads);
+    result.setMinChunkSize(minChunkSize);
+    result.setTrustedInput(trustedInput);
+    result.setFloatPrecision(floatPrecision);
+    result.setShard(shardRank, numShards);
+    result.setSelectedColumns(getSelectedColumns());
+    result.setRowFilters(rowFilters);
+    result.setAllocator(allocator);
+
+    return result;
+  }
+
+  /**
+   * Returns the names of the columns that need loading, i.e., the ones of
+   * the features and labels.
+   *
+   * @return			the names, null for all columns
+   */
+  protected Set<String> getSelectedColumns() {
+    Set<String>	result;
+
+    if (!columnProjection || (getFeatures().isEmpty() && getLabels().isEmpty()))
+      return null;
+
+    result = new HashSet<>();
+    for (Feature feature: getFeatures())
+      result.add(feature.getName());
+    for (Feature feature: getLabels())
+      result.add(feature.getName());
+
+    return result;
   }
 
   /**
@@ -84,31 +766,263 @@ public class ArffDataset extends TabularDataset {
   protected void parseDataset(Reader r) throws IOException {
     ArffParser	parser;
 
-    parser = new ArffParser();
+    parser = newParser();
     parser.parse(r);
+    initDataset(parser);
+  }
+
+  /**
+   * Performs the actual reading.
+   *
+   * @param source		the source of UTF-8 encoded blocks to read from
+   * @throws IOException	if reading fails
+   */
+  protected void parseDataset(ArffBlockSource source) throws IOException {
+    ArffParser	parser;
+
+    parser = newParser();
+    parser.parse(source);
+    initDataset(parser);
+  }
 
-    relationName = parser.getRelationName();
-    data         = parser.getData();
-    header       = parser.getHeader();
-    colNames     = parser.getColNames();
-    colTypes     = parser.getColTypes();
-    attLookUp    = parser.getAttLookUp();
+  /**
+   * Initializes the dataset from the parser.
+   *
+   * @param parser		the parser that read the data
+   */
+  protected void initDataset(ArffParser parser) {
+    if ((columns != null) && (columns != parser.getColumns()))
+      parser.release(columns);
+    if (indexedRows != null) {
+      try {
+	indexedRows.close();
+      }
+      catch (IOException e) {
+	// ignored
+      }
+      indexedRows = null;
+    }
+    relationName     = parser.getRelationName();
+    columns          = parser.getColumns();
+    sparseData       = parser.getSparseData();
+    sparseFeaturizer = null;
+    sparseLabelizer  = null;
+    rowFeaturizer    = null;
+    rowLabelizer     = null;
+    weights          = parser.getWeights().getWeights();
+    numRows          = parser.getNumRows();
+    data             = parser.getData();
+    header           = parser.getHeader();
+    colNames         = parser.getColNames();
+    colTypes         = parser.getColTypes();
+    attLookUp        = parser.getAttLookUp();
+    nominalValues    = parser.getNominalValues();
   }
 
   /** {@inheritDoc} */
   @Override
   public void prepare(Progress progress) throws IOException {
-    try (Reader reader = new InputStreamReader(getArffStream(), StandardCharsets.UTF_8)) {
-      parseDataset(reader);
+    Path	file;
+
+    file = getCacheableFile();
+    if (rowIndex) {
+      prepareIndexed(getLocalFile());
+    }
+    else if (file != null) {
+      prepareCached(file);
+    }
+    else {
+      try (ArffBlockSource source = getArffSource()) {
+	parseDataset(source);
+      }
     }
     prepareFeaturizers();
+    if (indexedRows == null) {
+      rowFeaturizer = new ArffRowFeaturizer(columns, attLookUp, getFeatures());
+      rowLabelizer  = new ArffRowFeaturizer(columns, attLookUp, getLabels());
+    }
+  }
+
+  /**
+   * Returns the ARFF file if it is a local, uncompressed one.
+   *
+   * @return			the file, null if not local or compressed
+   * @throws IOException	if the URL is invalid
+   */
+  protected Path getLocalFile() throws IOException {
+    if (!arffUrl.getProtocol().equals("file") || arffUrl.getFile().endsWith(".gz"))
+      return null;
+    try {
+      return Path.of(arffUrl.toURI());
+    }
+    catch (URISyntaxException e) {
+      throw new IOException("Invalid file URL: " + arffUrl, e);
+    }
+  }
+
+  /**
+   * Returns the local ARFF file if caching is enabled.
+   *
+   * @return			the file, null if not to cache
+   * @throws IOException	if the URL is invalid
+   */
+  protected Path getCacheableFile() throws IOException {
+    if (!cache)
+      return null;
+    return getLocalFile();
+  }
+
+  /**
+   * Returns the file for storing the row index of the ARFF file.
+   *
+   * @param file		the ARFF file
+   * @return			the index file
+   */
+  protected Path getIndexFile(Path file) {
+    if (cacheDir == null)
+      return ArffRowIndex.sidecar(file.resolveSibling(file.getFileName() + getShardSuffix()));
+    else
+      return cacheDir.resolve(file.getFileName() + "-" + Integer.toHexString(file.toAbsolutePath().normalize().hashCode()) + getShardSuffix() + ArffRowIndex.EXTENSION);
+  }
+
+  /**
+   * Scans the ARFF file for the byte offsets of the rows, which then get
+   * read and parsed on demand (see {@link ArffIndexedRows}). The rows are
+   * parsed into columns on the heap. Instance weights are not available.
+   * With caching enabled, the offsets get read from the index file instead
+   * of scanning (as long as the file and the row filters are unchanged),
+   * or written to it after scanning.
+   *
+   * @param file		the ARFF file, null if not a local, uncompressed one
+   * @throws IOException	if the file is not local or scanning fails
+   */
+  protected void prepareIndexed(Path file) throws IOException {
+    ArffParser		parser;
+    ArffReader		reader;
+    ArffRowIndex	index;
+    Path		indexFile;
+    String		key;
+
+    if (file == null)
+      throw new IOException("Row index requires a local, uncompressed ARFF file: " + arffUrl);
+
+    parser = newParser();
+    parser.setAllocator(null);
+    try (ArffBlockSource source = new ArffMappedBlockSource(file)) {
+      reader    = parser.newReader(new ArffTokenizer(source));
+      indexFile = null;
+      key       = null;
+      index     = null;
+      if (cache)
+	key = ArffRowIndex.key(file, parser);
+      if (key != null) {
+	indexFile = getIndexFile(file);
+	index     = ArffRowIndex.read(indexFile, key);
+	if ((index != null) && (index.getHeaderEnd() != reader.getTokenizer().getPosition()))
+	  index = null;
+      }
+      if (index == null) {
+	index = ArffRowIndex.scan(reader);
+	if (indexFile != null)
+	  index.write(indexFile, key);
+      }
+    }
+    initDataset(parser);
+    indexedRows = new ArffIndexedRows(file, index, parser, reader, ArffIndexedRows.DEFAULT_BLOCK_SIZE, rowIndexCacheSize);
+    numRows     = index.getNumRows();
+  }
+
+  /**
+   * Returns the cache file for the ARFF file.
+   *
+   * @param file		the ARFF file
+   * @return			the cache file
+   */
+  protected Path getCacheFile(Path file) {
+    if (cacheDir == null)
+      return ArffCache.sidecar(file.resolveSibling(file.getFileName() + getShardSuffix()));
+    else
+      return cacheDir.resolve(file.getFileName() + "-" + Integer.toHexString(file.toAbsolutePath().normalize().hashCode()) + getShardSuffix() + ArffCache.EXTENSION);
+  }
+
+  /**
+   * Returns the suffix for the names of cache and index files, which keeps
+   * the files of the shards of the same ARFF file apart.
+   *
+   * @return			the suffix, empty if not using shards
+   */
+  protected String getShardSuffix() {
+    if (numShards > 1)
+      return "-shard" + shardRank + "of" + numShards;
+    else
+      return "";
+  }
+
+  /**
+   * Initializes the dataset from the cache if it is up-to-date, otherwise
+   * parses the ARFF file and updates the cache. Failing to write the cache
+   * only gets logged. Without a key (i.e., a row filter without
+   * description), the cache doesn't get used.
+   *
+   * @param file		the ARFF file
+   * @throws IOException	if reading fails
+   */
+  protected void prepareCached(Path file) throws IOException {
+    ArffCache	arffCache;
+    ArffParser	parser;
+    String	key;
+
+    arffCache = new ArffCache(getCacheFile(file));
+    parser    = newParser();
+    try (ArffBlockSource source = getArffSource()) {
+      parser.parseHeader(source);
+    }
+    key = ArffCache.key(file, parser);
+    if ((key != null) && arffCache.read(parser, key)) {
+      initDataset(parser);
+      return;
+    }
+
+    parser.release(parser.getColumns());
+    parser = newParser();
+    try (ArffBlockSource source = getArffSource()) {
+      parser.parse(source);
+    }
+    if (key != null) {
+      try {
+	arffCache.write(parser, key);
+      }
+      catch (IOException e) {
+	LOGGER.warn("Failed to write cache: " + arffCache.getFile(), e);
+      }
+    }
+    initDataset(parser);
+  }
+
+  /**
+   * Returns the source to read the ARFF data from. Local, uncompressed files
+   * get memory-mapped (unless turned off), everything else gets streamed.
+   *
+   * @return			the source
+   * @throws IOException	if opening fails
+   */
+  protected ArffBlockSource getArffSource() throws IOException {
+    if (memoryMapped && arffUrl.getProtocol().equals("file") && !arffUrl.getFile().endsWith(".gz")) {
+      try {
+	return new ArffMappedBlockSource(Path.of(arffUrl.toURI()));
+      }
+      catch (URISyntaxException e) {
+	throw new IOException("Invalid file URL: " + arffUrl, e);
+      }
+    }
+    return new ArffStreamBlockSource(getArffStream(), newParser().getStreamBufferSize());
   }
 
   private InputStream getArffStream() throws IOException {
     if (arffUrl.getFile().endsWith(".gz"))
       return new GZIPInputStream(arffUrl.openStream());
     else
-      return new BufferedInputStream(arffUrl.openStream());
+      return arffUrl.openStream();
   }
 
   /**
@@ -153,6 +1067,73 @@ public class ArffDataset extends TabularDataset {
     return colTypes.get(attLookUp.get(name));
   }
 
+  /**
+   * Returns whether the data is stored in sparse format.
+   *
+   * @return true if sparse
+   */
+  public boolean isSparse() {
+    return (sparseData != null);
+  }
+
+  /**
+   * Returns the storage of the sparse data.
+   *
+   * @return the storage, null if not sparse
+   */
+  public ArffSparseData getSparseData() {
+    return sparseData;
+  }
+
+  /**
+   * Returns whether the rows have instance weights other than 1.
+   *
+   * @return true if weighted
+   */
+  public boolean isWeighted() {
+    return (weights != null);
+  }
+
+  /**
+   * Returns the instance weight of the row.
+   *
+   * @param rowIndex the row index
+   * @return the weight, 1 if not specified
+   */
+  public double getWeight(long rowIndex) {
+    if (weights == null)
+      return 1.0;
+    return weights[Math.toIntExact(rowIndex)];
+  }
+
+  /**
+   * Returns the instance weights of all rows.
+   *
+   * @return the weights, all 1 if the data has no weights
+   */
+  public double[] getWeights() {
+    double[]	result;
+
+    if (weights != null)
+      return weights;
+
+    result = new double[numRows];
+    Arrays.fill(result, 1.0);
+    return result;
+  }
+
+  /**
+   * Returns the values declared in the header for the specified NOMINAL column.
+   *
+   * @param name the name of the column to get the values for
+   * @return the values in the order they were declared, null if not a NOMINAL column or no dataset info available
+   */
+  public List<String> getNominalValues(String name) {
+    if (nominalValues == null)
+      return null;
+    return nominalValues.get(name);
+  }
+
   /**
    * Returns the dataset header information.
    * Information for each attribute in the sequence they appear: name, type, format (only date attributes).
@@ -226,10 +1207,44 @@ public class ArffDataset extends TabularDataset {
 
     protected URL arffUrl;
 
+    protected boolean memoryMapped;
+
+    protected int numThreads;
+
+    protected long minChunkSize;
+
+    protected boolean trustedInput;
+
+    protected boolean floatPrecision;
+
+    protected int shardRank;
+
+    protected int numShards;
+
+    protected boolean sparseBatches;
+
+    protected boolean gatherBatches;
+
+    protected boolean columnProjection;
+
     protected Set<String> classColumns;
 
     protected Set<String> ignoredColumns;
 
+    protected List<ArffRowFilter> rowFilters;
+
+    protected boolean cache;
+
+    protected Path cacheDir;
+
+    protected ArffBufferAllocator allocator;
+
+    protected boolean rowIndex;
+
+    protected int rowIndexCacheSize;
+
+    protected int prefetchThreads;
+
     protected ArffParser parser;
 
     protected boolean classAdded;
@@ -253,14 +1268,33 @@ public class ArffDataset extends TabularDataset {
       classAdded             = false;
       classColumns           = new HashSet<>();
       ignoredColumns         = new HashSet<>();
+      rowFilters             = new ArrayList<>();
+      cache                  = false;
+      cacheDir               = null;
+      allocator              = null;
+      rowIndex               = false;
+      rowIndexCacheSize      = ArffIndexedRows.DEFAULT_CACHE_SIZE;
+      prefetchThreads        = 0;
       allFeaturesAdded       = false;
       matchingFeaturesAdded  = new HashSet<>();
       stringColumnsAsNominal = false;
       dateColumnsAsNumeric   = false;
+      memoryMapped           = true;
+      numThreads             = 1;
+      minChunkSize           = ArffParser.DEFAULT_MIN_CHUNK_SIZE;
+      trustedInput           = false;
+      floatPrecision         = false;
+      shardRank              = 0;
+      numShards              = 1;
+      sparseBatches          = false;
+      gatherBatches          = true;
+      columnProjection       = true;
       structure              = new JsonObject();
       structure.add("options", new JsonObject());
       structure.get("options").getAsJsonObject().addProperty("dateColumnsAsNumeric", false);
       structure.get("options").getAsJsonObject().addProperty("stringColumnsAsNominal", false);
+      structure.get("options").getAsJsonObject().addProperty("trustedInput", false);
+      structure.get("options").getAsJsonObject().addProperty("floatPrecision", false);
       structure.add("features", new JsonArray());
       structure.add("labels", new JsonArray());
     }
@@ -306,6 +1340,233 @@ public class ArffDataset extends TabularDataset {
       return self();
     }
 
+    /**
+     * Sets whether to memory-map local, uncompressed ARFF files rather than
+     * streaming them. Enabled by default.
+     *
+     * @param memoryMapped true to memory-map
+     * @return this builder
+     */
+    public T optMemoryMapped(boolean memoryMapped) {
+      this.memoryMapped = memoryMapped;
+      return self();
+    }
+
+    /**
+     * Sets the number of threads to use for parsing the data section.
+     * The output is identical to sequential parsing.
+     *
+     * @param numThreads the number of threads, 1 for sequential parsing (default), less than 1 for all cores
+     * @return this builder
+     */
+    public T optNumThreads(int numThreads) {
+      this.numThreads = numThreads;
+      return self();
+    }
+
+    /**
+     * Sets the minimum size of the chunks that the data section gets split into
+     * when parsing with multiple threads.
+     *
+     * @param minChunkSize the size in bytes
+     * @return this builder
+     */
+    public T optMinChunkSize(long minChunkSize) {
+      this.minChunkSize = minChunkSize;
+      return self();
+    }
+
+    /**
+     * Sets whether the ARFF files are trusted to be clean, i.e., NUMERIC values
+     * get parsed without syntax checks (malformed values become NaN).
+     *
+     * @param trustedInput true if trusted
+     * @return this builder
+     */
+    public T optTrustedInput(boolean trustedInput) {
+      this.trustedInput = trustedInput;
+      structure.get("options").getAsJsonObject().addProperty("trustedInput", trustedInput);
+      return self();
+    }
+
+    /**
+     * Sets whether NUMERIC values only need float precision, i.e., get stored
+     * as float rather than double, halving the memory of these columns.
+     * Features are float anyway.
+     *
+     * @param floatPrecision true for float precision
+     * @return this builder
+     */
+    public T optFloatPrecision(boolean floatPrecision) {
+      this.floatPrecision = floatPrecision;
+      structure.get("options").getAsJsonObject().addProperty("floatPrecision", floatPrecision);
+      return self();
+    }
+
+    /**
+     * Sets the shard of the data to load, e.g., the rank of the worker and
+     * the world size in distributed training. Every row belongs to exactly
+     * one shard. Local, uncompressed files get split into byte ranges and
+     * only the range of the shard gets parsed, otherwise the rows get dealt
+     * out in turn (see {@link ArffShardBlockSource}).
+     *
+     * @param rank the index of the shard (0-based)
+     * @param numShards the number of shards, 1 for all the data
+     * @return this builder
+     */
+    public T optShard(int rank, int numShards) {
+      if ((numShards < 1) || (rank < 0) || (rank >= numShards))
+	throw new IllegalArgumentException("Invalid shard " + rank + " of " + numShards + "!");
+      this.shardRank = rank;
+      this.numShards = numShards;
+      return self();
+    }
+
+    /**
+     * Sets whether the batches of sparse data should contain the features as
+     * sparse (CSR) NDArrays rather than dense ones. Requires an engine that
+     * supports the CSR format. Has no effect on dense data.
+     *
+     * @param sparseBatches true for sparse batches
+     * @return this builder
+     */
+    public T optSparseBatches(boolean sparseBatches) {
+      this.sparseBatches = sparseBatches;
+      return self();
+    }
+
+    /**
+     * Sets whether to assemble batches as a whole, i.e., gathering the sorted
+     * rows into a single array for the features and one for the labels,
+     * rather than creating an NDArray per row and stacking them.
+     *
+     * @param gatherBatches true to assemble batches as a whole
+     * @return this builder
+     */
+    public T optGatherBatches(boolean gatherBatches) {
+      this.gatherBatches = gatherBatches;
+      return self();
+    }
+
+    /**
+     * Sets whether only the columns of the features and labels get loaded,
+     * skipping the cells of all other columns when parsing. Accessing the
+     * values of columns that are not loaded, e.g., via {@link ArffDataset#getCell(long, int)},
+     * results in an {@link IllegalStateException}.
+     *
+     * @param columnProjection true for loading only the required columns
+     * @return this builder
+     */
+    public T optColumnProjection(boolean columnProjection) {
+      this.columnProjection = columnProjection;
+      return self();
+    }
+
+    /**
+     * Sets whether to cache the parsed data of local, uncompressed files in
+     * a binary file next to the ARFF file (see {@link ArffCache}). When using
+     * the row index, the offsets of the rows get stored instead (see
+     * {@link ArffRowIndex}).
+     *
+     * @param cache true for caching
+     * @return this builder
+     */
+    public T optCache(boolean cache) {
+      this.cache = cache;
+      return self();
+    }
+
+    /**
+     * Caches the parsed data of local, uncompressed files in the specified
+     * directory rather than next to the ARFF file. Enables caching.
+     *
+     * @param cacheDir the directory for the cache files
+     * @return this builder
+     */
+    public T optCacheDir(Path cacheDir) {
+      this.cache    = true;
+      this.cacheDir = cacheDir;
+      return self();
+    }
+
+    /**
+     * Stores the dense columns outside the Java heap, using buffers from the
+     * allocator (e.g., {@link ArffMappedBufferAllocator} for memory-mapped
+     * temporary files).
+     *
+     * @param allocator the allocator, null for storing the columns on the heap
+     * @return this builder
+     */
+    public T optOffHeap(ArffBufferAllocator allocator) {
+      this.allocator = allocator;
+      return self();
+    }
+
+    /**
+     * Stores the dense columns in direct buffers outside the Java heap,
+     * failing the parsing when they would exceed the limit.
+     *
+     * @param limit the maximum number of bytes, less than 1 for no limit
+     * @return this builder
+     */
+    public T optOffHeapLimit(long limit) {
+      return optOffHeap(new ArffDirectBufferAllocator(limit));
+    }
+
+    /**
+     * Sets whether to access the rows of local, uncompressed files via an
+     * index of their byte offsets, rather than loading them. Preparing then
+     * only scans the file for the start of the rows, which get read and
+     * parsed on demand (see {@link ArffIndexedRows}).
+     *
+     * @param rowIndex true for using the row index
+     * @return this builder
+     */
+    public T optRowIndex(boolean rowIndex) {
+      this.rowIndex = rowIndex;
+      return self();
+    }
+
+    /**
+     * Sets the number of blocks of parsed rows to cache when using the row
+     * index. Enables the row index.
+     *
+     * @param rowIndexCacheSize the number of blocks
+     * @return this builder
+     */
+    public T optRowIndexCacheSize(int rowIndexCacheSize) {
+      this.rowIndex          = true;
+      this.rowIndexCacheSize = rowIndexCacheSize;
+      return self();
+    }
+
+    /**
+     * Sets the number of batches to assemble ahead and the number of threads
+     * to assemble them with, while the current batch gets trained on. Only
+     * applies when {@code getData} is called without an executor, e.g., via
+     * {@code getData(NDManager)}, otherwise the batches get assembled by the
+     * provided executor as usual.
+     *
+     * @param depth the number of batches to assemble ahead
+     * @param numThreads the number of threads, less than 1 for not prefetching
+     * @return this builder
+     */
+    public T optPrefetch(int depth, int numThreads) {
+      this.prefetchThreads = Math.max(0, numThreads);
+      return optPrefetchNumber(Math.max(1, depth));
+    }
+
+    /**
+     * Uses the {@link ArffWeightedSampler} with the specified batch size,
+     * i.e., rows get drawn in proportion to their instance weights.
+     *
+     * @param batchSize the number of rows per batch
+     * @return this builder
+     */
+    public T setWeightedSampling(int batchSize) {
+      return setSampling(new ArffWeightedSampler(batchSize));
+    }
+
     /**
      * Sets whether to treat DATE columns as NUMERIC ones.
      *
@@ -335,32 +1596,21 @@ public class ArffDataset extends TabularDataset {
      */
     protected ArffParser getParser() {
       InputStream	is;
-      InputStreamReader	ir;
 
       if (parser == null) {
 	if (arffUrl != null) {
 	  is = null;
-	  ir = null;
 	  try {
 	    if (arffUrl.getFile().endsWith(".gz"))
 	      is = new GZIPInputStream(arffUrl.openStream());
 	    else
-	      is = new BufferedInputStream(arffUrl.openStream());
-	    ir = new InputStreamReader(is, StandardCharsets.UTF_8);
+	      is = arffUrl.openStream();
 	    parser = new ArffParser();
-	    parser.parseHeader(ir);
+	    parser.parseHeader(is);
 	  }
 	  catch (Exception e) {
 	    // ignored
 	  }
-	  if (ir != null) {
-	    try {
-	      ir.close();
-	    }
-	    catch (Exception e) {
-	      // ignored
-	    }
-	  }
 	  if (is != null) {
 	    try {
 	      is.close();
@@ -428,6 +1678,21 @@ public class ArffDataset extends TabularDataset {
       return classColumns.contains(parser.getColNames().get(index));
     }
 
+    /**
+     * Returns the values declared in the header of the ARFF file for the NOMINAL column.
+     *
+     * @param colName		the name of the column
+     * @return			the values, null if not available
+     */
+    protected List<String> getNominalValues(String colName) {
+      ArffParser	parser;
+
+      parser = getParser();
+      if (parser == null)
+	return null;
+      return parser.getNominalValues().get(colName);
+    }
+
     /**
      * Adds the column as feature or label.
      * Skips ignored columns.
@@ -437,7 +1702,24 @@ public class ArffDataset extends TabularDataset {
      * @param isClassColumn 	whether the column is a class attribute
      */
     protected void addColumn(String colName, ArffAttributeType colType, boolean isClassColumn) {
+      addColumn(colName, colType, (colType == ArffAttributeType.NOMINAL) ? getNominalValues(colName) : null, isClassColumn);
+    }
+
+    /**
+     * Adds the column as feature or label.
+     * Skips ignored columns. The categorical featurizers of NOMINAL columns
+     * get initialized with the declared values (if available), i.e., no pass
+     * over the data is required and the one-hot encoding follows the
+     * order of the declaration (see {@link ArffNominalFeaturizer}).
+     *
+     * @param colName 		the name of the column
+     * @param colType 		the type of the column
+     * @param values 		the declared values of a NOMINAL column, null if not available
+     * @param isClassColumn 	whether the column is a class attribute
+     */
+    protected void addColumn(String colName, ArffAttributeType colType, List<String> values, boolean isClassColumn) {
       JsonObject	att;
+      JsonArray		array;
 
       if (ignoredColumns.contains(colName))
 	return;
@@ -445,6 +1727,12 @@ public class ArffDataset extends TabularDataset {
       att = new JsonObject();
       att.addProperty("name", colName);
       att.addProperty("type", colType.toString());
+      if (values != null) {
+	array = new JsonArray();
+	for (String value: values)
+	  array.add(value);
+	att.add("values", array);
+      }
 
       if (isClassColumn) {
 	switch (colType) {
@@ -459,7 +1747,10 @@ public class ArffDataset extends TabularDataset {
 	    }
 	    break;
 	  case NOMINAL:
-	    addCategoricalLabel(colName);
+	    if (values != null)
+	      addLabel(new Feature(colName, new ArffNominalFeaturizer(colName, values)));
+	    else
+	      addCategoricalLabel(colName);
 	    structure.get("labels").getAsJsonArray().add(att);
 	    break;
 	  case STRING:
@@ -485,7 +1776,10 @@ public class ArffDataset extends TabularDataset {
 	    }
 	    break;
 	  case NOMINAL:
-	    addCategoricalFeature(colName);
+	    if (values != null)
+	      addFeature(new Feature(colName, new ArffNominalFeaturizer(colName, values)));
+	    else
+	      addCategoricalFeature(colName);
 	    structure.get("features").getAsJsonArray().add(att);
 	    break;
 	  case STRING:
@@ -550,6 +1844,47 @@ public class ArffDataset extends TabularDataset {
       return self();
     }
 
+    /**
+     * Adds the filter(s) that rows must pass to get loaded.
+     * {@link ArffComparisonFilter}s get stored in the JSON structure, all
+     * other filters only by their class, as they cannot be restored.
+     *
+     * @param filters the filter(s) to add
+     * @return this builder
+     * @see #fromJson(JsonObject)
+     */
+    public T addRowFilter(ArffRowFilter... filters) {
+      JsonObject	json;
+
+      if (!structure.has("rowFilters"))
+	structure.add("rowFilters", new JsonArray());
+      for (ArffRowFilter filter: filters) {
+	if (filter instanceof ArffComparisonFilter) {
+	  json = ((ArffComparisonFilter) filter).toJson();
+	}
+	else {
+	  json = new JsonObject();
+	  json.addProperty("class", filter.getClass().getName());
+	}
+	structure.getAsJsonArray("rowFilters").add(json);
+	rowFilters.add(filter);
+      }
+      return self();
+    }
+
+    /**
+     * Adds a filter that keeps only rows whose value in the column compares
+     * to the constant, e.g., addRowFilter("site", "=", "A1").
+     *
+     * @param colName the name of the column
+     * @param operator the comparison operator (=, !=, &lt;, &lt;=, &gt;, &gt;=)
+     * @param value the constant to compare with, DATE values in the declared format
+     * @return this builder
+     */
+    public T addRowFilter(String colName, String operator, String value) {
+      return addRowFilter(new ArffComparisonFilter(colName, operator, value));
+    }
+
     /**
      * Ignores all column names that match the regexp(s).
      *
@@ -676,18 +2011,39 @@ public class ArffDataset extends TabularDataset {
       }
     }
 
+    /**
+     * Turns the JSON array into a list of strings.
+     *
+     * @param array	the array to convert
+     * @return		the list
+     */
+    protected List<String> toValues(JsonArray array) {
+      List<String>	result;
+      int		i;
+
+      result = new ArrayList<>();
+      for (i = 0; i < array.size(); i++)
+	result.add(array.get(i).getAsString());
+
+      return result;
+    }
+
     /**
      * Configures the builder based on the structure.
+     * Row filters other than {@link ArffComparisonFilter} cannot be restored.
      *
      * @param structure	the dataset structure to use
      * @return this builder
+     * @throws IllegalArgumentException	if the structure contains a row filter that cannot be restored
      * @see #toJson()
      */
     public T fromJson(JsonObject structure) {
       JsonObject	options;
       JsonArray		features;
       JsonArray		labels;
+      JsonArray		filters;
       JsonObject	feature;
+      JsonObject	filter;
       ArffAttributeType	type;
       int		i;
 
@@ -698,6 +2054,10 @@ public class ArffDataset extends TabularDataset {
 	  dateColumnsAsNumeric();
 	if (options.has("stringColumnsAsNominal") && options.get("stringColumnsAsNominal").getAsBoolean())
 	  stringColumnsAsNominal();
+	if (options.has("trustedInput"))
+	  optTrustedInput(options.get("trustedInput").getAsBoolean());
+	if (options.has("floatPrecision"))
+	  optFloatPrecision(options.get("floatPrecision").getAsBoolean());
       }
 
       // features
@@ -706,7 +2066,10 @@ public class ArffDataset extends TabularDataset {
 	for (i = 0; i < features.size(); i++) {
 	  feature = features.get(i).getAsJsonObject();
 	  type    = ArffAttributeType.valueOf(feature.get("type").getAsString());
-	  addColumn(feature.get("name").getAsString(), type, false);
+	  if (feature.has("values"))
+	    addColumn(feature.get("name").getAsString(), type, toValues(feature.getAsJsonArray("values")), false);
+	  else
+	    addColumn(feature.get("name").getAsString(), type, false);
 	}
       }
 
@@ -716,7 +2079,21 @@ public class ArffDataset extends TabularDataset {
 	for (i = 0; i < labels.size(); i++) {
 	  feature = labels.get(i).getAsJsonObject();
 	  type    = ArffAttributeType.valueOf(feature.get("type").getAsString());
-	  addColumn(feature.get("name").getAsString(), type, true);
+	  if (feature.has("values"))
+	    addColumn(feature.get("name").getAsString(), type, toValues(feature.getAsJsonArray("values")), true);
+	  else
+	    addColumn(feature.get("name").getAsString(), type, true);
+	}
+      }
+
+      // row filters
+      if (structure.has("rowFilters")) {
+	filters = structure.getAsJsonArray("rowFilters");
+	for (i = 0; i < filters.size(); i++) {
+	  filter = filters.get(i).getAsJsonObject();
+	  if (filter.has("class"))
+	    throw new IllegalArgumentException("Row filter cannot be restored from JSON, add it via addRowFilter: " + filter.get("class").getAsString());
+	  addRowFilter(ArffComparisonFilter.fromJson(filter));
 	}
       }
 
@@ -0,0 +1,120 @@
+/*
+ * ArffDateColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Stores the parsed values of a DATE column as epoch milliseconds.
+ * Missing values are only recorded in the bitmap.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDateColumn
+  extends ArffColumn {
+
+  protected long[] values;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   */
+  public ArffDateColumn(String name) {
+    super(name, ArffAttributeType.DATE);
+    values = new long[0];
+  }
+
+  /**
+   * Ensures that the column can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+    if (capacity > values.length)
+      values = Arrays.copyOf(values, Math.max(capacity, Math.max(INITIAL_CAPACITY, values.length * 2)));
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    values[size] = 0;
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., 0.
+   */
+  @Override
+  protected void addDefaultValue() {
+    values[size] = 0;
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    values[size] = row.getDate(col);
+  }
+
+  /**
+   * Appends the values of the other column at the current position.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    System.arraycopy(((ArffDateColumn) other).values, 0, values, size, other.size);
+  }
+
+  /**
+   * Returns the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the epoch milliseconds, undefined if missing
+   */
+  public long getDate(int row) {
+    return values[row];
+  }
+
+  /**
+   * Returns the value in the specified row as string, i.e., the epoch milliseconds.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    if (missing.get(row))
+      return null;
+    return Long.toString(values[row]);
+  }
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  @Override
+  public void compact() {
+    if (values.length > size)
+      values = Arrays.copyOf(values, size);
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffDateColumn(name);
+  }
+}
@@ -0,0 +1,406 @@
+/*
+ * ArffDateParser.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Parses the values of a DATE attribute into epoch milliseconds, using the
+ * {@link SimpleDateFormat} pattern from the attribute definition.
+ * <br>
+ * The ISO-8601 patterns yyyy-MM-dd, yyyy-MM-dd'T'HH:mm:ss and
+ * yyyy-MM-dd HH:mm:ss (optionally followed by .SSS) are parsed directly from
+ * the bytes. Other purely numeric patterns get translated into a
+ * {@link DateTimeFormatter}, which is immutable and shared between all copies
+ * of the parser. Anything these cannot handle (text fields, time zones,
+ * two-digit years, lenient values like a month of 13, dates before the
+ * Gregorian cutover, historical time zone offsets that java.time and
+ * java.util disagree on) is handed to a {@link SimpleDateFormat}, i.e., the
+ * results are the same as with the SimpleDateFormat. Dates are interpreted in
+ * the default time zone.
+ * <br>
+ * Recently parsed values are memoized in a small direct-mapped cache,
+ * which avoids parsing repeated timestamps again.
+ * <br>
+ * Instances are not thread-safe, use {@link #ArffDateParser(ArffDateParser)}
+ * to obtain a copy for another thread.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDateParser {
+
+  /** the number of slots in the cache (power of 2). */
+  public static final int CACHE_SIZE = 1024;
+
+  /** the earliest year that is parsed without SimpleDateFormat (Gregorian cutover). */
+  public static final int MIN_YEAR = 1583;
+
+  protected String format;
+  protected TimeZone timeZone;
+  protected ZoneId zone;
+  protected ZoneOffset fixedOffset;
+  protected int isoLength;
+  protected byte isoSeparator;
+  protected DateTimeFormatter formatter;
+  protected boolean formatterHasTime;
+  protected SimpleDateFormat fallback;
+  protected byte[][] cacheKeys;
+  protected int[] cacheLengths;
+  protected long[] cacheValues;
+
+  /**
+   * Initializes the parser.
+   *
+   * @param format	the SimpleDateFormat pattern
+   * @throws IllegalArgumentException	if the pattern is invalid
+   */
+  public ArffDateParser(String format) {
+    this.format = format;
+    fallback    = new SimpleDateFormat(format);
+    timeZone    = fallback.getTimeZone();
+    zone        = timeZone.toZoneId();
+    fixedOffset = zone.getRules().isFixedOffset() ? zone.getRules().getOffset(Instant.EPOCH) : null;
+    initISO();
+    initFormatter();
+    initCache();
+  }
+
+  /**
+   * Initializes the parser with the settings of the other one.
+   * The formatter gets shared, the cache does not.
+   *
+   * @param other	the parser to copy
+   */
+  public ArffDateParser(ArffDateParser other) {
+    format           = other.format;
+    timeZone         = other.timeZone;
+    zone             = other.zone;
+    fixedOffset      = other.fixedOffset;
+    isoLength        = other.isoLength;
+    isoSeparator     = other.isoSeparator;
+    formatter        = other.formatter;
+    formatterHasTime = other.formatterHasTime;
+    fallback         = null;
+    initCache();
+  }
+
+  /**
+   * Checks whether the pattern is one of the supported ISO-8601 ones.
+   */
+  protected void initISO() {
+    String	base;
+
+    isoLength    = -1;
+    isoSeparator = 0;
+    base         = format.endsWith(".SSS") ? format.substring(0, format.length() - 4) : format;
+    if (base.equals("yyyy-MM-dd'T'HH:mm:ss"))
+      isoSeparator = 'T';
+    else if (base.equals("yyyy-MM-dd HH:mm:ss"))
+      isoSeparator = ' ';
+    if (isoSeparator != 0)
+      isoLength = (base.length() < format.length()) ? 23 : 19;
+    else if (format.equals("yyyy-MM-dd"))
+      isoLength = 10;
+  }
+
+  /**
+   * Translates the pattern into a {@link DateTimeFormatter}, if it only
+   * consists of numeric fields that behave the same way as with
+   * {@link SimpleDateFormat} (yyyy, M, MM, d, dd, H, HH, m, mm, s, ss, SSS).
+   */
+  protected void initFormatter() {
+    StringBuilder	pattern;
+    boolean		hasTime;
+    int			i;
+    int			n;
+    char		c;
+
+    pattern = new StringBuilder();
+    hasTime = false;
+    i       = 0;
+    while (i < format.length()) {
+      c = format.charAt(i);
+      if (c == '\'') {
+	// copy quoted text, same syntax
+	n = format.indexOf('\'', i + 1);
+	if (n == -1)
+	  return;
+	pattern.append(format, i, n + 1);
+	i = n + 1;
+	continue;
+      }
+      if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))) {
+	n = i;
+	while ((n < format.length()) && (format.charAt(n) == c))
+	  n++;
+	n -= i;
+	switch (c) {
+	  case 'y':
+	    if (n != 4)
+	      return;
+	    pattern.append("uuuu");
+	    break;
+	  case 'M':
+	  case 'd':
+	    if (n > 2)
+	      return;
+	    pattern.append(format, i, i + n);
+	    break;
+	  case 'H':
+	  case 'm':
+	  case 's':
+	    if (n > 2)
+	      return;
+	    pattern.append(format, i, i + n);
+	    hasTime = true;
+	    break;
+	  case 'S':
+	    if (n != 3)
+	      return;
+	    pattern.append(format, i, i + n);
+	    hasTime = true;
+	    break;
+	  default:
+	    return;
+	}
+	i += n;
+	continue;
+      }
+      // reserved by DateTimeFormatter
+      if ("[]{}#".indexOf(c) > -1)
+	return;
+      pattern.append(c);
+      i++;
+    }
+
+    try {
+      formatter        = DateTimeFormatter.ofPattern(pattern.toString()).withResolverStyle(ResolverStyle.STRICT);
+      formatterHasTime = hasTime;
+    }
+    catch (IllegalArgumentException e) {
+      formatter = null;
+    }
+  }
+
+  /**
+   * Initializes the cache.
+   */
+  protected void initCache() {
+    cacheKeys    = new byte[CACHE_SIZE][];
+    cacheLengths = new int[CACHE_SIZE];
+    cacheValues  = new long[CACHE_SIZE];
+  }
+
+  /**
+   * Returns the SimpleDateFormat pattern.
+   *
+   * @return		the pattern
+   */
+  public String getFormat() {
+    return format;
+  }
+
+  /**
+   * Parses the date.
+   *
+   * @param s		the date string
+   * @return		the epoch milliseconds
+   * @throws ParseException	if parsing fails
+   */
+  public long parse(String s) throws ParseException {
+    byte[]	bytes;
+
+    bytes = s.getBytes(StandardCharsets.UTF_8);
+    return parse(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Parses the date.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the date
+   * @param length	the length of the date
+   * @return		the epoch milliseconds
+   * @throws ParseException	if parsing fails
+   */
+  public long parse(byte[] text, int offset, int length) throws ParseException {
+    int		hash;
+    int		slot;
+    int		i;
+    byte[]	key;
+    long	result;
+
+    hash = 0;
+    for (i = offset; i < offset + length; i++)
+      hash = 31 * hash + text[i];
+    slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+    key  = cacheKeys[slot];
+    if ((key != null) && (cacheLengths[slot] == length) && Arrays.equals(key, 0, length, text, offset, offset + length))
+      return cacheValues[slot];
+
+    result = parseUncached(text, offset, length);
+
+    if ((key == null) || (key.length < length)) {
+      key             = new byte[Math.max(length, 16)];
+      cacheKeys[slot] = key;
+    }
+    System.arraycopy(text, offset, key, 0, length);
+    cacheLengths[slot] = length;
+    cacheValues[slot]  = result;
+
+    return result;
+  }
+
+  /**
+   * Parses the date without consulting the cache.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the date
+   * @param length	the length of the date
+   * @return		the epoch milliseconds
+   * @throws ParseException	if parsing fails
+   */
+  protected long parseUncached(byte[] text, int offset, int length) throws ParseException {
+    String		s;
+    TemporalAccessor	parsed;
+    LocalDate		date;
+    LocalTime		time;
+
+    if (length == isoLength) {
+      try {
+	return parseISO(text, offset);
+      }
+      catch (DateTimeException e) {
+	// let the other parsers deal with it
+      }
+    }
+
+    s = new String(text, offset, length, StandardCharsets.UTF_8);
+    if (formatter != null) {
+      try {
+	parsed = formatter.parse(s);
+	date   = parsed.query(TemporalQueries.localDate());
+	time   = parsed.query(TemporalQueries.localTime());
+	if ((date != null) && (date.getYear() >= MIN_YEAR) && (!formatterHasTime || (time != null)))
+	  return toMillis(LocalDateTime.of(date, (time == null) ? LocalTime.MIDNIGHT : time));
+      }
+      catch (DateTimeException e) {
+	// let SimpleDateFormat deal with it
+      }
+    }
+
+    if (fallback == null)
+      fallback = new SimpleDateFormat(format);
+    return fallback.parse(s).getTime();
+  }
+
+  /**
+   * Parses an ISO-8601 date with fixed-width fields.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the date
+   * @return		the epoch milliseconds
+   * @throws DateTimeException	if not a valid date in the expected format
+   */
+  protected long parseISO(byte[] text, int offset) {
+    int		year;
+    int		month;
+    int		day;
+    int		hour;
+    int		minute;
+    int		second;
+    int		millis;
+
+    year   = digits(text, offset, 4);
+    month  = digits(text, offset + 5, 2);
+    day    = digits(text, offset + 8, 2);
+    hour   = 0;
+    minute = 0;
+    second = 0;
+    millis = 0;
+    if ((text[offset + 4] != '-') || (text[offset + 7] != '-') || (year < MIN_YEAR))
+      throw new DateTimeException("Not ISO-8601");
+    if (isoLength > 10) {
+      if ((text[offset + 10] != isoSeparator) || (text[offset + 13] != ':') || (text[offset + 16] != ':'))
+	throw new DateTimeException("Not ISO-8601");
+      hour   = digits(text, offset + 11, 2);
+      minute = digits(text, offset + 14, 2);
+      second = digits(text, offset + 17, 2);
+    }
+    if (isoLength > 19) {
+      if (text[offset + 19] != '.')
+	throw new DateTimeException("Not ISO-8601");
+      millis = digits(text, offset + 20, 3);
+    }
+
+    return toMillis(LocalDateTime.of(year, month, day, hour, minute, second, millis * 1000000));
+  }
+
+  /**
+   * Parses the fixed number of decimal digits.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the digits
+   * @param length	the number of digits
+   * @return		the value
+   * @throws DateTimeException	if a character is not a digit
+   */
+  protected static int digits(byte[] text, int offset, int length) {
+    int		result;
+    int		i;
+    int		d;
+
+    result = 0;
+    for (i = offset; i < offset + length; i++) {
+      d = text[i] - '0';
+      if ((d < 0) || (d > 9))
+	throw new DateTimeException("Not a digit");
+      result = result * 10 + d;
+    }
+
+    return result;
+  }
+
+  /**
+   * Converts the local date/time into epoch milliseconds, using the time zone.
+   * Ambiguous times (end of daylight saving) are resolved to the later
+   * offset, like {@link SimpleDateFormat} does.
+   *
+   * @param local	the local date/time
+   * @return		the epoch milliseconds
+   * @throws DateTimeException	if the offset differs from the one of the {@link TimeZone}
+   */
+  protected long toMillis(LocalDateTime local) {
+    ZonedDateTime	zoned;
+    long		result;
+
+    if (fixedOffset != null)
+      return local.toEpochSecond(fixedOffset) * 1000 + local.getNano() / 1000000;
+
+    zoned  = local.atZone(zone).withLaterOffsetAtOverlap();
+    result = zoned.toInstant().toEpochMilli();
+    if (timeZone.getOffset(result) != zoned.getOffset().getTotalSeconds() * 1000)
+      throw new DateTimeException("Time zone offset differs: " + local);
+
+    return result;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * ArffDictionary.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps the distinct values of a NOMINAL or STRING column to int codes, in
+ * the order they were encountered.
+ * <br>
+ * The codes get looked up with an open-addressing hash table directly on
+ * the UTF-8 bytes of the cells, i.e., a string only gets created the first
+ * time a value is encountered.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDictionary {
+
+  /** the code for values that are not present. */
+  public static final int NO_CODE = -1;
+
+  /** the initial size of the hash table (power of 2). */
+  public static final int INITIAL_TABLE_SIZE = 64;
+
+  protected List<String> values;
+  protected byte[] keys;
+  protected int keysLength;
+  protected int[] keyStart;
+  protected int[] keyLength;
+  protected int[] keyHash;
+  protected int[] table;
+
+  /**
+   * Initializes the dictionary.
+   */
+  public ArffDictionary() {
+    values     = new ArrayList<>();
+    keys       = new byte[256];
+    keysLength = 0;
+    keyStart   = new int[16];
+    keyLength  = new int[16];
+    keyHash    = new int[16];
+    table      = new int[INITIAL_TABLE_SIZE];
+    Arrays.fill(table, NO_CODE);
+  }
+
+  /**
+   * Computes the hash of the bytes.
+   *
+   * @param text	the buffer with the bytes
+   * @param offset	the start of the bytes
+   * @param length	the number of bytes
+   * @return		the hash
+   */
+  protected static int hash(byte[] text, int offset, int length) {
+    int		result;
+    int		i;
+
+    result = 0;
+    for (i = offset; i < offset + length; i++)
+      result = 31 * result + text[i];
+
+    return result ^ (result >>> 16);
+  }
+
+  /**
+   * Doubles the size of the hash table and re-inserts all codes.
+   */
+  protected void rehash() {
+    int		mask;
+    int		slot;
+    int		code;
+
+    table = new int[table.length * 2];
+    Arrays.fill(table, NO_CODE);
+    mask = table.length - 1;
+    for (code = 0; code < values.size(); code++) {
+      slot = keyHash[code] & mask;
+      while (table[slot] != NO_CODE)
+	slot = (slot + 1) & mask;
+      table[slot] = code;
+    }
+  }
+
+  /**
+   * Returns the code for the value, adding it to the dictionary if necessary.
+   *
+   * @param value	the value to get the code for
+   * @return		the code
+   */
+  public int encode(String value) {
+    byte[]	bytes;
+
+    bytes = value.getBytes(StandardCharsets.UTF_8);
+    return encode(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns the code for the UTF-8 encoded value, adding it to the dictionary
+   * if necessary.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the value
+   * @param length	the length of the value
+   * @return		the code
+   */
+  public int encode(byte[] text, int offset, int length) {
+    int		hash;
+    int		mask;
+    int		slot;
+    int		code;
+
+    hash = hash(text, offset, length);
+    mask = table.length - 1;
+    slot = hash & mask;
+    while ((code = table[slot]) != NO_CODE) {
+      if ((keyHash[code] == hash) && (keyLength[code] == length)
+	    && Arrays.equals(keys, keyStart[code], keyStart[code] + length, text, offset, offset + length))
+	return code;
+      slot = (slot + 1) & mask;
+    }
+
+    // new value
+    code = values.size();
+    if (code == keyStart.length) {
+      keyStart  = Arrays.copyOf(keyStart, code * 2);
+      keyLength = Arrays.copyOf(keyLength, code * 2);
+      keyHash   = Arrays.copyOf(keyHash, code * 2);
+    }
+    if (keysLength + length > keys.length)
+      keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+    System.arraycopy(text, offset, keys, keysLength, length);
+    keyStart[code]  = keysLength;
+    keyLength[code] = length;
+    keyHash[code]   = hash;
+    keysLength     += length;
+    values.add(new String(text, offset, length, StandardCharsets.UTF_8));
+    table[slot] = code;
+    if (values.size() * 2 > table.length)
+      rehash();
+
+    return code;
+  }
+
+  /**
+   * Adds all the values of the other dictionary (if necessary) and returns
+   * the codes of its values in this dictionary.
+   *
+   * @param other	the dictionary to merge
+   * @return		the mapping from the other codes to the codes of this dictionary
+   */
+  public int[] merge(ArffDictionary other) {
+    int[]	result;
+    int		i;
+
+    result = new int[other.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = encode(other.keys, other.keyStart[i], other.keyLength[i]);
+
+    return result;
+  }
+
+  /**
+   * Returns the number of distinct values.
+   *
+   * @return		the number of values
+   */
+  public int size() {
+    return values.size();
+  }
+
+  /**
+   * Returns the value for the code.
+   *
+   * @param code	the code of the value
+   * @return		the value
+   */
+  public String get(int code) {
+    return values.get(code);
+  }
+
+  /**
+   * Returns the distinct values, in the order they were encountered.
+   *
+   * @return		the values
+   */
+  public List<String> getValues() {
+    return Collections.unmodifiableList(values);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * ArffDictionaryColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the values of a NOMINAL or STRING column as int codes into a
+ * dictionary of the distinct values, i.e., each distinct value is only
+ * stored once. Missing values are stored as -1 (and recorded in the bitmap).
+ * <br>
+ * The codes get looked up by the {@link ArffDictionary} directly on the UTF-8
+ * bytes of the cells, i.e., a string only gets created the first time a value
+ * is encountered.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDictionaryColumn
+  extends ArffColumn {
+
+  /** the code for missing values. */
+  public static final int MISSING_CODE = ArffDictionary.NO_CODE;
+
+  protected int[] codes;
+  protected ArffDictionary dictionary;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   */
+  public ArffDictionaryColumn(String name, ArffAttributeType type) {
+    super(name, type);
+    codes      = new int[0];
+    dictionary = new ArffDictionary();
+  }
+
+  /**
+   * Returns the code for the value, adding it to the dictionary if necessary.
+   *
+   * @param value	the value to get the code for
+   * @return		the code
+   */
+  public int encode(String value) {
+    return dictionary.encode(value);
+  }
+
+  /**
+   * Returns the code for the UTF-8 encoded value, adding it to the dictionary
+   * if necessary.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the value
+   * @param length	the length of the value
+   * @return		the code
+   */
+  public int encode(byte[] text, int offset, int length) {
+    return dictionary.encode(text, offset, length);
+  }
+
+  /**
+   * Ensures that the column can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+    if (capacity > codes.length)
+      codes = Arrays.copyOf(codes, Math.max(capacity, Math.max(INITIAL_CAPACITY, codes.length * 2)));
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    codes[size] = MISSING_CODE;
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., the first value
+   * for NOMINAL columns and the empty string for STRING ones.
+   */
+  @Override
+  protected void addDefaultValue() {
+    if ((type == ArffAttributeType.NOMINAL) && (dictionary.size() > 0))
+      codes[size] = 0;
+    else
+      codes[size] = dictionary.encode("");
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    codes[size] = dictionary.encode(row.getText(), row.getStart(col), row.getLength(col));
+  }
+
+  /**
+   * Appends the values of the other column at the current position,
+   * translating its codes into the ones of this dictionary.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    ArffDictionaryColumn	dict;
+    int[]			mapping;
+    int				i;
+    int				code;
+
+    dict    = (ArffDictionaryColumn) other;
+    mapping = dictionary.merge(dict.dictionary);
+    for (i = 0; i < other.size; i++) {
+      code            = dict.codes[i];
+      codes[size + i] = (code == MISSING_CODE) ? MISSING_CODE : mapping[code];
+    }
+  }
+
+  /**
+   * Returns the code of the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the index in the dictionary, -1 if missing
+   * @see #getDictionary()
+   */
+  public int getCode(int row) {
+    return codes[row];
+  }
+
+  /**
+   * Returns the distinct values, in the order they were encountered.
+   *
+   * @return		the values
+   */
+  public List<String> getDictionary() {
+    return dictionary.getValues();
+  }
+
+  /**
+   * Returns the value in the specified row as string.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    int		code;
+
+    code = codes[row];
+    if (code == MISSING_CODE)
+      return null;
+    return dictionary.get(code);
+  }
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  @Override
+  public void compact() {
+    if (codes.length > size)
+      codes = Arrays.copyOf(codes, size);
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffDictionaryColumn(name, type);
+  }
+}
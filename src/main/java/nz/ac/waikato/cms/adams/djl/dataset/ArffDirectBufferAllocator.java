@@ -0,0 +1,113 @@
+/*
+ * ArffDirectBufferAllocator.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates direct buffers, i.e., memory outside the Java heap.
+ * The accounting is thread-safe, as the chunks get parsed in parallel.
+ * <br>
+ * The memory of direct buffers gets freed by the garbage collector once the
+ * buffers are no longer referenced, {@link #release(ByteBuffer)} only updates
+ * the accounting. The JVM option <code>-XX:MaxDirectMemorySize</code> should
+ * therefore be at least the limit.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffDirectBufferAllocator
+  implements ArffBufferAllocator {
+
+  protected long limit;
+  protected AtomicLong allocated;
+
+  /**
+   * Initializes the allocator without a limit.
+   */
+  public ArffDirectBufferAllocator() {
+    this(0);
+  }
+
+  /**
+   * Initializes the allocator.
+   *
+   * @param limit	the maximum number of bytes, less than 1 for no limit
+   */
+  public ArffDirectBufferAllocator(long limit) {
+    this.limit = limit;
+    allocated  = new AtomicLong();
+  }
+
+  /**
+   * Allocates a buffer with little endian byte order.
+   *
+   * @param capacity	the capacity in bytes
+   * @return		the buffer
+   * @throws IllegalStateException	if the allocation would exceed the limit
+   */
+  @Override
+  public ByteBuffer allocate(int capacity) {
+    long	current;
+
+    do {
+      current = allocated.get();
+      if ((limit > 0) && (current + capacity > limit))
+	throw new IllegalStateException("Allocating " + capacity + " bytes exceeds off-heap limit of " + limit + " bytes (allocated: " + current + ")");
+    }
+    while (!allocated.compareAndSet(current, current + capacity));
+
+    try {
+      return create(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    catch (RuntimeException | Error e) {
+      allocated.addAndGet(-capacity);
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the buffer.
+   *
+   * @param capacity	the capacity in bytes
+   * @return		the buffer
+   */
+  protected ByteBuffer create(int capacity) {
+    return ByteBuffer.allocateDirect(capacity);
+  }
+
+  /**
+   * Releases a buffer that is no longer used. Only updates the accounting,
+   * the memory gets freed by the garbage collector.
+   *
+   * @param buffer	the buffer to release
+   */
+  @Override
+  public void release(ByteBuffer buffer) {
+    allocated.addAndGet(-buffer.capacity());
+  }
+
+  /**
+   * Returns the number of bytes currently allocated.
+   *
+   * @return		the number of bytes
+   */
+  @Override
+  public long getAllocated() {
+    return allocated.get();
+  }
+
+  /**
+   * Returns the maximum number of bytes that can be allocated.
+   *
+   * @return		the limit, less than 1 for no limit
+   */
+  @Override
+  public long getLimit() {
+    return limit;
+  }
+}
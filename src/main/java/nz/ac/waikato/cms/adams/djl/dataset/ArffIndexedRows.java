@@ -0,0 +1,234 @@
+/*
+ * ArffIndexedRows.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides random access to the rows of an ARFF file without loading the
+ * data, using the byte offsets of the rows (see {@link ArffRowIndex}).
+ * Rows get read in blocks of consecutive rows, via positional reads from the
+ * file, and parsed into columns. The most recently used blocks are kept in
+ * a cache, i.e., reading rows in (roughly) sorted order only parses each
+ * block once. Safe to use from multiple threads.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffIndexedRows
+  implements Closeable {
+
+  /** the default number of rows per block. */
+  public static final int DEFAULT_BLOCK_SIZE = 256;
+
+  /** the default number of blocks to cache. */
+  public static final int DEFAULT_CACHE_SIZE = 64;
+
+  /**
+   * The parsed rows of a block.
+   */
+  public static class Block {
+
+    protected int start;
+
+    protected List<ArffColumn> columns;
+
+    protected volatile ArffRowFeaturizer rowFeaturizer;
+
+    protected volatile ArffRowFeaturizer rowLabelizer;
+
+    /**
+     * Initializes the block.
+     *
+     * @param start	the index of the first row
+     * @param columns	the parsed rows
+     */
+    public Block(int start, List<ArffColumn> columns) {
+      this.start   = start;
+      this.columns = columns;
+    }
+
+    /**
+     * Returns the index of the first row.
+     *
+     * @return		the index
+     */
+    public int getStart() {
+      return start;
+    }
+
+    /**
+     * Returns the columns with the parsed rows.
+     *
+     * @return		the columns
+     */
+    public List<ArffColumn> getColumns() {
+      return columns;
+    }
+  }
+
+  protected ArffRowIndex index;
+  protected ArffParser parser;
+  protected ArffReader header;
+  protected FileChannel channel;
+  protected int blockSize;
+  protected Map<Integer,Block> cache;
+
+  /**
+   * Initializes the access to the rows.
+   *
+   * @param file		the ARFF file
+   * @param index		the offsets of the rows
+   * @param parser		the parser that created the header reader, for creating the columns
+   * @param header		the reader that has read the header, with the row filters and the columns to tokenize
+   * @param blockSize		the number of rows per block
+   * @param cacheSize		the maximum number of blocks to cache
+   * @throws IOException	if opening the file fails
+   */
+  public ArffIndexedRows(Path file, ArffRowIndex index, ArffParser parser, ArffReader header, int blockSize, int cacheSize) throws IOException {
+    this.index     = index;
+    this.parser    = parser;
+    this.header    = header;
+    this.blockSize = Math.max(1, blockSize);
+    this.channel   = FileChannel.open(file, StandardOpenOption.READ);
+    this.cache     = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer,Block> eldest) {
+	return size() > Math.max(1, cacheSize);
+      }
+    };
+  }
+
+  /**
+   * Returns the offsets of the rows.
+   *
+   * @return		the index
+   */
+  public ArffRowIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int size() {
+    return index.getNumRows();
+  }
+
+  /**
+   * Returns the number of rows per block.
+   *
+   * @return		the number of rows
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Returns the block containing the row, reading it if not cached.
+   *
+   * @param row		the row index
+   * @return		the block
+   * @throws IOException	if reading the block fails
+   */
+  public Block getBlock(int row) throws IOException {
+    Block	result;
+    int		number;
+
+    number = row / blockSize;
+    synchronized (cache) {
+      result = cache.get(number);
+    }
+    if (result == null) {
+      result = readBlock(number);
+      synchronized (cache) {
+	cache.put(number, result);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Reads and parses the rows of the block.
+   *
+   * @param number	the number of the block
+   * @return		the block
+   * @throws IOException	if reading or parsing fails
+   */
+  protected Block readBlock(int number) throws IOException {
+    List<ArffColumn>	columns;
+    ArffReader		reader;
+    ArffRow		row;
+    ByteBuffer		buffer;
+    long		start;
+    long		end;
+    int			first;
+    int			last;
+    int			count;
+
+    first  = number * blockSize;
+    last   = Math.min(first + blockSize, index.getNumRows());
+    start  = index.getOffset(first);
+    end    = index.getOffset(last);
+    buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) == -1)
+	throw new IOException("Unexpected end of file at offset " + (start + buffer.position()) + ", file changed?");
+    }
+    buffer.flip();
+
+    reader  = new ArffReader(header, new ArffBufferBlockSource(buffer, start));
+    row     = reader.newRow();
+    columns = parser.newColumns();
+    count   = 0;
+    while ((count < last - first) && reader.next(row)) {
+      parser.add(columns, row);
+      count++;
+    }
+    if (count < last - first)
+      throw new IOException("Expected " + (last - first) + " rows at offset " + start + " but found " + count + ", file changed?");
+
+    return new Block(first, columns);
+  }
+
+  /**
+   * Returns the value of the cell as string.
+   *
+   * @param row		the row index
+   * @param col		the column index
+   * @return		the value, null if missing
+   * @throws IOException	if reading the block fails
+   */
+  public String getString(int row, int col) throws IOException {
+    Block	block;
+
+    block = getBlock(row);
+    return block.getColumns().get(col).getString(row - block.getStart());
+  }
+
+  /**
+   * Closes the file and empties the cache.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (cache) {
+      cache.clear();
+    }
+    channel.close();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * ArffMappedBlockSource.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-maps an uncompressed file chunk by chunk, handing the mapped pages
+ * straight to the tokenizer. Each chunk gets cut back to its last newline,
+ * the next chunk starts right after it. Files larger than 2GB are therefore
+ * no problem, only a single line cannot exceed 2GB.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffMappedBlockSource
+  implements ArffBlockSource {
+
+  /** the default size of a chunk to map. */
+  public static final long DEFAULT_CHUNK_SIZE = 128L * 1024 * 1024;
+
+  protected FileChannel channel;
+  protected long size;
+  protected long position;
+  protected long chunkSize;
+  protected long blockOffset;
+
+  /**
+   * Initializes the source with the default chunk size.
+   *
+   * @param file	the file to map
+   * @throws IOException	if opening fails
+   */
+  public ArffMappedBlockSource(Path file) throws IOException {
+    this(file, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Initializes the source.
+   *
+   * @param file	the file to map
+   * @param chunkSize	the size of the chunks to map
+   * @throws IOException	if opening fails
+   */
+  public ArffMappedBlockSource(Path file, long chunkSize) throws IOException {
+    this.chunkSize = Math.max(1024, Math.min(chunkSize, Integer.MAX_VALUE));
+    channel        = FileChannel.open(file, StandardOpenOption.READ);
+    size           = channel.size();
+    position       = 0;
+    blockOffset    = 0;
+  }
+
+  /**
+   * Returns the next block of complete lines, from position to limit.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if mapping fails or a line is too long
+   */
+  @Override
+  public ByteBuffer nextBlock() throws IOException {
+    MappedByteBuffer	result;
+    long		len;
+    int			i;
+
+    if (position >= size)
+      return null;
+
+    len = Math.min(chunkSize, size - position);
+    while (true) {
+      result = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+      if (position + len == size) {
+	blockOffset = position;
+	position    = size;
+	return result;
+      }
+      for (i = (int) len - 1; i >= 0; i--) {
+	if (result.get(i) == '\n') {
+	  result.limit(i + 1);
+	  blockOffset = position;
+	  position   += i + 1;
+	  return result;
+	}
+      }
+      if (len == Integer.MAX_VALUE)
+	throw new IOException("Line starting at offset " + position + " exceeds maximum block size!");
+      len = Math.min(Math.min(len * 2, Integer.MAX_VALUE), size - position);
+    }
+  }
+
+  /**
+   * Returns the absolute offset in the file of the position of the last block.
+   *
+   * @return		the offset
+   */
+  @Override
+  public long getBlockOffset() {
+    return blockOffset;
+  }
+
+  /**
+   * Returns the size of the file.
+   *
+   * @return		the size in bytes
+   */
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Closes the file channel. Blocks that were mapped stay valid.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
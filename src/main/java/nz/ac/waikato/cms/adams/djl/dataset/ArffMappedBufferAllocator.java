@@ -0,0 +1,99 @@
+/*
+ * ArffMappedBufferAllocator.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocates buffers that are memory-mapped temporary files, i.e., the
+ * operating system can page the data out to disk rather than it counting
+ * against the memory of the process. The mappings stay valid until the
+ * buffers get garbage collected, {@link #release(ByteBuffer)} only updates
+ * the accounting.
+ * <br>
+ * The files get deleted right after mapping them, which frees the disk
+ * space once the buffers are gone. Operating systems that don't allow
+ * deleting mapped files (e.g., Windows) keep the files until the JVM exits,
+ * when they get deleted if they are no longer mapped.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffMappedBufferAllocator
+  extends ArffDirectBufferAllocator {
+
+  protected Path dir;
+
+  /**
+   * Initializes the allocator without a limit.
+   *
+   * @param dir		the directory for the temporary files
+   */
+  public ArffMappedBufferAllocator(Path dir) {
+    this(dir, 0);
+  }
+
+  /**
+   * Initializes the allocator.
+   *
+   * @param dir		the directory for the temporary files
+   * @param limit	the maximum number of bytes, less than 1 for no limit
+   */
+  public ArffMappedBufferAllocator(Path dir, long limit) {
+    super(limit);
+    this.dir = dir;
+  }
+
+  /**
+   * Returns the directory for the temporary files.
+   *
+   * @return		the directory
+   */
+  public Path getDir() {
+    return dir;
+  }
+
+  /**
+   * Creates the buffer by mapping a temporary file.
+   *
+   * @param capacity	the capacity in bytes
+   * @return		the buffer
+   * @throws UncheckedIOException	if the file can't be created or mapped
+   */
+  @Override
+  protected ByteBuffer create(int capacity) {
+    Path	file;
+    ByteBuffer	result;
+
+    try {
+      file = Files.createTempFile(dir, "arff-", ".buf");
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+	result = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      }
+      catch (IOException e) {
+	Files.deleteIfExists(file);
+	throw e;
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("Failed to map " + capacity + " bytes in: " + dir, e);
+    }
+
+    try {
+      Files.delete(file);
+    }
+    catch (IOException e) {
+      file.toFile().deleteOnExit();
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * ArffNominalFeaturizer.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.basicdataset.tabular.utils.DynamicBuffer;
+import ai.djl.basicdataset.tabular.utils.Featurizer;
+import ai.djl.modality.Classifications;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-hot encodes the values of a NOMINAL attribute, using the labels in
+ * the order they were declared in the header. Missing values get encoded
+ * as all-zero vector, values that were not declared result in an
+ * {@link IllegalArgumentException}.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffNominalFeaturizer
+  implements Featurizer {
+
+  protected String name;
+  protected List<String> values;
+  protected Map<String,Integer> indices;
+
+  /**
+   * Initializes the featurizer.
+   *
+   * @param name	the name of the attribute
+   * @param values	the declared labels
+   */
+  public ArffNominalFeaturizer(String name, List<String> values) {
+    int		i;
+
+    this.name   = name;
+    this.values = new ArrayList<>(values);
+    indices     = new HashMap<>();
+    for (i = 0; i < values.size(); i++)
+      indices.put(values.get(i), i);
+  }
+
+  /**
+   * Returns the name of the attribute.
+   *
+   * @return		the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the declared labels.
+   *
+   * @return		the labels
+   */
+  public List<String> getValues() {
+    return values;
+  }
+
+  /**
+   * Puts the one-hot encoding of the value in the buffer.
+   *
+   * @param buf		the buffer to add the encoding to
+   * @param input	the value, null if missing
+   * @throws IllegalArgumentException	if the value was not declared
+   */
+  @Override
+  public void featurize(DynamicBuffer buf, String input) {
+    Integer	index;
+    int		i;
+
+    if (input == null) {
+      index = -1;
+    }
+    else {
+      index = indices.get(input);
+      if (index == null)
+	throw new IllegalArgumentException("Value '" + input + "' not declared for attribute '" + name + "'!");
+    }
+
+    for (i = 0; i < values.size(); i++)
+      buf.put((i == index) ? 1.0f : 0.0f);
+  }
+
+  /**
+   * Returns the number of values that the encoding requires.
+   *
+   * @return		the number of labels
+   */
+  @Override
+  public int dataRequired() {
+    return values.size();
+  }
+
+  /**
+   * Turns the encoding back into the probabilities of the labels.
+   *
+   * @param data	the encoding
+   * @return		the {@link Classifications}
+   */
+  @Override
+  public Object deFeaturize(float[] data) {
+    List<Double>	probs;
+
+    probs = new ArrayList<>(data.length);
+    for (float d: data)
+      probs.add((double) d);
+
+    return new Classifications(values, probs);
+  }
+}
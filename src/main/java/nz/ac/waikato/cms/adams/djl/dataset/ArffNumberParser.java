@@ -0,0 +1,447 @@
+/*
+ * ArffNumberParser.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses NUMERIC values directly from the UTF-8 bytes of a cell, either as
+ * double or float (correctly rounded in both cases).
+ * <br>
+ * The decimal digits get collected into a 64-bit mantissa (up to 19
+ * significant digits) and a power of ten. If the mantissa fits into the
+ * precision of the target type and the power of ten is exact as well, the
+ * value is computed with a single multiplication/division (Clinger).
+ * Otherwise, the Eisel-Lemire algorithm is used, which multiplies the mantissa
+ * with a 128-bit approximation of the power of five. In the rare cases that
+ * this cannot be rounded correctly (ambiguous halfway cases, more than 19
+ * significant digits that affect the result), or for anything that is not a
+ * plain decimal number (e.g., hexadecimal notation), the parser falls back
+ * to {@link Double#parseDouble(String)} or {@link Float#parseFloat(String)}.
+ * <br>
+ * The accepted syntax is the same as the one of {@link Double#parseDouble(String)},
+ * i.e., including a leading '+', exponents, "NaN" and "Infinity".
+ * <br>
+ * See: Daniel Lemire, "Number Parsing at a Gigabyte per Second",
+ * Software: Practice and Experience 51 (8), 2021.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffNumberParser {
+
+  /** the powers of ten that can be represented exactly as double. */
+  protected static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+  };
+
+  /** the powers of ten that can be represented exactly as float. */
+  protected static final float[] FLOAT_POWERS_OF_TEN = {
+    1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f,
+  };
+
+  /** the maximum number of significant digits to collect in the mantissa. */
+  protected static final int MAX_DIGITS = 19;
+
+  /** the smallest power of five in the table. */
+  protected static final int MIN_POWER_OF_FIVE = -342;
+
+  /** the largest power of five in the table. */
+  protected static final int MAX_POWER_OF_FIVE = 308;
+
+  /** the normalized 128-bit powers of five (high, low), from 5^-342 to 5^308. */
+  protected static final long[] POWERS_OF_FIVE = computePowersOfFive();
+
+  /**
+   * Computes the normalized 128-bit approximations of the powers of five,
+   * truncated for positive powers and rounded up for negative ones.
+   *
+   * @return		the table with high/low pairs
+   */
+  protected static long[] computePowersOfFive() {
+    long[]	result;
+    int		q;
+    int		i;
+    int		z;
+    BigInteger	power;
+    BigInteger	mask;
+
+    result = new long[2 * (MAX_POWER_OF_FIVE - MIN_POWER_OF_FIVE + 1)];
+    mask   = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    i      = 0;
+    for (q = MIN_POWER_OF_FIVE; q <= MAX_POWER_OF_FIVE; q++) {
+      if (q >= 0) {
+	power = BigInteger.valueOf(5).pow(q);
+	power = power.shiftLeft(128 - power.bitLength());
+      }
+      else {
+	power = BigInteger.valueOf(5).pow(-q);
+	z     = power.subtract(BigInteger.ONE).bitLength();
+	if (q >= -27)
+	  power = BigInteger.ONE.shiftLeft(z + 127).divide(power).add(BigInteger.ONE);
+	else
+	  power = BigInteger.ONE.shiftLeft(2 * z + 128).divide(power).add(BigInteger.ONE);
+	if (power.bitLength() > 128)
+	  power = power.shiftRight(power.bitLength() - 128);
+      }
+      result[i++] = power.shiftRight(64).longValue();
+      result[i++] = power.and(mask).longValue();
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses the number as double.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the number
+   * @param length	the length of the number
+   * @param trusted	whether to skip syntax checks, i.e., trailing characters
+   *                    get ignored and malformed numbers result in NaN
+   * @return		the parsed value
+   * @throws NumberFormatException	if not trusted and not a valid number
+   */
+  public static double parseDouble(byte[] text, int offset, int length, boolean trusted) {
+    return parse(text, offset, length, trusted, false);
+  }
+
+  /**
+   * Parses the number as float. The result is rounded directly from the
+   * decimal representation, i.e., it can differ from casting the result of
+   * {@link #parseDouble(byte[], int, int, boolean)} to float.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the number
+   * @param length	the length of the number
+   * @param trusted	whether to skip syntax checks, i.e., trailing characters
+   *                    get ignored and malformed numbers result in NaN
+   * @return		the parsed value
+   * @throws NumberFormatException	if not trusted and not a valid number
+   */
+  public static float parseFloat(byte[] text, int offset, int length, boolean trusted) {
+    return (float) parse(text, offset, length, trusted, true);
+  }
+
+  /**
+   * Turns the stored double into the float that parsing its string
+   * representation gives, i.e., <code>Float.parseFloat(Double.toString(value))</code>.
+   * Casting can only differ from that if the double lies exactly halfway
+   * between two floats (rounding twice), in which case the string gets parsed.
+   *
+   * @param value	the value to convert
+   * @return		the float
+   */
+  public static float toFloat(double value) {
+    float	result;
+    float	next;
+
+    result = (float) value;
+    if ((result == value) || Double.isNaN(value))
+      return result;
+    if (!Float.isInfinite(result)) {
+      next = Math.nextAfter(result, value);
+      if (value != ((double) result + (double) next) / 2)
+	return result;
+    }
+
+    return Float.parseFloat(Double.toString(value));
+  }
+
+  /**
+   * Parses the number.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the number
+   * @param length	the length of the number
+   * @param trusted	whether to skip syntax checks
+   * @param single	whether to round to float rather than double
+   * @return		the parsed value
+   * @throws NumberFormatException	if not trusted and not a valid number
+   */
+  protected static double parse(byte[] text, int offset, int length, boolean trusted, boolean single) {
+    int		i;
+    int		end;
+    boolean	negative;
+    boolean	truncated;
+    long	mantissa;
+    int		exponent;
+    int		exp;
+    boolean	expNegative;
+    int		digits;
+    int		significant;
+    byte	b;
+    long	bits;
+    double	result;
+
+    i           = offset;
+    end         = offset + length;
+    negative    = false;
+    truncated   = false;
+    mantissa    = 0;
+    exponent    = 0;
+    digits      = 0;
+    significant = 0;
+
+    if ((i < end) && ((text[i] == '-') || (text[i] == '+'))) {
+      negative = (text[i] == '-');
+      i++;
+    }
+
+    // integer part
+    while ((i < end) && ((b = text[i]) >= '0') && (b <= '9')) {
+      if (significant < MAX_DIGITS) {
+	mantissa = mantissa * 10 + (b - '0');
+	if (mantissa != 0)
+	  significant++;
+      }
+      else {
+	exponent++;
+	if (b != '0')
+	  truncated = true;
+      }
+      digits++;
+      i++;
+    }
+
+    // fraction
+    if ((i < end) && (text[i] == '.')) {
+      i++;
+      while ((i < end) && ((b = text[i]) >= '0') && (b <= '9')) {
+	if (significant < MAX_DIGITS) {
+	  mantissa = mantissa * 10 + (b - '0');
+	  exponent--;
+	  if (mantissa != 0)
+	    significant++;
+	}
+	else if (b != '0') {
+	  truncated = true;
+	}
+	digits++;
+	i++;
+      }
+    }
+
+    // NaN, Infinity, etc
+    if (digits == 0)
+      return parseSpecial(text, i, end, negative, offset, length, trusted, single);
+
+    // exponent
+    if ((i < end) && ((text[i] == 'e') || (text[i] == 'E'))) {
+      i++;
+      expNegative = false;
+      if ((i < end) && ((text[i] == '-') || (text[i] == '+'))) {
+	expNegative = (text[i] == '-');
+	i++;
+      }
+      if ((i == end) || (text[i] < '0') || (text[i] > '9'))
+	return fallback(text, offset, length, trusted, single);
+      exp = 0;
+      while ((i < end) && ((b = text[i]) >= '0') && (b <= '9')) {
+	if (exp < 10000)
+	  exp = exp * 10 + (b - '0');
+	i++;
+      }
+      exponent += expNegative ? -exp : exp;
+    }
+
+    if ((i != end) && !trusted)
+      return fallback(text, offset, length, false, single);
+
+    if (mantissa == 0)
+      return negative ? -0.0 : 0.0;
+
+    // exact computation (Clinger)
+    if (!truncated) {
+      if (single) {
+	if ((mantissa >= 0) && (mantissa <= (1L << 24)) && (exponent >= -10) && (exponent <= 10)) {
+	  result = (exponent < 0) ? (float) mantissa / FLOAT_POWERS_OF_TEN[-exponent] : (float) mantissa * FLOAT_POWERS_OF_TEN[exponent];
+	  return negative ? -result : result;
+	}
+      }
+      else {
+	if ((mantissa >= 0) && (mantissa <= (1L << 53)) && (exponent >= -22) && (exponent <= 22)) {
+	  result = (exponent < 0) ? (double) mantissa / POWERS_OF_TEN[-exponent] : (double) mantissa * POWERS_OF_TEN[exponent];
+	  return negative ? -result : result;
+	}
+      }
+    }
+
+    // Eisel-Lemire, for truncated mantissas the result must be the same when rounding up the mantissa
+    bits = eiselLemire(mantissa, exponent, single);
+    if (truncated && (bits != -1) && (bits != eiselLemire(mantissa + 1, exponent, single)))
+      bits = -1;
+    if (bits == -1)
+      return fallback(text, offset, (trusted ? i - offset : length), trusted, single);
+
+    result = single ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+    return negative ? -result : result;
+  }
+
+  /**
+   * Parses "NaN" and "Infinity", everything else gets handed to the fallback.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param i		the position after the sign
+   * @param end		the end of the number
+   * @param negative	whether a minus sign was encountered
+   * @param offset	the start of the number
+   * @param length	the length of the number
+   * @param trusted	whether to skip syntax checks
+   * @param single	whether to round to float rather than double
+   * @return		the parsed value
+   * @throws NumberFormatException	if not trusted and not a valid number
+   */
+  protected static double parseSpecial(byte[] text, int i, int end, boolean negative, int offset, int length, boolean trusted, boolean single) {
+    if (matches(text, i, end, "NaN"))
+      return Double.NaN;
+    if (matches(text, i, end, "Infinity"))
+      return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    return fallback(text, offset, length, trusted, single);
+  }
+
+  /**
+   * Checks whether the bytes match the (ASCII) string exactly.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param start	the start of the bytes to check
+   * @param end		the end of the bytes to check
+   * @param s		the string to compare with
+   * @return		true if a match
+   */
+  protected static boolean matches(byte[] text, int start, int end, String s) {
+    int		i;
+
+    if (end - start != s.length())
+      return false;
+    for (i = 0; i < s.length(); i++) {
+      if (text[start + i] != s.charAt(i))
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the upper 64 bits of the unsigned 128-bit product.
+   *
+   * @param a		the first factor (unsigned)
+   * @param b		the second factor (unsigned)
+   * @return		the upper 64 bits
+   */
+  protected static long multiplyHighUnsigned(long a, long b) {
+    return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+  }
+
+  /**
+   * Computes the bits of w * 10^q using the Eisel-Lemire algorithm.
+   *
+   * @param w		the decimal mantissa (unsigned, not zero)
+   * @param q		the power of ten
+   * @param single	whether to compute the bits of a float rather than a double
+   * @return		the (positive) bits, -1 if the result cannot be determined
+   */
+  protected static long eiselLemire(long w, int q, boolean single) {
+    int		mantissaBits;
+    int		minExponent;
+    int		infinitePower;
+    long	precisionMask;
+    int		lz;
+    int		index;
+    long	lo;
+    long	hi;
+    long	secondHi;
+    int		upperBit;
+    int		shift;
+    long	mantissa;
+    int		power2;
+
+    mantissaBits  = single ? 23 : 52;
+    minExponent   = single ? -127 : -1023;
+    infinitePower = single ? 0xFF : 0x7FF;
+
+    if (q < (single ? -65 : MIN_POWER_OF_FIVE))
+      return 0;
+    if (q > (single ? 38 : MAX_POWER_OF_FIVE))
+      return (long) infinitePower << mantissaBits;
+
+    // 128-bit product of the normalized mantissa and the power of five
+    lz            = Long.numberOfLeadingZeros(w);
+    w           <<= lz;
+    index         = 2 * (q - MIN_POWER_OF_FIVE);
+    lo            = w * POWERS_OF_FIVE[index];
+    hi            = multiplyHighUnsigned(w, POWERS_OF_FIVE[index]);
+    precisionMask = -1L >>> (mantissaBits + 3);
+    if ((hi & precisionMask) == precisionMask) {
+      secondHi = multiplyHighUnsigned(w, POWERS_OF_FIVE[index + 1]);
+      lo      += secondHi;
+      if (Long.compareUnsigned(secondHi, lo) > 0)
+	hi++;
+    }
+    if ((lo == -1L) && ((q < -27) || (q > 55)))
+      return -1;
+
+    upperBit = (int) (hi >>> 63);
+    shift    = upperBit + 64 - mantissaBits - 3;
+    mantissa = hi >>> shift;
+    power2   = ((217706 * q) >> 16) + 63 + upperBit - lz - minExponent;
+
+    // subnormal
+    if (power2 <= 0) {
+      if (-power2 + 1 >= 64)
+	return 0;
+      mantissa >>>= -power2 + 1;
+      mantissa  += mantissa & 1;
+      mantissa >>>= 1;
+      power2     = (mantissa < (1L << mantissaBits)) ? 0 : 1;
+      return ((long) power2 << mantissaBits) | mantissa;
+    }
+
+    // exactly halfway between two values: round to even
+    if ((Long.compareUnsigned(lo, 1) <= 0) && (q >= (single ? -17 : -4)) && (q <= (single ? 10 : 23)) && ((mantissa & 3) == 1)) {
+      if ((mantissa << shift) == hi)
+	mantissa &= ~1L;
+    }
+
+    mantissa  += mantissa & 1;
+    mantissa >>>= 1;
+    if (mantissa >= (2L << mantissaBits)) {
+      mantissa = 1L << mantissaBits;
+      power2++;
+    }
+    mantissa &= ~(1L << mantissaBits);
+    if (power2 >= infinitePower)
+      return (long) infinitePower << mantissaBits;
+
+    return ((long) power2 << mantissaBits) | mantissa;
+  }
+
+  /**
+   * Parses the number using {@link Double#parseDouble(String)} or {@link Float#parseFloat(String)}.
+   *
+   * @param text	the buffer with the UTF-8 bytes
+   * @param offset	the start of the number
+   * @param length	the length of the number
+   * @param trusted	whether to return NaN rather than throwing an exception
+   * @param single	whether to parse a float rather than a double
+   * @return		the parsed value
+   * @throws NumberFormatException	if not trusted and not a valid number
+   */
+  protected static double fallback(byte[] text, int offset, int length, boolean trusted, boolean single) {
+    String	s;
+
+    try {
+      s = new String(text, offset, length, StandardCharsets.UTF_8);
+      return single ? Float.parseFloat(s) : Double.parseDouble(s);
+    }
+    catch (NumberFormatException e) {
+      if (trusted)
+	return Double.NaN;
+      throw e;
+    }
+  }
+}
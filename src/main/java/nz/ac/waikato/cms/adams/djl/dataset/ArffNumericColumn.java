@@ -0,0 +1,124 @@
+/*
+ * ArffNumericColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Stores the parsed values of a NUMERIC column as primitives.
+ * Missing values are stored as NaN (and recorded in the bitmap).
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffNumericColumn
+  extends ArffColumn {
+
+  protected double[] values;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   */
+  public ArffNumericColumn(String name) {
+    super(name, ArffAttributeType.NUMERIC);
+    values = new double[0];
+  }
+
+  /**
+   * Ensures that the column can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+    if (capacity > values.length)
+      values = Arrays.copyOf(values, Math.max(capacity, Math.max(INITIAL_CAPACITY, values.length * 2)));
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    values[size] = Double.NaN;
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., 0.
+   */
+  @Override
+  protected void addDefaultValue() {
+    values[size] = 0;
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    values[size] = row.getDouble(col);
+  }
+
+  /**
+   * Appends the values of the other column at the current position.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    System.arraycopy(((ArffNumericColumn) other).values, 0, values, size, other.size);
+  }
+
+  /**
+   * Returns the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the value, NaN if missing
+   */
+  public double getDouble(int row) {
+    return values[row];
+  }
+
+  /**
+   * Returns the value in the specified row as string.
+   * Integral values are output without decimals.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    double	value;
+
+    if (missing.get(row))
+      return null;
+    value = values[row];
+    return formatNumber(value, false);
+  }
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  @Override
+  public void compact() {
+    if (values.length > size)
+      values = Arrays.copyOf(values, size);
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffNumericColumn(name);
+  }
+}
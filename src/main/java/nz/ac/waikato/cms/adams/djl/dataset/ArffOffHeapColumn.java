@@ -0,0 +1,174 @@
+/*
+ * ArffOffHeapColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Ancestor for columns that store their values in a buffer outside the
+ * Java heap, obtained from an {@link ArffBufferAllocator}. The values are
+ * stored with a fixed width in little endian byte order, i.e., the layout
+ * expected by NDArrays.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class ArffOffHeapColumn
+  extends ArffColumn {
+
+  /** the empty buffer. */
+  protected static final ByteBuffer EMPTY = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+
+  protected ArffBufferAllocator allocator;
+  protected int width;
+  protected ByteBuffer buffer;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   * @param allocator	the allocator for the buffer
+   * @param width	the number of bytes per value
+   */
+  protected ArffOffHeapColumn(String name, ArffAttributeType type, ArffBufferAllocator allocator, int width) {
+    super(name, type);
+    this.allocator = allocator;
+    this.width     = width;
+    buffer         = EMPTY;
+  }
+
+  /**
+   * Returns the allocator for the buffer.
+   *
+   * @return		the allocator
+   */
+  public ArffBufferAllocator getAllocator() {
+    return allocator;
+  }
+
+  /**
+   * Returns the number of bytes per value.
+   *
+   * @return		the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns a read-only view of the stored values.
+   *
+   * @return		the values of all rows, little endian
+   */
+  public ByteBuffer getBuffer() {
+    return getBuffer(0, size);
+  }
+
+  /**
+   * Returns a read-only view of the values of a range of rows.
+   *
+   * @param start	the first row (incl)
+   * @param end		the last row (excl)
+   * @return		the values, little endian
+   */
+  public ByteBuffer getBuffer(int start, int end) {
+    ByteBuffer	result;
+
+    if ((start < 0) || (end > size) || (start > end))
+      throw new IndexOutOfBoundsException("Invalid rows [" + start + "," + end + ") for " + size + " rows");
+    result = buffer.asReadOnlyBuffer();
+    result.limit(end * width);
+    result.position(start * width);
+    return result.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Replaces the buffer with one for the specified number of rows,
+   * copying the stored values.
+   *
+   * @param rows	the number of rows
+   */
+  protected void resize(int rows) {
+    ByteBuffer	resized;
+
+    if ((long) rows * width > Integer.MAX_VALUE)
+      throw new IllegalStateException("Column '" + name + "' exceeds maximum buffer size with " + rows + " rows");
+    resized = allocator.allocate(rows * width);
+    copy(buffer, 0, resized, 0, size * width);
+    if (buffer != EMPTY)
+      allocator.release(buffer);
+    buffer = resized;
+  }
+
+  /**
+   * Copies bytes between buffers, leaving their positions untouched.
+   *
+   * @param src		the buffer to copy from
+   * @param srcOffset	the offset in the source
+   * @param dest	the buffer to copy to
+   * @param destOffset	the offset in the destination
+   * @param length	the number of bytes
+   */
+  protected static void copy(ByteBuffer src, int srcOffset, ByteBuffer dest, int destOffset, int length) {
+    ByteBuffer	from;
+    ByteBuffer	to;
+
+    if (length == 0)
+      return;
+    from = src.duplicate();
+    from.limit(srcOffset + length);
+    from.position(srcOffset);
+    to = dest.duplicate();
+    to.position(destOffset);
+    to.put(from);
+  }
+
+  /**
+   * Ensures that the column can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+    int		current;
+
+    current = buffer.capacity() / width;
+    if (capacity > current)
+      resize((int) Math.min(Integer.MAX_VALUE / width, Math.max(capacity, Math.max(INITIAL_CAPACITY, (long) current * 2))));
+  }
+
+  /**
+   * Appends the values of the other column at the current position.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    copy(((ArffOffHeapColumn) other).buffer, 0, buffer, size * width, other.size * width);
+  }
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  @Override
+  public void compact() {
+    if (buffer.capacity() > size * width)
+      resize(size);
+  }
+
+  /**
+   * Hands the buffer back to the allocator. The column must not be used
+   * afterwards.
+   */
+  public void release() {
+    if (buffer != EMPTY)
+      allocator.release(buffer);
+    buffer = EMPTY;
+    size   = 0;
+    missing.clear();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * ArffOffHeapDateColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Stores the parsed values of a DATE column as epoch milliseconds outside
+ * the Java heap. Missing values are only recorded in the bitmap.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffOffHeapDateColumn
+  extends ArffOffHeapColumn {
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param allocator	the allocator for the buffer
+   */
+  public ArffOffHeapDateColumn(String name, ArffBufferAllocator allocator) {
+    super(name, ArffAttributeType.DATE, allocator, Long.BYTES);
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    buffer.putLong(size * width, 0);
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., 0.
+   */
+  @Override
+  protected void addDefaultValue() {
+    buffer.putLong(size * width, 0);
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    buffer.putLong(size * width, row.getDate(col));
+  }
+
+  /**
+   * Returns the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the epoch milliseconds, undefined if missing
+   */
+  public long getDate(int row) {
+    return buffer.getLong(row * width);
+  }
+
+  /**
+   * Returns the value in the specified row as string, i.e., the epoch milliseconds.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    if (missing.get(row))
+      return null;
+    return Long.toString(getDate(row));
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffOffHeapDateColumn(name, allocator);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * ArffOffHeapDictionaryColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.List;
+
+/**
+ * Stores the values of a NOMINAL or STRING column as int codes outside the
+ * Java heap. The dictionary of the distinct values stays on the heap.
+ * Missing values are stored as -1 (and recorded in the bitmap).
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ * @see ArffDictionaryColumn
+ */
+public class ArffOffHeapDictionaryColumn
+  extends ArffOffHeapColumn {
+
+  /** the code for missing values. */
+  public static final int MISSING_CODE = ArffDictionary.NO_CODE;
+
+  protected ArffDictionary dictionary;
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   * @param allocator	the allocator for the buffer
+   */
+  public ArffOffHeapDictionaryColumn(String name, ArffAttributeType type, ArffBufferAllocator allocator) {
+    super(name, type, allocator, Integer.BYTES);
+    dictionary = new ArffDictionary();
+  }
+
+  /**
+   * Returns the code for the value, adding it to the dictionary if necessary.
+   *
+   * @param value	the value to get the code for
+   * @return		the code
+   */
+  public int encode(String value) {
+    return dictionary.encode(value);
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    buffer.putInt(size * width, MISSING_CODE);
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., the first value
+   * for NOMINAL columns and the empty string for STRING ones.
+   */
+  @Override
+  protected void addDefaultValue() {
+    if ((type == ArffAttributeType.NOMINAL) && (dictionary.size() > 0))
+      buffer.putInt(size * width, 0);
+    else
+      buffer.putInt(size * width, dictionary.encode(""));
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    buffer.putInt(size * width, dictionary.encode(row.getText(), row.getStart(col), row.getLength(col)));
+  }
+
+  /**
+   * Appends the values of the other column at the current position,
+   * translating its codes into the ones of this dictionary.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    ArffOffHeapDictionaryColumn	dict;
+    int[]			mapping;
+    int				i;
+    int				code;
+
+    dict    = (ArffOffHeapDictionaryColumn) other;
+    mapping = dictionary.merge(dict.dictionary);
+    for (i = 0; i < other.size; i++) {
+      code = dict.getCode(i);
+      buffer.putInt((size + i) * width, (code == MISSING_CODE) ? MISSING_CODE : mapping[code]);
+    }
+  }
+
+  /**
+   * Returns the code of the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the index in the dictionary, -1 if missing
+   * @see #getDictionary()
+   */
+  public int getCode(int row) {
+    return buffer.getInt(row * width);
+  }
+
+  /**
+   * Returns the distinct values, in the order they were encountered.
+   *
+   * @return		the values
+   */
+  public List<String> getDictionary() {
+    return dictionary.getValues();
+  }
+
+  /**
+   * Returns the value in the specified row as string.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    int		code;
+
+    code = getCode(row);
+    if (code == MISSING_CODE)
+      return null;
+    return dictionary.get(code);
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffOffHeapDictionaryColumn(name, type, allocator);
+  }
+}
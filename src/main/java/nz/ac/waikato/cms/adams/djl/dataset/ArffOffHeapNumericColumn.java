@@ -0,0 +1,129 @@
+/*
+ * ArffOffHeapNumericColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Stores the parsed values of a NUMERIC column outside the Java heap,
+ * either as doubles or as floats. Missing values are stored as NaN
+ * (and recorded in the bitmap).
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffOffHeapNumericColumn
+  extends ArffOffHeapColumn {
+
+  /**
+   * Initializes the column.
+   *
+   * @param name		the name of the column
+   * @param allocator		the allocator for the buffer
+   * @param floatPrecision	whether to store the values as float rather than double
+   */
+  public ArffOffHeapNumericColumn(String name, ArffBufferAllocator allocator, boolean floatPrecision) {
+    super(name, ArffAttributeType.NUMERIC, allocator, floatPrecision ? Float.BYTES : Double.BYTES);
+  }
+
+  /**
+   * Returns whether the values are stored as float rather than double.
+   *
+   * @return		true if float
+   */
+  public boolean isFloatPrecision() {
+    return (width == Float.BYTES);
+  }
+
+  /**
+   * Stores the value at the current position.
+   *
+   * @param value	the value
+   */
+  protected void set(double value) {
+    if (width == Float.BYTES)
+      buffer.putFloat(size * width, (float) value);
+    else
+      buffer.putDouble(size * width, value);
+  }
+
+  /**
+   * Stores a missing value at the current position.
+   */
+  @Override
+  protected void addMissing() {
+    set(Double.NaN);
+  }
+
+  /**
+   * Stores the default value at the current position, i.e., 0.
+   */
+  @Override
+  protected void addDefaultValue() {
+    set(0);
+  }
+
+  /**
+   * Stores the value of the cell at the current position.
+   *
+   * @param row		the decoded row
+   * @param col		the index of the cell
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    set(row.getDouble(col));
+  }
+
+  /**
+   * Returns the value in the specified row.
+   *
+   * @param row		the row index
+   * @return		the value, NaN if missing
+   */
+  public double getDouble(int row) {
+    if (width == Float.BYTES)
+      return buffer.getFloat(row * width);
+    else
+      return buffer.getDouble(row * width);
+  }
+
+  /**
+   * Returns the value in the specified row, see {@link ArffNumberParser#toFloat(double)}.
+   *
+   * @param row		the row index
+   * @return		the value, NaN if missing
+   */
+  public float getFloat(int row) {
+    if (width == Float.BYTES)
+      return buffer.getFloat(row * width);
+    else
+      return ArffNumberParser.toFloat(buffer.getDouble(row * width));
+  }
+
+  /**
+   * Returns the value in the specified row as string.
+   * Integral values are output without decimals.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    double	value;
+
+    if (missing.get(row))
+      return null;
+    value = getDouble(row);
+    return formatNumber(value, width == Float.BYTES);
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffOffHeapNumericColumn(name, allocator, isFloatPrecision());
+  }
+}
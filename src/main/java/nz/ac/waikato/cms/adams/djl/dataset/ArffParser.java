@@ -5,140 +5,642 @@
 
 package nz.ac.waikato.cms.adams.djl.dataset;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
- * Parses ARFF files.
+ * Parses ARFF files, loading the complete data into memory. The data section
+ * gets split by the byte-level {@link ArffTokenizer}, {@link Reader} input gets
+ * encoded as UTF-8 for that. Use {@link ArffReader} for streaming access.
+ * <br>
+ * The first data row determines the storage: if it is sparse, all rows get
+ * stored in compressed sparse row format (see {@link ArffSparseData}), with
+ * the columns being views on that storage. Otherwise, each column stores the
+ * values of all rows (rows in sparse format get expanded). Instance weights
+ * are stored separately, see {@link #getWeights()}.
+ * <br>
+ * The data section can be restricted to one of several shards (see
+ * {@link ArffShardBlockSource}), e.g., for distributed training. Line
+ * numbers in error messages are then relative to the shard.
  *
  * @author fracpete (fracpete at waikato dot ac dot nz)
  */
 public class ArffParser {
 
+  /**
+   * The rows parsed from a chunk of the data section.
+   */
+  protected static class ChunkResult {
+
+    /** the parsed columns, null if sparse. */
+    public List<ArffColumn> columns;
+
+    /** the parsed sparse data, null if dense. */
+    public ArffSparseData sparseData;
+
+    /** the instance weights. */
+    public ArffWeights weights;
+
+    /** the number of lines in the chunk. */
+    public long numLines;
+
+    /** the error that occurred, null if successful. */
+    public Exception error;
+  }
+
+  /** the default minimum size in bytes of a chunk for parallel parsing. */
+  public static final long DEFAULT_MIN_CHUNK_SIZE = 1024 * 1024;
+
   protected boolean onlyHeader;
+  protected int numThreads;
+  protected long minChunkSize;
+  protected boolean trustedInput;
+  protected boolean floatPrecision;
+  protected int shardRank;
+  protected int numShards;
+  protected ArffBufferAllocator allocator;
   protected String relationName;
   protected List<String> colNames;
   protected List<ArffAttributeType> colTypes;
-  protected List<List<String>> data;
+  protected List<ArffColumn> columns;
+  protected ArffSparseData sparseData;
+  protected ArffWeights weights;
+  protected int numRows;
   protected List<Map<String,String>> header;
   protected Map<String,Integer> attLookUp;
+  protected Map<String,List<String>> nominalValues;
+  protected Set<String> selectedColumns;
+  protected boolean[] selected;
+  protected List<ArffRowFilter> rowFilters;
 
   /**
    * Initializes the parser.
    */
   public ArffParser() {
-    relationName = "";
-    colNames     = new ArrayList<>();
-    colTypes     = new ArrayList<>();
-    data         = new ArrayList<>();
-    header       = new ArrayList<>();
-    attLookUp    = new HashMap<>();
+    relationName  = "";
+    colNames      = new ArrayList<>();
+    colTypes      = new ArrayList<>();
+    columns       = new ArrayList<>();
+    weights       = new ArffWeights();
+    numRows       = 0;
+    header        = new ArrayList<>();
+    attLookUp     = new HashMap<>();
+    nominalValues = new HashMap<>();
+    numThreads    = 1;
+    minChunkSize  = DEFAULT_MIN_CHUNK_SIZE;
+    shardRank     = 0;
+    numShards     = 1;
+    rowFilters    = new ArrayList<>();
   }
 
   /**
-   * Parses the dataset.
+   * Sets the number of threads to use for parsing the data section.
    *
-   * @param r			the reader to read from
-   * @throws IOException        if reading fails
+   * @param value		the number of threads, 1 for sequential parsing, less than 1 for all cores
+   */
+  public void setNumThreads(int value) {
+    if (value < 1)
+      value = Runtime.getRuntime().availableProcessors();
+    numThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for parsing the data section.
+   *
+   * @return			the number of threads
+   */
+  public int getNumThreads() {
+    return numThreads;
+  }
+
+  /**
+   * Sets the minimum size of the chunks that the data section gets split into
+   * when parsing with multiple threads.
+   *
+   * @param value		the size in bytes
+   */
+  public void setMinChunkSize(long value) {
+    minChunkSize = Math.max(1, Math.min(value, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Returns the minimum size of the chunks that the data section gets split into
+   * when parsing with multiple threads.
+   *
+   * @return			the size in bytes
+   */
+  public long getMinChunkSize() {
+    return minChunkSize;
+  }
+
+  /**
+   * Sets whether the input is trusted, i.e., NUMERIC values are parsed without syntax checks.
+   *
+   * @param value		true if trusted
+   */
+  public void setTrustedInput(boolean value) {
+    trustedInput = value;
+  }
+
+  /**
+   * Returns whether the input is trusted, i.e., NUMERIC values are parsed without syntax checks.
+   *
+   * @return			true if trusted
+   */
+  public boolean isTrustedInput() {
+    return trustedInput;
+  }
+
+  /**
+   * Sets whether NUMERIC values only need float precision, i.e., get stored as float.
+   *
+   * @param value		true if float precision
+   */
+  public void setFloatPrecision(boolean value) {
+    floatPrecision = value;
+  }
+
+  /**
+   * Returns whether NUMERIC values only need float precision, i.e., get stored as float.
+   *
+   * @return			true if float precision
+   */
+  public boolean isFloatPrecision() {
+    return floatPrecision;
+  }
+
+  /**
+   * Sets the shard of the data section to parse.
+   *
+   * @param rank		the index of the shard (0-based)
+   * @param numShards		the number of shards, 1 for the complete data
+   * @see ArffShardBlockSource
+   */
+  public void setShard(int rank, int numShards) {
+    if ((numShards < 1) || (rank < 0) || (rank >= numShards))
+      throw new IllegalArgumentException("Invalid shard " + rank + " of " + numShards + "!");
+    this.shardRank = rank;
+    this.numShards = numShards;
+  }
+
+  /**
+   * Returns the index of the shard to parse.
+   *
+   * @return			the index (0-based)
+   */
+  public int getShardRank() {
+    return shardRank;
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return			the number of shards, 1 for the complete data
+   */
+  public int getNumShards() {
+    return numShards;
+  }
+
+  /**
+   * Sets the allocator for storing the columns off-heap.
+   *
+   * @param value		the allocator, null for storing the columns on the heap
+   */
+  public void setAllocator(ArffBufferAllocator value) {
+    allocator = value;
+  }
+
+  /**
+   * Returns the allocator for storing the columns off-heap.
+   *
+   * @return			the allocator, null if stored on the heap
    */
-  protected void doParse(Reader r) throws IOException {
-    BufferedReader reader;
-    String			line;
-    String			lower;
-    boolean 			isHeader;
-    int 			lineIndex;
-    String[]			cells;
-    int				i;
-    Map<String,String> attInfo;
-    List<String> row;
-    Map<Integer, DateFormat>	formats;
-
-    data      = new ArrayList<>();
-    header    = new ArrayList<>();
-    colNames  = new ArrayList<>();
-    colTypes  = new ArrayList<>();
-    attLookUp = new HashMap<>();
-    formats   = new HashMap<>();
-
-    if (r instanceof BufferedReader)
-      reader = (BufferedReader) r;
+  public ArffBufferAllocator getAllocator() {
+    return allocator;
+  }
+
+  /**
+   * Hands the buffers of off-heap columns back to their allocator.
+   *
+   * @param columns		the columns to release
+   */
+  protected void release(List<ArffColumn> columns) {
+    for (ArffColumn column: columns) {
+      if (column instanceof ArffOffHeapColumn)
+	((ArffOffHeapColumn) column).release();
+    }
+  }
+
+  /**
+   * Sets the names of the columns to load. The cells of all other columns
+   * get skipped when tokenizing, i.e., they are neither unquoted, parsed nor
+   * stored. Their (placeholder) columns only contain missing values.
+   *
+   * @param value		the names of the columns, null for all columns
+   */
+  public void setSelectedColumns(Set<String> value) {
+    if (value == null)
+      selectedColumns = null;
     else
-      reader = new BufferedReader(r);
+      selectedColumns = new HashSet<>(value);
+  }
 
-    lineIndex = 0;
-    isHeader  = true;
-    try {
-      while ((line = reader.readLine()) != null) {
-	lineIndex++;
+  /**
+   * Returns the names of the columns to load.
+   *
+   * @return			the names of the columns, null for all columns
+   */
+  public Set<String> getSelectedColumns() {
+    return selectedColumns;
+  }
 
-	line = line.trim();
-	if (line.isEmpty())
-	  continue;
-	if (line.startsWith("%"))
-	  continue;
+  /**
+   * Sets the filters that rows must pass to get stored. Only the cells that
+   * the filters require get decoded for rows that are rejected.
+   *
+   * @param value		the filters, null for none
+   */
+  public void setRowFilters(List<ArffRowFilter> value) {
+    if (value == null)
+      rowFilters = new ArrayList<>();
+    else
+      rowFilters = new ArrayList<>(value);
+  }
 
-	if (isHeader) {
-	  lower = line.toLowerCase();
-	  if (lower.startsWith(ArffKeywords.RELATION)) {
-	    relationName = ArffUtils.unquote(line.substring(ArffKeywords.RELATION.length()).trim());
-	  }
-	  else if (lower.startsWith(ArffKeywords.ATTRIBUTE)) {
-	    attInfo = ArffUtils.parseAttribute(line);
-	    colNames.add(attInfo.get("name"));
-	    colTypes.add(ArffAttributeType.valueOf(attInfo.get("type")));
-	    attLookUp.put(attInfo.get("name"), attLookUp.size());
-	    if (colTypes.get(colTypes.size() - 1) == ArffAttributeType.DATE)
-	      formats.put(colTypes.size() - 1, new SimpleDateFormat(attInfo.get("format")));
-	    header.add(attInfo);
-	  }
-	  else if (lower.startsWith(ArffKeywords.DATA)) {
-	    isHeader = false;
-	    if (onlyHeader)
-	      return;
-	  }
+  /**
+   * Returns the filters that rows must pass to get stored.
+   *
+   * @return			the filters
+   */
+  public List<ArffRowFilter> getRowFilters() {
+    return rowFilters;
+  }
+
+  /**
+   * Determines the columns to tokenize: the selected ones plus the ones
+   * required by the row filters.
+   *
+   * @param reader		the reader with the initialized row filters
+   * @return			the flags per column, null for all columns
+   */
+  protected boolean[] determineTokenized(ArffReader reader) {
+    boolean[]	result;
+
+    if (selected == null)
+      return null;
+
+    result = selected.clone();
+    for (int col: reader.getRowFilterColumns())
+      result[col] = true;
+
+    return result;
+  }
+
+  /**
+   * Determines the flags of the columns to load from the names of the
+   * selected columns.
+   *
+   * @return			the flags per column, null for all columns
+   */
+  protected boolean[] determineSelected() {
+    boolean[]	result;
+    int		i;
+
+    if (selectedColumns == null)
+      return null;
+
+    result = new boolean[colNames.size()];
+    for (i = 0; i < colNames.size(); i++)
+      result[i] = selectedColumns.contains(colNames.get(i));
+
+    return result;
+  }
+
+  /**
+   * Checks whether the column gets loaded.
+   *
+   * @param col			the column index
+   * @return			true if loaded
+   */
+  protected boolean isSelected(int col) {
+    return (selected == null) || selected[col];
+  }
+
+  /**
+   * Creates empty columns for storing the data. The dictionaries of NOMINAL
+   * columns get initialized with the declared values, i.e., the codes are
+   * the indices of the values in the header. Columns that are not selected
+   * only get a placeholder.
+   *
+   * @return			the columns
+   */
+  protected List<ArffColumn> newColumns() {
+    List<ArffColumn>	result;
+    ArffColumn		column;
+    int			i;
+
+    result = new ArrayList<>();
+    for (i = 0; i < colNames.size(); i++) {
+      if (!isSelected(i)) {
+	result.add(new ArffSkippedColumn(colNames.get(i), colTypes.get(i)));
+	continue;
+      }
+      column = ArffColumn.newColumn(colNames.get(i), colTypes.get(i), floatPrecision, allocator);
+      if (nominalValues.containsKey(colNames.get(i))) {
+	for (String value: nominalValues.get(colNames.get(i))) {
+	  if (column instanceof ArffDictionaryColumn)
+	    ((ArffDictionaryColumn) column).encode(value);
+	  else if (column instanceof ArffOffHeapDictionaryColumn)
+	    ((ArffOffHeapDictionaryColumn) column).encode(value);
 	}
-	else {
-	  row = new ArrayList<>();
-	  data.add(row);
-	  cells = ArffUtils.split(line, ',', false, '\'', true);
-	  for (i = 0; i < cells.length && i < header.size(); i++) {
-	    cells[i] = cells[i].trim();
-	    if (cells[i].equals("?")) {
-	      row.add(null);
-	      continue;
-	    }
-	    cells[i] = ArffUtils.unquote(cells[i]);
-	    switch (colTypes.get(i)) {
-	      case NUMERIC:
-		Double.parseDouble(cells[i]);
-		row.add(cells[i]);
-		break;
-	      case NOMINAL:
-	      case STRING:
-		row.add(cells[i]);
-		break;
-	      case DATE:
-		row.add("" + formats.get(i).parse(cells[i]).getTime());
-		break;
-	      default:
-		throw new IOException("Unhandled attribute type: " + colTypes.get(i));
-	    }
+      }
+      result.add(column);
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates an empty storage for sparse data.
+   *
+   * @return			the storage
+   */
+  protected ArffSparseData newSparseData() {
+    return new ArffSparseData(colNames, colTypes, nominalValues, floatPrecision, selected);
+  }
+
+  /**
+   * Appends the decoded row to the columns. Columns not present in a sparse
+   * row get their default value.
+   *
+   * @param columns		the columns to add to
+   * @param row			the row to add
+   */
+  protected void add(List<ArffColumn> columns, ArffRow row) {
+    int		i;
+    int		cell;
+
+    if (row.isSparse()) {
+      cell = 0;
+      for (i = 0; i < columns.size(); i++) {
+	if ((cell < row.getNumCells()) && (row.getIndex(cell) == i))
+	  columns.get(i).add(row, cell++);
+	else
+	  columns.get(i).addDefault();
+      }
+    }
+    else {
+      for (i = 0; i < columns.size(); i++)
+	columns.get(i).add(row, i);
+    }
+  }
+
+  /**
+   * Parses a chunk of the data section.
+   *
+   * @param reader		the reader that has read the header
+   * @param chunk		the chunk of complete lines
+   * @return			the result
+   */
+  protected ChunkResult parseChunk(ArffReader reader, ByteBuffer chunk) {
+    ChunkResult		result;
+    ArffReader		chunkReader;
+    ArffRow		row;
+
+    result = new ChunkResult();
+    if (sparseData != null)
+      result.sparseData = newSparseData();
+    else
+      result.columns = newColumns();
+    result.weights = new ArffWeights();
+    chunkReader    = new ArffReader(reader, new ArffBufferBlockSource(chunk, 0));
+    row            = chunkReader.newRow();
+    try {
+      while (chunkReader.getTokenizer().next(row)) {
+	if (!chunkReader.process(row))
+	  continue;
+	if (result.sparseData != null)
+	  result.sparseData.add(row);
+	else
+	  add(result.columns, row);
+	result.weights.add(row.getWeight());
+      }
+    }
+    catch (Exception e) {
+      result.error = e;
+    }
+    result.numLines = chunkReader.getTokenizer().getLineIndex();
+
+    return result;
+  }
+
+  /**
+   * Creates the task for parsing the chunk.
+   *
+   * @param reader		the reader that has read the header
+   * @param chunk		the chunk of complete lines
+   * @return			the task
+   */
+  protected Callable<ChunkResult> newChunkTask(ArffReader reader, ByteBuffer chunk) {
+    return () -> parseChunk(reader, chunk);
+  }
+
+  /**
+   * Adds the rows of the parsed chunk to the data.
+   *
+   * @param result		the parsed chunk
+   * @param linesBefore		the number of lines before the chunk
+   * @throws IOException	if the chunk failed to parse
+   */
+  protected void addChunk(ChunkResult result, long linesBefore) throws IOException {
+    int		i;
+
+    try {
+      if (result.error instanceof IOException)
+	throw (IOException) result.error;
+      if (result.error != null)
+	throw new IOException("Failed to read ARFF data from reader (line #" + (linesBefore + result.numLines + 1) + ")!", result.error);
+      if (sparseData != null) {
+	sparseData.addAll(result.sparseData);
+      }
+      else {
+	for (i = 0; i < columns.size(); i++)
+	  columns.get(i).addAll(result.columns.get(i));
+      }
+      weights.addAll(result.weights);
+    }
+    finally {
+      if (result.columns != null)
+	release(result.columns);
+    }
+  }
+
+  /**
+   * Parses the data section using multiple threads. The blocks get cut into
+   * chunks of at least the minimum chunk size. Since rows never span lines
+   * (newlines inside values are back-quoted), each chunk boundary is placed
+   * right after a newline. The chunks are parsed on a fork/join pool and
+   * added in their original order.
+   *
+   * @param reader		the reader that has read the header
+   * @throws Exception		if parsing fails
+   */
+  protected void parseDataParallel(ArffReader reader) throws Exception {
+    ForkJoinPool		pool;
+    Deque<Future<ChunkResult>>	pending;
+    ChunkResult			result;
+    ArffTokenizer		tokenizer;
+    ByteBuffer			block;
+    ByteBuffer			chunk;
+    long			lines;
+    int				start;
+    int				end;
+
+    pool      = new ForkJoinPool(numThreads);
+    pending   = new ArrayDeque<>();
+    tokenizer = reader.getTokenizer();
+    lines     = tokenizer.getLineIndex();
+    try {
+      while ((block = tokenizer.nextRawBlock()) != null) {
+	start = block.position();
+	while (start < block.limit()) {
+	  end = (int) Math.min(block.limit(), start + minChunkSize);
+	  while ((end < block.limit()) && (block.get(end - 1) != '\n'))
+	    end++;
+	  chunk = block.duplicate();
+	  chunk.position(start);
+	  chunk.limit(end);
+	  pending.add(pool.submit(newChunkTask(reader, chunk)));
+	  start = end;
+
+	  // limit the number of chunks in memory
+	  while (pending.size() >= numThreads * 4) {
+	    result = pending.poll().get();
+	    addChunk(result, lines);
+	    lines += result.numLines;
 	  }
 	}
       }
+      while (!pending.isEmpty()) {
+	result = pending.poll().get();
+	addChunk(result, lines);
+	lines += result.numLines;
+      }
     }
-    catch (IOException ioe) {
-      throw ioe;
+    finally {
+      pool.shutdownNow();
     }
-    catch (Exception e) {
-      throw new IOException("Failed to read ARFF data from reader (line #" + (lineIndex +1) + ")!", e);
+  }
+
+  /**
+   * Reads the header and configures the reader for the data section, i.e.,
+   * with the parsing options, the row filters and the columns to tokenize.
+   * When using shards, the reader only reads the lines of the shard.
+   *
+   * @param tokenizer		the tokenizer to read from
+   * @return			the reader, positioned at the first row
+   * @throws IOException        if reading the header fails
+   */
+  protected ArffReader newReader(ArffTokenizer tokenizer) throws IOException {
+    ArffReader	result;
+
+    result        = new ArffReader(tokenizer);
+    result.setTrustedInput(trustedInput);
+    result.setFloatPrecision(floatPrecision);
+    relationName  = result.getRelationName();
+    header        = result.getHeader();
+    colNames      = result.getColNames();
+    colTypes      = result.getColTypes();
+    attLookUp     = result.getAttLookUp();
+    nominalValues = result.getNominalValues();
+    selected      = determineSelected();
+    result.setRowFilters(rowFilters);
+    result.setSelectedColumns(determineTokenized(result));
+    if (numShards > 1)
+      result = new ArffReader(result, new ArffShardBlockSource(result.getTokenizer(), shardRank, numShards));
+
+    return result;
+  }
+
+  /**
+   * Parses the dataset.
+   *
+   * @param tokenizer		the tokenizer to read from
+   * @throws IOException        if reading fails
+   */
+  protected void doParse(ArffTokenizer tokenizer) throws IOException {
+    ArffReader	reader;
+    ArffRow	row;
+
+    reader        = newReader(tokenizer);
+    release(columns);
+    columns       = newColumns();
+    sparseData    = null;
+    weights       = new ArffWeights();
+    numRows       = 0;
+    if (onlyHeader)
+      return;
+
+    // the first row determines the storage
+    row = reader.newRow();
+    if (!reader.next(row))
+      return;
+    if (row.isSparse()) {
+      columns    = null;
+      sparseData = newSparseData();
+      sparseData.add(row);
+    }
+    else {
+      add(columns, row);
+    }
+    weights.add(row.getWeight());
+
+    if (numThreads > 1) {
+      try {
+	parseDataParallel(reader);
+      }
+      catch (IOException ioe) {
+	throw ioe;
+      }
+      catch (Exception e) {
+	throw new IOException("Failed to read ARFF data from reader!", e);
+      }
+    }
+    else {
+      while (reader.next(row)) {
+	if (sparseData != null)
+	  sparseData.add(row);
+	else
+	  add(columns, row);
+	weights.add(row.getWeight());
+      }
+    }
+
+    weights.compact();
+    if (sparseData != null) {
+      sparseData.compact();
+      columns = sparseData.getColumns();
+      numRows = sparseData.getNumRows();
+    }
+    else {
+      for (ArffColumn column: columns)
+	column.compact();
+      if (!columns.isEmpty())
+	numRows = columns.get(0).size();
     }
   }
 
@@ -149,8 +651,28 @@ public class ArffParser {
    * @throws IOException        if reading fails
    */
   public void parseHeader(Reader r) throws IOException {
+    parseHeader(new ArffReaderInputStream(r));
+  }
+
+  /**
+   * Parses only the header.
+   *
+   * @param is			the UTF-8 encoded stream to read from
+   * @throws IOException        if reading fails
+   */
+  public void parseHeader(InputStream is) throws IOException {
+    parseHeader(new ArffStreamBlockSource(is));
+  }
+
+  /**
+   * Parses only the header.
+   *
+   * @param source		the source of UTF-8 encoded blocks to read from
+   * @throws IOException        if reading fails
+   */
+  public void parseHeader(ArffBlockSource source) throws IOException {
     onlyHeader = true;
-    doParse(r);
+    doParse(new ArffTokenizer(source));
   }
 
   /**
@@ -160,8 +682,43 @@ public class ArffParser {
    * @throws IOException        if reading fails
    */
   public void parse(Reader r) throws IOException {
+    parse(new ArffReaderInputStream(r));
+  }
+
+  /**
+   * Parses the complete dataset.
+   *
+   * @param is			the UTF-8 encoded stream to read from
+   * @throws IOException        if reading fails
+   */
+  public void parse(InputStream is) throws IOException {
+    parse(new ArffStreamBlockSource(is, getStreamBufferSize()));
+  }
+
+  /**
+   * Returns the size of the buffer to use when reading from a stream.
+   * When parsing with multiple threads, the blocks are at least as large as
+   * the minimum chunk size.
+   *
+   * @return			the size in bytes
+   */
+  public int getStreamBufferSize() {
+    if (numThreads > 1)
+      return (int) Math.max(ArffStreamBlockSource.DEFAULT_BUFFER_SIZE, Math.min(minChunkSize, 1 << 30));
+    else
+      return ArffStreamBlockSource.DEFAULT_BUFFER_SIZE;
+  }
+
+  /**
+   * Parses the complete dataset.
+   *
+   * @param source		the source of UTF-8 encoded blocks to read from
+   * @throws IOException        if reading fails
+   * @see ArffMappedBlockSource
+   */
+  public void parse(ArffBlockSource source) throws IOException {
     onlyHeader = false;
-    doParse(r);
+    doParse(new ArffTokenizer(source));
   }
 
   /**
@@ -203,12 +760,91 @@ public class ArffParser {
   }
 
   /**
-   * Returns the actual data of the dataset.
+   * Returns the columns with the actual data of the dataset.
+   * For sparse data, these are views on the sparse storage.
+   *
+   * @return the columns
+   */
+  public List<ArffColumn> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns whether the data was stored in sparse format.
+   *
+   * @return true if sparse
+   * @see #getSparseData()
+   */
+  public boolean isSparse() {
+    return (sparseData != null);
+  }
+
+  /**
+   * Returns the storage of the sparse data.
+   *
+   * @return the storage, null if not sparse
+   * @see #getColumns()
+   */
+  public ArffSparseData getSparseData() {
+    return sparseData;
+  }
+
+  /**
+   * Returns the instance weights of the rows.
+   *
+   * @return the weights
+   */
+  public ArffWeights getWeights() {
+    return weights;
+  }
+
+  /**
+   * Returns the number of rows in the dataset.
+   *
+   * @return the number of rows
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * Returns the specified row as list of strings, backed by the columns.
+   *
+   * @param index the index of the row
+   * @return the row
+   */
+  public List<String> getRow(int index) {
+    return new AbstractList<>() {
+      @Override
+      public String get(int col) {
+	return columns.get(col).getString(index);
+      }
+
+      @Override
+      public int size() {
+	return columns.size();
+      }
+    };
+  }
+
+  /**
+   * Returns the actual data of the dataset as rows of strings, backed by the columns.
    *
    * @return the data
+   * @see #getColumns()
    */
   public List<List<String>> getData() {
-    return data;
+    return new AbstractList<>() {
+      @Override
+      public List<String> get(int index) {
+	return getRow(index);
+      }
+
+      @Override
+      public int size() {
+	return numRows;
+      }
+    };
   }
 
   /**
@@ -219,4 +855,14 @@ public class ArffParser {
   public Map<String, Integer> getAttLookUp() {
     return attLookUp;
   }
+
+  /**
+   * Returns the declared values of the NOMINAL attributes (name/values),
+   * in the order they were declared.
+   *
+   * @return the values
+   */
+  public Map<String,List<String>> getNominalValues() {
+    return nominalValues;
+  }
 }
@@ -0,0 +1,164 @@
+/*
+ * ArffPrefetchIterator.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.training.dataset.Batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Assembles the upcoming batches of a sequential iterator in the background,
+ * e.g., while the current batch is being trained on. The batches get
+ * assembled one after the other (in their original order) by the tasks of
+ * the executor, with at most the specified number of batches being assembled
+ * or waiting to be taken. Each batch owns its sub-manager (of the manager
+ * that the wrapped iterator creates the batches with), i.e., the batches
+ * get handed over as is and closing a batch releases its arrays.
+ * <br>
+ * When stopping the iteration early, close the iterator: no further batches
+ * get assembled, the batches that were assembled but not taken get closed
+ * and so does the wrapped iterator, if {@link Closeable} (e.g., releasing
+ * the file it reads from).
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffPrefetchIterator
+  implements Iterator<Batch>, Closeable {
+
+  protected Iterator<Batch> batches;
+
+  protected Executor executor;
+
+  protected int depth;
+
+  protected Deque<CompletableFuture<Batch>> queue;
+
+  protected CompletableFuture<Batch> last;
+
+  protected volatile boolean closed;
+
+  /**
+   * Initializes the iterator and starts assembling the first batches.
+   *
+   * @param batches	the iterator to assemble the batches with
+   * @param executor	the executor to run the assembly on
+   * @param depth	the number of batches to assemble ahead
+   */
+  public ArffPrefetchIterator(Iterator<Batch> batches, Executor executor, int depth) {
+    this.batches  = batches;
+    this.executor = executor;
+    this.depth    = Math.max(1, depth);
+    queue         = new ArrayDeque<>();
+    last          = CompletableFuture.completedFuture(null);
+    closed        = false;
+    fill();
+  }
+
+  /**
+   * Assembles the next batch, if any and not closed.
+   *
+   * @param previous	the previous batch, ignored
+   * @return		the batch, null if no more batches available
+   */
+  protected Batch assemble(Batch previous) {
+    if (!closed && batches.hasNext())
+      return batches.next();
+    else
+      return null;
+  }
+
+  /**
+   * Queues the assembly of further batches, up to the depth. Each assembly
+   * starts once the previous one has finished.
+   */
+  protected void fill() {
+    while (queue.size() < depth) {
+      last = last.thenApplyAsync(this::assemble, executor);
+      queue.add(last);
+    }
+  }
+
+  /**
+   * Waits for the next batch to be assembled.
+   *
+   * @return		the batch, null if no more batches available or closed
+   */
+  protected Batch peek() {
+    if (closed)
+      return null;
+    try {
+      return queue.peek().join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException)
+	throw (RuntimeException) e.getCause();
+      throw e;
+    }
+  }
+
+  /**
+   * Checks whether another batch is available.
+   *
+   * @return		true if available
+   */
+  @Override
+  public boolean hasNext() {
+    return (peek() != null);
+  }
+
+  /**
+   * Returns the next batch.
+   *
+   * @return		the batch
+   */
+  @Override
+  public Batch next() {
+    Batch	result;
+
+    result = peek();
+    if (result == null)
+      throw new NoSuchElementException("No more batches available!");
+    queue.poll();
+    fill();
+
+    return result;
+  }
+
+  /**
+   * Stops assembling batches, closes the batches that were assembled but
+   * not taken and the wrapped iterator, if {@link Closeable}. Waits for
+   * the batch currently being assembled, if any.
+   *
+   * @throws IOException	if closing the wrapped iterator fails
+   */
+  @Override
+  public void close() throws IOException {
+    Batch	batch;
+
+    if (closed)
+      return;
+    closed = true;
+    last.handle((b, e) -> null).join();
+    for (CompletableFuture<Batch> future: queue) {
+      if (future.isCompletedExceptionally())
+	continue;
+      batch = future.join();
+      if (batch != null)
+	batch.close();
+    }
+    queue.clear();
+    if (batches instanceof Closeable)
+      ((Closeable) batches).close();
+  }
+}
@@ -0,0 +1,600 @@
+/*
+ * ArffReader.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Streaming reader for ARFF files. Parses the header when instantiated and
+ * then hands out the data one row at a time, using constant memory.
+ * Rows can either be pulled (hasNext/next, filling a reusable row) or
+ * pushed to an {@link ArffRowVisitor}. Sparse rows are handed out as is,
+ * see {@link ArffRow#isSparse()}. Rows can be filtered while reading, with
+ * only the cells required by the {@link ArffRowFilter}s being decoded for
+ * rows that get rejected.
+ * <br>
+ * Example:
+ * <pre>
+ * try (ArffReader reader = new ArffReader(new ArffMappedBlockSource(path))) {
+ *   while (reader.hasNext()) {
+ *     ArffRow row = reader.next();
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffReader
+  implements Closeable {
+
+  protected ArffTokenizer tokenizer;
+  protected String relationName;
+  protected List<String> colNames;
+  protected List<ArffAttributeType> colTypes;
+  protected ArffAttributeType[] types;
+  protected List<Map<String,String>> header;
+  protected Map<String,Integer> attLookUp;
+  protected Map<String,List<String>> nominalValues;
+  protected ArffDateParser[] dateParsers;
+  protected boolean trustedInput;
+  protected boolean floatPrecision;
+  protected boolean[] selected;
+  protected ArffRowFilter[] rowFilters;
+  protected int[] filterColumns;
+  protected boolean[] filtered;
+  protected ArffRow row;
+  protected boolean hasRow;
+
+  /**
+   * Initializes the reader and parses the header.
+   *
+   * @param r			the reader to read from
+   * @throws IOException	if reading the header fails
+   */
+  public ArffReader(Reader r) throws IOException {
+    this(new ArffReaderInputStream(r));
+  }
+
+  /**
+   * Initializes the reader and parses the header.
+   *
+   * @param is			the UTF-8 encoded stream to read from
+   * @throws IOException	if reading the header fails
+   */
+  public ArffReader(InputStream is) throws IOException {
+    this(new ArffStreamBlockSource(is));
+  }
+
+  /**
+   * Initializes the reader and parses the header.
+   *
+   * @param source		the source of UTF-8 encoded blocks to read from
+   * @throws IOException	if reading the header fails
+   */
+  public ArffReader(ArffBlockSource source) throws IOException {
+    this(new ArffTokenizer(source));
+  }
+
+  /**
+   * Initializes the reader and parses the header.
+   *
+   * @param tokenizer		the tokenizer to read from
+   * @throws IOException	if reading the header fails
+   */
+  public ArffReader(ArffTokenizer tokenizer) throws IOException {
+    this.tokenizer = tokenizer;
+    parseHeader();
+    init();
+  }
+
+  /**
+   * Initializes the reader with the header of another reader, e.g., for
+   * reading a chunk of the data section. The date parsers get copied.
+   *
+   * @param other		the reader to get the header from
+   * @param source		the source of UTF-8 encoded data lines to read from
+   */
+  public ArffReader(ArffReader other, ArffBlockSource source) {
+    int		i;
+
+    tokenizer      = new ArffTokenizer(source);
+    relationName   = other.relationName;
+    colNames       = other.colNames;
+    colTypes       = other.colTypes;
+    header         = other.header;
+    attLookUp      = other.attLookUp;
+    nominalValues  = other.nominalValues;
+    trustedInput   = other.trustedInput;
+    floatPrecision = other.floatPrecision;
+    selected       = other.selected;
+    rowFilters     = other.rowFilters;
+    filterColumns  = other.filterColumns;
+    filtered       = other.filtered;
+    tokenizer.setSelectedColumns(selected);
+    dateParsers    = new ArffDateParser[other.dateParsers.length];
+    for (i = 0; i < dateParsers.length; i++) {
+      if (other.dateParsers[i] != null)
+	dateParsers[i] = new ArffDateParser(other.dateParsers[i]);
+    }
+    init();
+  }
+
+  /**
+   * Initializes the data structures after the header is available.
+   */
+  protected void init() {
+    types  = colTypes.toArray(new ArffAttributeType[0]);
+    row    = newRow();
+    hasRow = false;
+    if (rowFilters == null) {
+      rowFilters    = new ArffRowFilter[0];
+      filterColumns = new int[0];
+      filtered      = new boolean[types.length];
+    }
+  }
+
+  /**
+   * Reads the header, up to and including the @data line.
+   *
+   * @throws IOException	if reading fails
+   */
+  protected void parseHeader() throws IOException {
+    String			line;
+    String			lower;
+    Map<String,String> 		attInfo;
+    Map<Integer,ArffDateParser>	dateParsers;
+    int				i;
+
+    relationName  = "";
+    header        = new ArrayList<>();
+    colNames      = new ArrayList<>();
+    colTypes      = new ArrayList<>();
+    attLookUp     = new HashMap<>();
+    nominalValues = new HashMap<>();
+    dateParsers   = new HashMap<>();
+
+    try {
+      while ((line = tokenizer.readLine()) != null) {
+	line = line.trim();
+	if (line.isEmpty())
+	  continue;
+	if (line.startsWith("%"))
+	  continue;
+
+	lower = line.toLowerCase();
+	if (lower.startsWith(ArffKeywords.RELATION)) {
+	  relationName = ArffUtils.unquote(line.substring(ArffKeywords.RELATION.length()).trim());
+	}
+	else if (lower.startsWith(ArffKeywords.ATTRIBUTE)) {
+	  attInfo = ArffUtils.parseAttribute(line);
+	  colNames.add(attInfo.get("name"));
+	  colTypes.add(ArffAttributeType.valueOf(attInfo.get("type")));
+	  attLookUp.put(attInfo.get("name"), attLookUp.size());
+	  if (colTypes.get(colTypes.size() - 1) == ArffAttributeType.NOMINAL)
+	    nominalValues.put(attInfo.get("name"), Collections.unmodifiableList(ArffUtils.parseNominalValues(attInfo.get("values"))));
+	  if (colTypes.get(colTypes.size() - 1) == ArffAttributeType.DATE)
+	    dateParsers.put(colTypes.size() - 1, new ArffDateParser(attInfo.get("format")));
+	  header.add(attInfo);
+	}
+	else if (lower.startsWith(ArffKeywords.DATA)) {
+	  break;
+	}
+      }
+    }
+    catch (IOException ioe) {
+      throw ioe;
+    }
+    catch (Exception e) {
+      throw new IOException("Failed to read ARFF data from reader (line #" + (tokenizer.getLineIndex() + 1) + ")!", e);
+    }
+
+    this.dateParsers = new ArffDateParser[colTypes.size()];
+    for (i = 0; i < this.dateParsers.length; i++)
+      this.dateParsers[i] = dateParsers.get(i);
+  }
+
+  /**
+   * Sets whether the input is trusted, i.e., NUMERIC values are parsed without syntax checks.
+   *
+   * @param value	true if trusted
+   */
+  public void setTrustedInput(boolean value) {
+    trustedInput = value;
+  }
+
+  /**
+   * Returns whether the input is trusted, i.e., NUMERIC values are parsed without syntax checks.
+   *
+   * @return		true if trusted
+   */
+  public boolean isTrustedInput() {
+    return trustedInput;
+  }
+
+  /**
+   * Sets whether NUMERIC values only need float precision, i.e., get rounded
+   * to float directly when parsed.
+   *
+   * @param value	true if float precision
+   */
+  public void setFloatPrecision(boolean value) {
+    floatPrecision = value;
+  }
+
+  /**
+   * Returns whether NUMERIC values only need float precision, i.e., get rounded
+   * to float directly when parsed.
+   *
+   * @return		true if float precision
+   */
+  public boolean isFloatPrecision() {
+    return floatPrecision;
+  }
+
+  /**
+   * Sets the columns to read, the cells of all other columns get skipped
+   * without parsing them and are reported as missing.
+   *
+   * @param value	the flags per column, null for all columns
+   */
+  public void setSelectedColumns(boolean[] value) {
+    selected = value;
+    tokenizer.setSelectedColumns(value);
+  }
+
+  /**
+   * Returns the columns to read, the cells of all other columns get skipped
+   * without parsing them and are reported as missing.
+   *
+   * @return		the flags per column, null for all columns
+   */
+  public boolean[] getSelectedColumns() {
+    return selected;
+  }
+
+  /**
+   * Sets the filters that rows must pass, i.e., only rows accepted by all
+   * the filters get returned. The filters get initialized with the header.
+   *
+   * @param value	the filters, null or empty for none
+   * @throws IOException	if initializing of a filter fails
+   */
+  public void setRowFilters(List<ArffRowFilter> value) throws IOException {
+    Set<Integer>	columns;
+    int			i;
+
+    if (value == null)
+      value = new ArrayList<>();
+
+    columns = new TreeSet<>();
+    for (ArffRowFilter filter: value) {
+      try {
+	filter.initialize(this);
+      }
+      catch (Exception e) {
+	throw new IOException("Failed to initialize row filter: " + filter, e);
+      }
+      for (int col: filter.getColumns())
+	columns.add(col);
+    }
+
+    rowFilters    = value.toArray(new ArffRowFilter[0]);
+    filterColumns = new int[columns.size()];
+    filtered      = new boolean[colTypes.size()];
+    i             = 0;
+    for (int col: columns) {
+      filterColumns[i++] = col;
+      filtered[col]      = true;
+    }
+  }
+
+  /**
+   * Returns the filters that rows must pass.
+   *
+   * @return		the filters
+   */
+  public List<ArffRowFilter> getRowFilters() {
+    return Arrays.asList(rowFilters);
+  }
+
+  /**
+   * Returns the columns that the row filters require.
+   *
+   * @return		the column indices
+   */
+  public int[] getRowFilterColumns() {
+    return filterColumns;
+  }
+
+  /**
+   * Creates a new row that can hold the data of this dataset.
+   *
+   * @return		the row
+   */
+  public ArffRow newRow() {
+    return new ArffRow(colTypes.size());
+  }
+
+  /**
+   * Checks the column indices of a sparse row, which must be valid and in
+   * ascending order.
+   *
+   * @param row		the row to check
+   * @throws Exception	if an index is invalid
+   */
+  protected void validate(ArffRow row) throws Exception {
+    int		i;
+    int		col;
+    int		last;
+
+    if (!row.sparse)
+      return;
+
+    last = -1;
+    for (i = 0; i < row.numCells; i++) {
+      col = row.index[i];
+      if (col < 0)
+	throw new ParseException("Invalid entry #" + (i + 1) + " in sparse row, expected 'index value'!", i);
+      if (col >= types.length)
+	throw new ParseException("Index out of bounds in sparse row: " + col, i);
+      if (col <= last)
+	throw new ParseException("Indices have to be ordered in sparse row: " + col, i);
+      last = col;
+    }
+  }
+
+  /**
+   * Turns the cell of the tokenized row into a typed value.
+   *
+   * @param row		the row to decode
+   * @param cell	the index of the cell
+   * @throws Exception	if parsing of the cell fails
+   */
+  protected void decode(ArffRow row, int cell) throws Exception {
+    int		col;
+
+    if (row.missing[cell])
+      return;
+
+    col = row.sparse ? row.index[cell] : cell;
+    switch (types[col]) {
+      case NUMERIC:
+	if (floatPrecision)
+	  row.numeric[cell] = ArffNumberParser.parseFloat(row.text, row.start[cell], row.length[cell], trustedInput);
+	else
+	  row.numeric[cell] = ArffNumberParser.parseDouble(row.text, row.start[cell], row.length[cell], trustedInput);
+	break;
+      case NOMINAL:
+      case STRING:
+	break;
+      case DATE:
+	row.date[cell] = dateParsers[col].parse(row.text, row.start[cell], row.length[cell]);
+	break;
+      default:
+	throw new IOException("Unhandled attribute type: " + types[col]);
+    }
+  }
+
+  /**
+   * Turns the cells of the tokenized row into typed values.
+   * The column indices of sparse rows must have been validated.
+   * The cells of the columns that the row filters require have already
+   * been decoded by {@link #accept(ArffRow)} and get skipped.
+   * The instance weight, if present, must be a number.
+   *
+   * @param row		the row to decode
+   * @throws Exception	if parsing of a cell fails
+   */
+  protected void decode(ArffRow row) throws Exception {
+    int		i;
+
+    if (row.hasWeight)
+      row.weight = ArffNumberParser.parseDouble(row.text, row.weightStart, row.weightLength, false);
+
+    for (i = 0; i < row.numCells; i++) {
+      if (!filtered[row.sparse ? row.index[i] : i])
+	decode(row, i);
+    }
+  }
+
+  /**
+   * Checks whether the row passes all the filters, decoding only the cells
+   * that the filters require.
+   *
+   * @param row		the validated row
+   * @return		true if accepted
+   * @throws Exception	if parsing of a cell fails
+   */
+  protected boolean accept(ArffRow row) throws Exception {
+    int		cell;
+
+    for (int col: filterColumns) {
+      cell = row.findCell(col);
+      if (cell > -1)
+	decode(row, cell);
+    }
+    for (ArffRowFilter filter: rowFilters) {
+      if (!filter.accept(row))
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Validates the tokenized row and decodes it if it passes the row filters.
+   *
+   * @param row		the tokenized row
+   * @return		true if accepted and decoded
+   * @throws Exception	if validation or parsing fails
+   */
+  protected boolean process(ArffRow row) throws Exception {
+    validate(row);
+    if ((rowFilters.length > 0) && !accept(row))
+      return false;
+    decode(row);
+    return true;
+  }
+
+  /**
+   * Reads the next row that passes the row filters.
+   *
+   * @param row		the row to fill
+   * @return		false if no more rows available
+   * @throws IOException	if reading or parsing fails
+   */
+  public boolean next(ArffRow row) throws IOException {
+    try {
+      while (tokenizer.next(row)) {
+	if (process(row))
+	  return true;
+      }
+      return false;
+    }
+    catch (IOException ioe) {
+      throw ioe;
+    }
+    catch (Exception e) {
+      throw new IOException("Failed to read ARFF data from reader (line #" + (tokenizer.getLineIndex() + 1) + ")!", e);
+    }
+  }
+
+  /**
+   * Checks whether another row is available, reading it into the internal row.
+   *
+   * @return		true if another row is available
+   * @throws IOException	if reading or parsing fails
+   */
+  public boolean hasNext() throws IOException {
+    if (!hasRow)
+      hasRow = next(row);
+    return hasRow;
+  }
+
+  /**
+   * Returns the next row. The same row instance gets reused for all rows.
+   *
+   * @return		the row
+   * @throws IOException	if reading or parsing fails
+   * @throws IllegalStateException	if no more rows available
+   */
+  public ArffRow next() throws IOException {
+    if (!hasNext())
+      throw new IllegalStateException("No more rows available!");
+    hasRow = false;
+    return row;
+  }
+
+  /**
+   * Pushes all remaining rows to the visitor.
+   * The same row instance gets reused for all rows.
+   *
+   * @param visitor	the visitor to call with each row
+   * @return		the number of rows visited
+   * @throws Exception	if reading fails or the visitor fails
+   */
+  public long accept(ArffRowVisitor visitor) throws Exception {
+    long	result;
+
+    result = 0;
+    while (hasNext()) {
+      result++;
+      if (!visitor.visit(next()))
+	break;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the underlying tokenizer.
+   *
+   * @return		the tokenizer
+   */
+  public ArffTokenizer getTokenizer() {
+    return tokenizer;
+  }
+
+  /**
+   * Returns the relation name.
+   *
+   * @return the name
+   */
+  public String getRelationName() {
+    return relationName;
+  }
+
+  /**
+   * The complete header information.
+   *
+   * @return the info
+   */
+  public List<Map<String, String>> getHeader() {
+    return header;
+  }
+
+  /**
+   * Returns all the column names as they appear.
+   *
+   * @return the names
+   * @see #getColTypes()
+   */
+  public List<String> getColNames() {
+    return colNames;
+  }
+
+  /**
+   * Returns all the column types as they appear.
+   *
+   * @return the types
+   * @see #getColNames()
+   */
+  public List<ArffAttributeType> getColTypes() {
+    return colTypes;
+  }
+
+  /**
+   * Returns the attribute lookup (name/index).
+   *
+   * @return the lookup
+   */
+  public Map<String, Integer> getAttLookUp() {
+    return attLookUp;
+  }
+
+  /**
+   * Returns the declared values of the NOMINAL attributes (name/values),
+   * in the order they were declared.
+   *
+   * @return the values
+   */
+  public Map<String,List<String>> getNominalValues() {
+    return nominalValues;
+  }
+
+  /**
+   * Closes the underlying source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    tokenizer.close();
+  }
+}
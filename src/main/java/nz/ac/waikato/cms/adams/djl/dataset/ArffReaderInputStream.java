@@ -0,0 +1,128 @@
+/*
+ * ArffReaderInputStream.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the characters of a reader as UTF-8 bytes, allowing
+ * {@link Reader} input to be fed into the byte-level {@link ArffTokenizer}.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffReaderInputStream
+  extends InputStream {
+
+  /** the size of the character buffer. */
+  public static final int BUFFER_SIZE = 8192;
+
+  protected Reader reader;
+  protected CharsetEncoder encoder;
+  protected CharBuffer chars;
+  protected ByteBuffer bytes;
+  protected boolean eof;
+  protected boolean finished;
+
+  /**
+   * Initializes the stream.
+   *
+   * @param reader	the reader to encode
+   */
+  public ArffReaderInputStream(Reader reader) {
+    this.reader = reader;
+    encoder     = StandardCharsets.UTF_8.newEncoder()
+		    .onMalformedInput(CodingErrorAction.REPLACE)
+		    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    chars       = CharBuffer.allocate(BUFFER_SIZE);
+    bytes       = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    eof         = false;
+    finished    = false;
+    chars.flip();
+    bytes.flip();
+  }
+
+  /**
+   * Encodes the next chunk of characters.
+   *
+   * @return		false if no more data available
+   * @throws IOException	if reading fails
+   */
+  protected boolean fill() throws IOException {
+    CoderResult	result;
+
+    bytes.clear();
+    while ((bytes.position() == 0) && !finished) {
+      if (!eof) {
+	chars.compact();
+	if (reader.read(chars) == -1)
+	  eof = true;
+	chars.flip();
+      }
+      result = encoder.encode(chars, bytes, eof);
+      if (result.isError())
+	result.throwException();
+      // UTF-8 has no trailing state, flushing cannot overflow
+      if (eof && !result.isOverflow()) {
+	encoder.flush(bytes);
+	finished = true;
+      }
+    }
+    bytes.flip();
+
+    return bytes.hasRemaining();
+  }
+
+  /**
+   * Reads the next byte.
+   *
+   * @return		the byte, -1 if end of stream
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public int read() throws IOException {
+    if (!bytes.hasRemaining() && !fill())
+      return -1;
+    return bytes.get() & 0xFF;
+  }
+
+  /**
+   * Reads bytes into the array.
+   *
+   * @param b		the array to read into
+   * @param off		the offset in the array
+   * @param len		the maximum number of bytes to read
+   * @return		the number of bytes read, -1 if end of stream
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (!bytes.hasRemaining() && !fill())
+      return -1;
+    len = Math.min(len, bytes.remaining());
+    bytes.get(b, off, len);
+    return len;
+  }
+
+  /**
+   * Closes the underlying reader.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
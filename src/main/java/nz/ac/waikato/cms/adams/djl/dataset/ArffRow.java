@@ -0,0 +1,259 @@
+/*
+ * ArffRow.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable holder for a single data row. The (unquoted) content of all cells
+ * is stored back-to-back in a single byte array (UTF-8), with each cell being
+ * represented by an (offset, length) span into that array.
+ * Once decoded by an {@link ArffReader}, the values of NUMERIC and DATE
+ * cells are available as primitives as well.
+ * <br>
+ * For sparse rows (e.g., "{3 1.0, 17 2.5}"), only the cells that are present
+ * get stored, in the order they appear, and {@link #getIndex(int)} returns the
+ * column index of each cell. For dense rows, the cell index is the column index.
+ * <br>
+ * An instance weight at the end of the data line (e.g., "1,2,{0.5}") is
+ * available via {@link #getWeight()}, 1 if none specified.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffRow {
+
+  protected int numColumns;
+  protected int numCells;
+  protected boolean sparse;
+  protected int[] index;
+  protected byte[] text;
+  protected int textLength;
+  protected int[] start;
+  protected int[] length;
+  protected boolean[] missing;
+  protected double[] numeric;
+  protected long[] date;
+  protected long lineIndex;
+  protected boolean hasWeight;
+  protected int weightStart;
+  protected int weightLength;
+  protected double weight;
+
+  /**
+   * Initializes the row.
+   *
+   * @param numColumns	the number of columns in the dataset
+   */
+  public ArffRow(int numColumns) {
+    this.numColumns = numColumns;
+    text            = new byte[Math.max(256, numColumns * 16)];
+    start           = new int[numColumns];
+    length          = new int[numColumns];
+    index           = new int[numColumns];
+    missing         = new boolean[numColumns];
+    numeric         = new double[numColumns];
+    date            = new long[numColumns];
+    clear();
+  }
+
+  /**
+   * Resets the row.
+   */
+  public void clear() {
+    numCells   = 0;
+    sparse     = false;
+    textLength = 0;
+    lineIndex  = -1;
+    hasWeight  = false;
+    weight     = 1.0;
+  }
+
+  /**
+   * Ensures that the text buffer can take the additional number of bytes.
+   *
+   * @param additional	the number of bytes to add
+   */
+  protected void ensureCapacity(int additional) {
+    byte[]	larger;
+
+    if (textLength + additional > text.length) {
+      larger = new byte[Math.max(text.length * 2, textLength + additional)];
+      System.arraycopy(text, 0, larger, 0, textLength);
+      text = larger;
+    }
+  }
+
+  /**
+   * Returns the number of columns in the dataset.
+   *
+   * @return		the number of columns
+   */
+  public int getNumColumns() {
+    return numColumns;
+  }
+
+  /**
+   * Returns the number of cells that were present in the data line.
+   * For sparse rows, the number of columns that were listed.
+   *
+   * @return		the number of cells
+   */
+  public int getNumCells() {
+    return numCells;
+  }
+
+  /**
+   * Returns whether the row was stored in sparse format.
+   *
+   * @return		true if sparse
+   */
+  public boolean isSparse() {
+    return sparse;
+  }
+
+  /**
+   * Returns the column index of the cell.
+   *
+   * @param cell	the index of the cell
+   * @return		the column index, -1 if the cell of a sparse row has no valid index
+   */
+  public int getIndex(int cell) {
+    if (sparse)
+      return index[cell];
+    else
+      return cell;
+  }
+
+  /**
+   * Locates the cell of the column. For sparse rows, this requires the
+   * column indices to be in ascending order (as checked when decoding).
+   *
+   * @param col		the column index
+   * @return		the index of the cell, -1 if not present in the row
+   */
+  public int findCell(int col) {
+    int		low;
+    int		high;
+    int		mid;
+
+    if (!sparse)
+      return (col < numCells) ? col : -1;
+
+    low  = 0;
+    high = numCells - 1;
+    while (low <= high) {
+      mid = (low + high) >>> 1;
+      if (index[mid] < col)
+	low = mid + 1;
+      else if (index[mid] > col)
+	high = mid - 1;
+      else
+	return mid;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns whether the cell is missing, i.e., '?'.
+   *
+   * @param col		the index of the cell
+   * @return		true if missing
+   */
+  public boolean isMissing(int col) {
+    return missing[col];
+  }
+
+  /**
+   * Returns the buffer with the content of the cells.
+   *
+   * @return		the buffer
+   * @see #getStart(int)
+   * @see #getLength(int)
+   */
+  public byte[] getText() {
+    return text;
+  }
+
+  /**
+   * Returns the start of the cell's content in the buffer.
+   *
+   * @param col		the index of the cell
+   * @return		the offset
+   */
+  public int getStart(int col) {
+    return start[col];
+  }
+
+  /**
+   * Returns the length of the cell's content in the buffer.
+   *
+   * @param col		the index of the cell
+   * @return		the length
+   */
+  public int getLength(int col) {
+    return length[col];
+  }
+
+  /**
+   * Returns the content of the cell as string.
+   *
+   * @param col		the index of the cell
+   * @return		the content, null if missing
+   */
+  public String getString(int col) {
+    if (missing[col])
+      return null;
+    return new String(text, start[col], length[col], StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the parsed value of a NUMERIC cell.
+   *
+   * @param col		the index of the cell
+   * @return		the value, undefined if missing or not NUMERIC
+   */
+  public double getDouble(int col) {
+    return numeric[col];
+  }
+
+  /**
+   * Returns the parsed value of a DATE cell.
+   *
+   * @param col		the index of the cell
+   * @return		the epoch milliseconds, undefined if missing or not DATE
+   */
+  public long getDate(int col) {
+    return date[col];
+  }
+
+  /**
+   * Returns whether the data line specified an instance weight.
+   *
+   * @return		true if weight specified
+   */
+  public boolean hasWeight() {
+    return hasWeight;
+  }
+
+  /**
+   * Returns the instance weight.
+   *
+   * @return		the weight, 1 if none specified
+   */
+  public double getWeight() {
+    return weight;
+  }
+
+  /**
+   * Returns the 1-based index of the line in the input that this row was read from.
+   *
+   * @return		the line index
+   */
+  public long getLineIndex() {
+    return lineIndex;
+  }
+}
@@ -0,0 +1,443 @@
+/*
+ * ArffRowFeaturizer.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.basicdataset.tabular.utils.DynamicBuffer;
+import ai.djl.basicdataset.tabular.utils.Feature;
+import ai.djl.basicdataset.tabular.utils.Featurizer;
+import ai.djl.basicdataset.tabular.utils.Featurizers;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Assembles the features of single rows from the columns. The column of
+ * each feature and how to get its value (i.e., the plan) are determined once,
+ * when the featurizer is instantiated. Assembling a row therefore requires
+ * neither looking up column names nor unboxing column indices.
+ * <br>
+ * NUMERIC and DATE columns that use the plain numeric featurizer are read
+ * directly from their storage. Doubles get turned into floats with
+ * {@link ArffNumberParser#toFloat(double)}, i.e., the same way as featurizing
+ * their string representation. For NOMINAL and STRING columns, the output of
+ * the featurizer (e.g., the one-hot encoding) gets computed once per distinct
+ * value and then copied using the code stored in the column, i.e., no strings
+ * get created. For all other combinations, the value of the cell gets featurized.
+ * <br>
+ * The values of a row are written into a single float array, of which the
+ * NDArray gets created. Batches of rows get gathered feature by feature into
+ * a single row-major array, see {@link #featurize(float[], long[])}.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffRowFeaturizer {
+
+  /** featurize the string value of the cell. */
+  public static final int PLAN_FEATURIZE = 0;
+
+  /** double values. */
+  public static final int PLAN_DOUBLE = 1;
+
+  /** float values. */
+  public static final int PLAN_FLOAT = 2;
+
+  /** epoch milliseconds, missing values become NaN. */
+  public static final int PLAN_DATE = 3;
+
+  /** off-heap numeric values. */
+  public static final int PLAN_OFFHEAP_NUMERIC = 4;
+
+  /** off-heap epoch milliseconds, missing values become NaN. */
+  public static final int PLAN_OFFHEAP_DATE = 5;
+
+  /** sparse numeric values. */
+  public static final int PLAN_SPARSE_NUMERIC = 6;
+
+  /** sparse epoch milliseconds, missing values become NaN. */
+  public static final int PLAN_SPARSE_DATE = 7;
+
+  /** featurized values per dictionary code, missing values get featurized. */
+  public static final int PLAN_DICTIONARY = 8;
+
+  /** featurized values per off-heap dictionary code, missing values get featurized. */
+  public static final int PLAN_OFFHEAP_DICTIONARY = 9;
+
+  protected List<Feature> features;
+  protected int[] indices;
+  protected ArffColumn[] columns;
+  protected Featurizer[] featurizers;
+  protected int[] plan;
+  protected int[] widths;
+  protected int width;
+  protected List<AtomicReferenceArray<float[]>> tables;
+
+  /**
+   * Initializes the featurizer.
+   *
+   * @param columns	the columns to get the values from
+   * @param attLookUp	the lookup for column name/index
+   * @param features	the features to assemble
+   */
+  public ArffRowFeaturizer(List<ArffColumn> columns, Map<String,Integer> attLookUp, List<Feature> features) {
+    Feature	feature;
+    int		i;
+
+    this.features = new ArrayList<>(features);
+    this.columns  = new ArffColumn[features.size()];
+    indices       = new int[features.size()];
+    featurizers   = new Featurizer[features.size()];
+    plan          = new int[features.size()];
+    widths        = new int[features.size()];
+    tables        = new ArrayList<>();
+    width         = 0;
+    for (i = 0; i < features.size(); i++) {
+      feature         = features.get(i);
+      indices[i]      = attLookUp.get(feature.getName());
+      this.columns[i] = columns.get(indices[i]);
+      featurizers[i]  = feature.getFeaturizer();
+      plan[i]         = determinePlan(this.columns[i], featurizers[i]);
+      widths[i]       = determineWidth(i);
+      width          += widths[i];
+      if (plan[i] == PLAN_DICTIONARY)
+	tables.add(new AtomicReferenceArray<>(((ArffDictionaryColumn) this.columns[i]).dictionary.size()));
+      else if (plan[i] == PLAN_OFFHEAP_DICTIONARY)
+	tables.add(new AtomicReferenceArray<>(((ArffOffHeapDictionaryColumn) this.columns[i]).dictionary.size()));
+      else
+	tables.add(null);
+    }
+  }
+
+  /**
+   * Determines how to get the value of a column.
+   *
+   * @param column	the column
+   * @param featurizer	the featurizer of the column
+   * @return		the plan
+   */
+  protected int determinePlan(ArffColumn column, Featurizer featurizer) {
+    if (column instanceof ArffDictionaryColumn)
+      return PLAN_DICTIONARY;
+    else if (column instanceof ArffOffHeapDictionaryColumn)
+      return PLAN_OFFHEAP_DICTIONARY;
+    else if (featurizer != Featurizers.getNumericFeaturizer())
+      return PLAN_FEATURIZE;
+    else if (column instanceof ArffNumericColumn)
+      return PLAN_DOUBLE;
+    else if (column instanceof ArffFloatColumn)
+      return PLAN_FLOAT;
+    else if (column instanceof ArffDateColumn)
+      return PLAN_DATE;
+    else if (column instanceof ArffOffHeapNumericColumn)
+      return PLAN_OFFHEAP_NUMERIC;
+    else if (column instanceof ArffOffHeapDateColumn)
+      return PLAN_OFFHEAP_DATE;
+    else if ((column instanceof ArffSparseColumn) && (column.getType() == ArffAttributeType.NUMERIC))
+      return PLAN_SPARSE_NUMERIC;
+    else if ((column instanceof ArffSparseColumn) && (column.getType() == ArffAttributeType.DATE))
+      return PLAN_SPARSE_DATE;
+    else
+      return PLAN_FEATURIZE;
+  }
+
+  /**
+   * Determines the number of values that the featurizer of the feature
+   * generates, featurizing the value of the first row if the featurizer
+   * can't tell.
+   *
+   * @param i		the index of the feature
+   * @return		the width
+   */
+  protected int determineWidth(int i) {
+    DynamicBuffer	buffer;
+
+    if ((plan[i] != PLAN_FEATURIZE) && (plan[i] != PLAN_DICTIONARY) && (plan[i] != PLAN_OFFHEAP_DICTIONARY))
+      return 1;
+
+    try {
+      return featurizers[i].dataRequired();
+    }
+    catch (RuntimeException e) {
+      if (columns[i].size() == 0)
+	return 1;
+      buffer = new DynamicBuffer();
+      featurizers[i].featurize(buffer, columns[i].getString(0));
+      return buffer.getLength();
+    }
+  }
+
+  /**
+   * Returns the features that get assembled.
+   *
+   * @return		the features
+   */
+  public List<Feature> getFeatures() {
+    return features;
+  }
+
+  /**
+   * Returns the column indices of the features.
+   *
+   * @return		the indices
+   */
+  public int[] getIndices() {
+    return indices;
+  }
+
+  /**
+   * Returns the number of values generated per row.
+   *
+   * @return		the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the code of the dictionary value in the row.
+   *
+   * @param i		the index of the feature
+   * @param row		the row index
+   * @return		the code, -1 if missing
+   */
+  protected int getCode(int i, int row) {
+    if (plan[i] == PLAN_DICTIONARY)
+      return ((ArffDictionaryColumn) columns[i]).getCode(row);
+    else
+      return ((ArffOffHeapDictionaryColumn) columns[i]).getCode(row);
+  }
+
+  /**
+   * Returns the featurized dictionary value, featurizing it the first time
+   * it is requested.
+   *
+   * @param i		the index of the feature
+   * @param code	the dictionary code
+   * @return		the values, null if the code is not covered
+   */
+  protected float[] lookUp(int i, int code) {
+    AtomicReferenceArray<float[]>	table;
+    float[]				result;
+    String				value;
+
+    table = tables.get(i);
+    if ((code < 0) || (code >= table.length()))
+      return null;
+
+    result = table.get(code);
+    if (result == null) {
+      if (plan[i] == PLAN_DICTIONARY)
+	value = ((ArffDictionaryColumn) columns[i]).dictionary.get(code);
+      else
+	value = ((ArffOffHeapDictionaryColumn) columns[i]).dictionary.get(code);
+      result = featurize(i, value);
+      table.set(code, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Featurizes the value with the featurizer of the feature.
+   *
+   * @param i		the index of the feature
+   * @param value	the value, null if missing
+   * @return		the values
+   * @throws IllegalStateException	if the number of values differs from the width
+   */
+  protected float[] featurize(int i, String value) {
+    DynamicBuffer	buffer;
+    FloatBuffer		values;
+    float[]		result;
+
+    buffer = new DynamicBuffer();
+    featurizers[i].featurize(buffer, value);
+    if (buffer.getLength() != widths[i])
+      throw new IllegalStateException("Featurizer of '" + features.get(i).getName() + "' generated " + buffer.getLength() + " rather than " + widths[i] + " values!");
+    values = buffer.getBuffer();
+    result = new float[buffer.getLength()];
+    values.get(result);
+
+    return result;
+  }
+
+  /**
+   * Writes the features of the row into the array.
+   *
+   * @param values	the array to write to
+   * @param offset	the position of the first value
+   * @param row		the row index
+   */
+  public void featurize(float[] values, int offset, int row) {
+    int		i;
+
+    for (i = 0; i < plan.length; i++) {
+      featurize(i, values, offset, row);
+      offset += widths[i];
+    }
+  }
+
+  /**
+   * Writes the features of the rows into the row-major array (rows x width).
+   * The values get gathered feature by feature, i.e., the plan only gets
+   * evaluated once per feature and the columns are read sequentially if the
+   * rows are sorted.
+   *
+   * @param values	the array to write to
+   * @param rows	the row indices
+   */
+  public void featurize(float[] values, long[] rows) {
+    ArffColumn	column;
+    float[]	cell;
+    int		i;
+    int		n;
+    int		row;
+    int		offset;
+
+    offset = 0;
+    for (i = 0; i < plan.length; i++) {
+      column = columns[i];
+      switch (plan[i]) {
+	case PLAN_DOUBLE:
+	  for (n = 0; n < rows.length; n++)
+	    values[n * width + offset] = ArffNumberParser.toFloat(((ArffNumericColumn) column).values[(int) rows[n]]);
+	  break;
+	case PLAN_FLOAT:
+	  for (n = 0; n < rows.length; n++)
+	    values[n * width + offset] = ((ArffFloatColumn) column).values[(int) rows[n]];
+	  break;
+	case PLAN_OFFHEAP_NUMERIC:
+	  for (n = 0; n < rows.length; n++)
+	    values[n * width + offset] = ((ArffOffHeapNumericColumn) column).getFloat((int) rows[n]);
+	  break;
+	case PLAN_DICTIONARY:
+	case PLAN_OFFHEAP_DICTIONARY:
+	  for (n = 0; n < rows.length; n++) {
+	    row  = (int) rows[n];
+	    cell = lookUp(i, getCode(i, row));
+	    if (cell == null)
+	      cell = featurize(i, column.getString(row));
+	    System.arraycopy(cell, 0, values, n * width + offset, widths[i]);
+	  }
+	  break;
+	default:
+	  for (n = 0; n < rows.length; n++)
+	    featurize(i, values, n * width + offset, (int) rows[n]);
+	  break;
+      }
+      offset += widths[i];
+    }
+  }
+
+  /**
+   * Writes the value(s) of a single cell into the array.
+   *
+   * @param i		the index of the feature
+   * @param values	the array to write to
+   * @param offset	the position of the first value
+   * @param row		the row index
+   */
+  protected void featurize(int i, float[] values, int offset, int row) {
+    ArffColumn	column;
+    float[]	cell;
+
+    column = columns[i];
+    switch (plan[i]) {
+      case PLAN_DOUBLE:
+	values[offset] = ArffNumberParser.toFloat(((ArffNumericColumn) column).getDouble(row));
+	break;
+      case PLAN_FLOAT:
+	values[offset] = ((ArffFloatColumn) column).getFloat(row);
+	break;
+      case PLAN_OFFHEAP_NUMERIC:
+	values[offset] = ((ArffOffHeapNumericColumn) column).getFloat(row);
+	break;
+      case PLAN_SPARSE_NUMERIC:
+	values[offset] = ArffNumberParser.toFloat(((ArffSparseColumn) column).getDouble(row));
+	break;
+      case PLAN_DATE:
+	if (column.isMissing(row))
+	  values[offset] = Float.NaN;
+	else
+	  values[offset] = (float) ((ArffDateColumn) column).getDate(row);
+	break;
+      case PLAN_OFFHEAP_DATE:
+	if (column.isMissing(row))
+	  values[offset] = Float.NaN;
+	else
+	  values[offset] = (float) ((ArffOffHeapDateColumn) column).getDate(row);
+	break;
+      case PLAN_SPARSE_DATE:
+	if (column.isMissing(row))
+	  values[offset] = Float.NaN;
+	else
+	  values[offset] = (float) ((ArffSparseColumn) column).getDouble(row);
+	break;
+      case PLAN_DICTIONARY:
+      case PLAN_OFFHEAP_DICTIONARY:
+	cell = lookUp(i, getCode(i, row));
+	if (cell == null)
+	  cell = featurize(i, column.getString(row));
+	System.arraycopy(cell, 0, values, offset, widths[i]);
+	break;
+      default:
+	System.arraycopy(featurize(i, column.getString(row)), 0, values, offset, widths[i]);
+	break;
+    }
+  }
+
+  /**
+   * Appends the features of the row to the buffer.
+   *
+   * @param buffer	the buffer to append to
+   * @param row		the row index
+   */
+  public void featurize(DynamicBuffer buffer, int row) {
+    float[]	values;
+
+    values = new float[width];
+    featurize(values, 0, row);
+    for (float value: values)
+      buffer.put(value);
+  }
+
+  /**
+   * Creates the 1-dimensional NDArray with the features of the row.
+   *
+   * @param manager	the manager to create the array with
+   * @param row		the row index
+   * @return		the array
+   */
+  public NDArray toNDArray(NDManager manager, int row) {
+    float[]	values;
+
+    values = new float[width];
+    featurize(values, 0, row);
+
+    return manager.create(values);
+  }
+
+  /**
+   * Creates the 2-dimensional NDArray (rows x width) with the features of the rows.
+   *
+   * @param manager	the manager to create the array with
+   * @param rows	the row indices
+   * @return		the array
+   */
+  public NDArray toNDArray(NDManager manager, long[] rows) {
+    float[]	values;
+
+    values = new float[rows.length * width];
+    featurize(values, rows);
+
+    return manager.create(values, new Shape(rows.length, width));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * ArffRowFilter.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Decides which rows to keep while reading, see
+ * {@link ArffReader#setRowFilters(java.util.List)}. Only the cells of the
+ * columns returned by {@link #getColumns()} are decoded when the filter gets
+ * called, all other cells of a row only get decoded if the row is accepted.
+ * <br>
+ * When parsing with multiple threads, the same instance is used by all
+ * threads, i.e., {@link #accept(ArffRow)} must not modify the filter.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface ArffRowFilter {
+
+  /**
+   * Prepares the filter for the data, e.g., resolving column names.
+   * Gets called once the header has been read.
+   *
+   * @param reader	the reader that has read the header
+   * @throws Exception	if the filter is not applicable to the data
+   */
+  public void initialize(ArffReader reader) throws Exception;
+
+  /**
+   * Returns the columns that the filter requires to be decoded.
+   *
+   * @return		the column indices
+   */
+  public int[] getColumns();
+
+  /**
+   * Checks whether to keep the row.
+   *
+   * @param row		the row, with the cells of the required columns decoded
+   * @return		true if to keep
+   */
+  public boolean accept(ArffRow row);
+
+  /**
+   * Returns a description of the filter and its settings that does not
+   * change between runs, used in the keys of {@link ArffCache} and
+   * {@link ArffRowIndex}. Without a description, these files don't get used.
+   *
+   * @return		the description, null if none available
+   */
+  public default String getDescription() {
+    return null;
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * ArffRowIndex.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The byte offsets of the rows in the data section of an ARFF file, for
+ * reading single rows without loading the data (see {@link ArffIndexedRows}).
+ * The offset after the last row is stored as well, i.e., the bytes of a row
+ * range from its offset up to the offset of the next row. Empty lines and
+ * comments in that range get skipped when parsing the row.
+ * <br>
+ * The index can be stored in a file next to the ARFF file, which gets
+ * memory-mapped when reading it, i.e., the offsets don't get copied onto
+ * the heap. The file is keyed by the location, size and modification time
+ * of the ARFF file and the row filters. All numbers are stored in little
+ * endian byte order.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffRowIndex {
+
+  /** the extension of index files. */
+  public static final String EXTENSION = ".djlindex";
+
+  /** the magic bytes at the start of the file. */
+  public static final long MAGIC = 0x58444E4946465241L; // "ARFFINDX"
+
+  /** the version of the file format. */
+  public static final int VERSION = 1;
+
+  /** the number of bits of the row index that address the offsets within a segment. */
+  protected static final int SEGMENT_BITS = 27;
+
+  /** the mask for the offsets within a segment. */
+  protected static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+  protected long headerEnd;
+  protected LongBuffer[] offsets;
+  protected int numRows;
+
+  /**
+   * Initializes the index.
+   *
+   * @param headerEnd	the offset of the end of the header
+   * @param offsets	the offsets of the rows, followed by the offset after the last row
+   * @param numRows	the number of rows
+   */
+  public ArffRowIndex(long headerEnd, long[] offsets, int numRows) {
+    int		i;
+    int		start;
+
+    this.headerEnd = headerEnd;
+    this.offsets   = new LongBuffer[(numRows >> SEGMENT_BITS) + 1];
+    this.numRows   = numRows;
+    for (i = 0; i < this.offsets.length; i++) {
+      start           = i << SEGMENT_BITS;
+      this.offsets[i] = LongBuffer.wrap(offsets, start, Math.min(SEGMENT_MASK + 1, numRows + 1 - start)).slice();
+    }
+  }
+
+  /**
+   * Initializes the index with offsets that are stored in buffers of
+   * 2^{@link #SEGMENT_BITS} offsets each (the last one can be shorter).
+   *
+   * @param headerEnd	the offset of the end of the header
+   * @param offsets	the buffers with the offsets of the rows, followed by the offset after the last row
+   * @param numRows	the number of rows
+   */
+  protected ArffRowIndex(long headerEnd, LongBuffer[] offsets, int numRows) {
+    this.headerEnd = headerEnd;
+    this.offsets   = offsets;
+    this.numRows   = numRows;
+  }
+
+  /**
+   * Scans the data section for the rows. Without row filters, only the line
+   * starts get determined, skipping empty lines and comments, i.e., the rows
+   * don't get parsed. Otherwise, the rows get read to apply the filters,
+   * decoding only the cells of the columns that the filters require.
+   * The offset after the last row is the end of the data read.
+   *
+   * @param reader		the reader that has read the header
+   * @return			the index
+   * @throws IOException	if reading fails
+   */
+  public static ArffRowIndex scan(ArffReader reader) throws IOException {
+    ArffTokenizer	tokenizer;
+    ArffRow		row;
+    ByteBuffer		block;
+    long[]		offsets;
+    long		offset;
+    long		headerEnd;
+    long		lineStart;
+    boolean		atStart;
+    boolean		inspect;
+    int			numRows;
+    int			i;
+    byte		b;
+
+    tokenizer = reader.getTokenizer();
+    headerEnd = tokenizer.getPosition();
+    offsets   = new long[ArffColumn.INITIAL_CAPACITY];
+    numRows   = 0;
+
+    if (reader.getRowFilters().isEmpty()) {
+      atStart   = true;
+      inspect   = false;
+      lineStart = headerEnd;
+      while ((block = tokenizer.nextRawBlock()) != null) {
+	offset = tokenizer.getRawBlockOffset() - block.position();
+	for (i = block.position(); i < block.limit(); i++) {
+	  b = block.get(i);
+	  if (atStart) {
+	    lineStart = offset + i;
+	    atStart   = false;
+	    inspect   = true;
+	  }
+	  if (b == '\n') {
+	    atStart = true;
+	  }
+	  else if (inspect && !ArffTokenizer.isWhitespace(b)) {
+	    inspect = false;
+	    if (b != '%') {
+	      if (numRows == offsets.length - 1)
+		offsets = Arrays.copyOf(offsets, offsets.length * 2);
+	      offsets[numRows++] = lineStart;
+	    }
+	  }
+	}
+      }
+    }
+    else {
+      row = reader.newRow();
+      while (reader.next(row)) {
+	if (numRows == offsets.length - 1)
+	  offsets = Arrays.copyOf(offsets, offsets.length * 2);
+	offsets[numRows++] = tokenizer.getLineOffset();
+      }
+    }
+
+    offsets[numRows] = tokenizer.getPosition();
+
+    return new ArffRowIndex(headerEnd, Arrays.copyOf(offsets, numRows + 1), numRows);
+  }
+
+  /**
+   * Returns the offset of the end of the header, i.e., the start of the data section.
+   *
+   * @return		the offset
+   */
+  public long getHeaderEnd() {
+    return headerEnd;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * Returns the offset of the row.
+   *
+   * @param row		the row index, the number of rows for the offset after the last row
+   * @return		the offset
+   */
+  public long getOffset(int row) {
+    return offsets[row >>> SEGMENT_BITS].get(row & SEGMENT_MASK);
+  }
+
+  /**
+   * Returns the default index file for the ARFF file, located next to it.
+   *
+   * @param arffFile	the ARFF file
+   * @return		the index file
+   */
+  public static Path sidecar(Path arffFile) {
+    return arffFile.resolveSibling(arffFile.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Generates the key for the ARFF file and the row filters and shard of the parser.
+   * Unlike the key of the {@link ArffCache}, it doesn't contain a checksum,
+   * since computing one requires reading the whole file.
+   *
+   * @param arffFile	the ARFF file
+   * @param parser	the parser with the options
+   * @return		the key, null if a row filter has no description,
+   * 			i.e., the index can't be stored
+   * @throws IOException	if accessing the file fails
+   */
+  public static String key(Path arffFile, ArffParser parser) throws IOException {
+    StringBuilder	result;
+    String		filters;
+
+    filters = ArffCache.describe(parser.getRowFilters());
+    if (filters == null)
+      return null;
+
+    result = new StringBuilder();
+    result.append("file=").append(arffFile.toAbsolutePath().normalize().toUri());
+    result.append("\nsize=").append(Files.size(arffFile));
+    result.append("\nmtime=").append(Files.getLastModifiedTime(arffFile).toMillis());
+    if (!filters.isEmpty()) {
+      result.append("\ntrustedInput=").append(parser.isTrustedInput());
+      result.append("\nrowFilters=").append(filters);
+    }
+    if (parser.getNumShards() > 1)
+      result.append("\nshard=").append(parser.getShardRank()).append("/").append(parser.getNumShards());
+
+    return result.toString();
+  }
+
+  /**
+   * Writes the index to the file. The file gets written to a temporary
+   * file first, which then replaces the index file.
+   *
+   * @param file	the index file
+   * @param key		the key of the index, see {@link #key(Path, ArffParser)}
+   * @throws IOException	if writing fails
+   */
+  public void write(Path file, String key) throws IOException {
+    Path		tmp;
+    ArffCache.Output	out;
+    int			i;
+
+    tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      out = new ArffCache.Output(channel);
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeString(key);
+      out.writeLong(headerEnd);
+      out.writeInt(numRows);
+      for (i = 0; i <= numRows; i++)
+	out.writeLong(getOffset(i));
+      out.flush();
+    }
+    catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the index from the file, memory-mapping the offsets.
+   * Index files that are corrupt or can't be read count as missing.
+   *
+   * @param file	the index file
+   * @param key		the key of the index, see {@link #key(Path, ArffParser)}
+   * @return		the index, null if not present or not matching the key
+   */
+  public static ArffRowIndex read(Path file, String key) {
+    ArffCache.Input	in;
+    LongBuffer[]	offsets;
+    long		headerEnd;
+    long		position;
+    long		length;
+    int			numRows;
+    int			i;
+
+    if (!Files.isRegularFile(file))
+      return null;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      in = new ArffCache.Input(channel);
+      if ((in.size < 12) || (in.readLong() != MAGIC) || (in.readInt() != VERSION))
+	return null;
+      if (!in.readString().equals(key))
+	return null;
+      headerEnd = in.readLong();
+      numRows   = in.readInt();
+      position  = in.windowStart + in.window.position();
+      if ((numRows < 0) || (position + (numRows + 1L) * Long.BYTES != in.size))
+	return null;
+
+      offsets = new LongBuffer[(numRows >> SEGMENT_BITS) + 1];
+      for (i = 0; i < offsets.length; i++) {
+	length     = Math.min(SEGMENT_MASK + 1, numRows + 1 - ((long) i << SEGMENT_BITS));
+	offsets[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+	position  += length * Long.BYTES;
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      return null;
+    }
+
+    return new ArffRowIndex(headerEnd, offsets, numRows);
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * ArffRowVisitor.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Callback for rows pushed by an {@link ArffReader}.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+@FunctionalInterface
+public interface ArffRowVisitor {
+
+  /**
+   * Processes the row. The row instance gets reused, i.e., its values must
+   * be copied if they are to be kept.
+   *
+   * @param row		the current row
+   * @return		true to continue, false to stop reading
+   * @throws Exception	if processing fails
+   */
+  public boolean visit(ArffRow row) throws Exception;
+}
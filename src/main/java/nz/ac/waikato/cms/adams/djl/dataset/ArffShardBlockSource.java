@@ -0,0 +1,243 @@
+/*
+ * ArffShardBlockSource.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Hands out only the lines of the data section that belong to one of
+ * several shards, e.g., for distributed training where each worker loads
+ * a different part of the same file.
+ * <br>
+ * If the size of the input is known, the data section gets split into byte
+ * ranges of equal size and a line belongs to the shard whose range contains
+ * the line's first byte. The boundaries get realigned by scanning forward to
+ * the next newline, i.e., every line lands in exactly one shard. Blocks
+ * before the shard's range are skipped without looking at their content
+ * and reading stops at the end of the range.
+ * <br>
+ * Otherwise (e.g., compressed files), the lines get dealt out in turn, i.e.,
+ * line i belongs to shard i modulo the number of shards. In that case, the
+ * offsets of the blocks only approximate the location of their lines.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffShardBlockSource
+  implements ArffBlockSource {
+
+  protected ArffTokenizer tokenizer;
+  protected int rank;
+  protected int numShards;
+  protected long size;
+  protected long start;
+  protected long end;
+  protected boolean started;
+  protected boolean done;
+  protected long lineIndex;
+  protected long blockOffset;
+
+  /**
+   * Initializes the source.
+   *
+   * @param tokenizer	the tokenizer that has read the header
+   * @param rank	the index of the shard (0-based)
+   * @param numShards	the number of shards
+   */
+  public ArffShardBlockSource(ArffTokenizer tokenizer, int rank, int numShards) {
+    long	dataStart;
+
+    if ((numShards < 1) || (rank < 0) || (rank >= numShards))
+      throw new IllegalArgumentException("Invalid shard " + rank + " of " + numShards + "!");
+
+    dataStart      = tokenizer.getPosition();
+    this.tokenizer = tokenizer;
+    this.rank      = rank;
+    this.numShards = numShards;
+    size           = tokenizer.getSource().getSize();
+    if (size > -1) {
+      start = dataStart + (size - dataStart) * rank / numShards;
+      end   = dataStart + (size - dataStart) * (rank + 1) / numShards;
+    }
+    started     = false;
+    done        = false;
+    lineIndex   = 0;
+    blockOffset = dataStart;
+  }
+
+  /**
+   * Returns the index of the shard.
+   *
+   * @return		the index (0-based)
+   */
+  public int getRank() {
+    return rank;
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return		the number of shards
+   */
+  public int getNumShards() {
+    return numShards;
+  }
+
+  /**
+   * Locates the first line in the block that starts at or after the offset.
+   * Blocks always start at the start of a line.
+   *
+   * @param block	the block
+   * @param offset	the absolute offset of the block's index 0
+   * @param target	the absolute offset to locate
+   * @return		the index in the block, the limit if no line starts
+   * 			in the remainder of the block, -1 if the offset lies
+   * 			beyond the block
+   */
+  protected int align(ByteBuffer block, long offset, long target) {
+    int		i;
+
+    if (target <= offset + block.position())
+      return block.position();
+    if (target > offset + block.limit())
+      return -1;
+    for (i = (int) (target - offset) - 1; i < block.limit(); i++) {
+      if (block.get(i) == '\n')
+	return i + 1;
+    }
+
+    return block.limit();
+  }
+
+  /**
+   * Returns the lines of the next block that fall into the shard's byte range.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   */
+  protected ByteBuffer nextRange() throws IOException {
+    ByteBuffer	block;
+    ByteBuffer	result;
+    long	offset;
+    int		first;
+    int		last;
+
+    while (!done) {
+      block = tokenizer.nextRawBlock();
+      if (block == null)
+	break;
+      offset = tokenizer.getRawBlockOffset() - block.position();
+      first  = block.position();
+      if (!started) {
+	first = align(block, offset, start);
+	if (first == -1)
+	  continue;
+	started = true;
+      }
+      last = align(block, offset, end);
+      if (last == -1)
+	last = block.limit();
+      else
+	done = true;
+      if (first < last) {
+	result = block.duplicate();
+	result.position(first);
+	result.limit(last);
+	blockOffset = offset + first;
+	return result;
+      }
+    }
+
+    done = true;
+    return null;
+  }
+
+  /**
+   * Returns the lines of the next block that are dealt to the shard.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   */
+  protected ByteBuffer nextLines() throws IOException {
+    ByteBuffer	block;
+    ByteBuffer	line;
+    ByteBuffer	result;
+    int		lineStart;
+    int		i;
+
+    while ((block = tokenizer.nextRawBlock()) != null) {
+      result    = ByteBuffer.allocate(block.remaining() / numShards + 1024);
+      lineStart = block.position();
+      for (i = block.position(); i < block.limit(); i++) {
+	if ((block.get(i) != '\n') && (i < block.limit() - 1))
+	  continue;
+	if (lineIndex % numShards == rank) {
+	  if (result.remaining() < i + 1 - lineStart) {
+	    result.flip();
+	    result = ByteBuffer.allocate(Math.max(result.capacity() * 2, result.limit() + i + 1 - lineStart)).put(result);
+	  }
+	  line = block.duplicate();
+	  line.position(lineStart);
+	  line.limit(i + 1);
+	  result.put(line);
+	}
+	lineIndex++;
+	lineStart = i + 1;
+      }
+      if (result.position() > 0) {
+	result.flip();
+	blockOffset = tokenizer.getRawBlockOffset();
+	return result;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the next block of complete lines of the shard, from position to limit.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public ByteBuffer nextBlock() throws IOException {
+    if (size > -1)
+      return nextRange();
+    else
+      return nextLines();
+  }
+
+  /**
+   * Returns the absolute offset in the input of the position of the last block.
+   *
+   * @return		the offset
+   */
+  @Override
+  public long getBlockOffset() {
+    return blockOffset;
+  }
+
+  /**
+   * Returns the size of the underlying input.
+   *
+   * @return		the size in bytes, -1 if unknown
+   */
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Closes the tokenizer that reads the complete input.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    tokenizer.close();
+  }
+}
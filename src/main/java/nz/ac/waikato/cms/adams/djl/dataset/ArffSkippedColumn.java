@@ -0,0 +1,150 @@
+/*
+ * ArffSkippedColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Placeholder for a column that was not selected for loading, see
+ * {@link ArffParser#setSelectedColumns(java.util.Set)}. Only counts the rows,
+ * accessing its values results in an {@link IllegalStateException}, as they
+ * cannot be told apart from missing ones otherwise.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffSkippedColumn
+  extends ArffColumn {
+
+  /**
+   * Initializes the column.
+   *
+   * @param name	the name of the column
+   * @param type	the type of the column
+   */
+  public ArffSkippedColumn(String name, ArffAttributeType type) {
+    super(name, type);
+  }
+
+  /**
+   * Creates the exception for accessing the values of the column.
+   *
+   * @return		the exception
+   */
+  protected IllegalStateException notLoaded() {
+    return new IllegalStateException("Column '" + name + "' was not loaded, as it is neither a feature nor a label "
+					+ "(column projection); use optColumnProjection(false) to load all columns!");
+  }
+
+  /**
+   * Not available, as the values were not loaded.
+   *
+   * @param row		the row index
+   * @return		nothing
+   * @throws IllegalStateException	always
+   */
+  @Override
+  public boolean isMissing(int row) {
+    throw notLoaded();
+  }
+
+  /**
+   * Only counts the row.
+   *
+   * @param row		ignored
+   * @param col		ignored
+   */
+  @Override
+  public void add(ArffRow row, int col) {
+    size++;
+  }
+
+  /**
+   * Only counts the row.
+   */
+  @Override
+  public void addDefault() {
+    size++;
+  }
+
+  /**
+   * Only counts the rows of the other column.
+   *
+   * @param other	the column to append
+   */
+  @Override
+  public void addAll(ArffColumn other) {
+    size += other.size;
+  }
+
+  /**
+   * Does nothing.
+   *
+   * @param capacity	ignored
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  protected void addMissing() {
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  protected void addDefaultValue() {
+  }
+
+  /**
+   * Does nothing.
+   *
+   * @param row		ignored
+   * @param col		ignored
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+  }
+
+  /**
+   * Does nothing.
+   *
+   * @param other	ignored
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+  }
+
+  /**
+   * Not available, as the values were not loaded.
+   *
+   * @param row		the row index
+   * @return		nothing
+   * @throws IllegalStateException	always
+   */
+  @Override
+  public String getString(int row) {
+    throw notLoaded();
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public void compact() {
+  }
+
+  /**
+   * Returns a new, empty column of the same type.
+   *
+   * @return		the column
+   */
+  @Override
+  public ArffColumn newInstance() {
+    return new ArffSkippedColumn(name, type);
+  }
+}
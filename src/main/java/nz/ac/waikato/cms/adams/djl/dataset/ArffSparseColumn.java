@@ -0,0 +1,148 @@
+/*
+ * ArffSparseColumn.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+/**
+ * Read-only view of a single column of an {@link ArffSparseData} storage.
+ * Values not stored in a row are the default value of the column.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffSparseColumn
+  extends ArffColumn {
+
+  protected ArffSparseData data;
+  protected int index;
+
+  /**
+   * Initializes the view.
+   *
+   * @param data	the underlying storage
+   * @param name	the name of the column
+   * @param type	the type of the column
+   * @param index	the index of the column in the storage
+   */
+  public ArffSparseColumn(ArffSparseData data, String name, ArffAttributeType type, int index) {
+    super(name, type);
+    this.data  = data;
+    this.index = index;
+    size       = data.getNumRows();
+  }
+
+  /**
+   * Returns the underlying storage.
+   *
+   * @return		the storage
+   */
+  public ArffSparseData getData() {
+    return data;
+  }
+
+  /**
+   * Returns the index of the column in the storage.
+   *
+   * @return		the index
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns whether the value in the specified row is missing.
+   *
+   * @param row		the row index
+   * @return		true if missing
+   */
+  @Override
+  public boolean isMissing(int row) {
+    return data.isMissing(row, index);
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   *
+   * @param capacity	ignored
+   */
+  @Override
+  protected void ensureCapacity(int capacity) {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   */
+  @Override
+  protected void addMissing() {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   */
+  @Override
+  protected void addDefaultValue() {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   *
+   * @param row		ignored
+   * @param col		ignored
+   */
+  @Override
+  protected void addValue(ArffRow row, int col) {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   *
+   * @param other	ignored
+   */
+  @Override
+  protected void addAllValues(ArffColumn other) {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+
+  /**
+   * Returns the value in the specified row, see {@link ArffSparseData#getValue(int)}.
+   *
+   * @param row		the row index
+   * @return		the value, NaN if missing
+   */
+  public double getDouble(int row) {
+    return data.getDouble(row, index);
+  }
+
+  /**
+   * Returns the value in the specified row as string.
+   *
+   * @param row		the row index
+   * @return		the value, null if missing
+   */
+  @Override
+  public String getString(int row) {
+    return data.getString(row, index);
+  }
+
+  /**
+   * Does nothing, the storage gets compacted by the parser.
+   */
+  @Override
+  public void compact() {
+  }
+
+  /**
+   * Not supported, the view is read-only.
+   *
+   * @return		nothing
+   */
+  @Override
+  public ArffColumn newInstance() {
+    throw new UnsupportedOperationException("Sparse columns are read-only!");
+  }
+}
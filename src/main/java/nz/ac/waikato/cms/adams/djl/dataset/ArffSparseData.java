@@ -0,0 +1,489 @@
+/*
+ * ArffSparseData.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the parsed data of sparse ARFF files in compressed sparse row (CSR)
+ * format: the entries of row i are located between the row pointers i and
+ * i+1 in the arrays of column indices and values, sorted by column index.
+ * I.e., the memory is proportional to the number of entries rather than
+ * rows x columns.
+ * <br>
+ * Only values that differ from the default get stored: 0 for NUMERIC and DATE
+ * columns, the first declared value for NOMINAL columns and the empty string
+ * for STRING columns. The values of NOMINAL and STRING columns are stored as
+ * codes of a {@link ArffDictionary} per column, DATE values as epoch
+ * milliseconds. Missing values are stored as entries as well (and recorded
+ * in the bitmap). Dense rows get added by storing their non-default values,
+ * with cells not present in the data line being missing. Columns that are
+ * not selected don't store any entries, all their values are missing.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffSparseData {
+
+  /** the initial number of rows/values, allocated when the first row gets added. */
+  public static final int INITIAL_CAPACITY = 1024;
+
+  protected List<String> colNames;
+  protected ArffAttributeType[] types;
+  protected ArffDictionary[] dictionaries;
+  protected boolean floatPrecision;
+  protected int numRows;
+  protected int[] rowPointers;
+  protected int numValues;
+  protected int[] colIndices;
+  protected double[] values;
+  protected BitSet missing;
+  protected boolean[] selected;
+
+  /**
+   * Initializes the storage. The dictionaries of NOMINAL columns get
+   * initialized with the declared values, i.e., the codes are the indices
+   * of the values in the header.
+   *
+   * @param colNames		the names of the columns
+   * @param colTypes		the types of the columns
+   * @param nominalValues	the declared values of the NOMINAL columns (name/values)
+   * @param floatPrecision	whether NUMERIC values were parsed with float precision only
+   */
+  public ArffSparseData(List<String> colNames, List<ArffAttributeType> colTypes, Map<String,List<String>> nominalValues, boolean floatPrecision) {
+    this(colNames, colTypes, nominalValues, floatPrecision, null);
+  }
+
+  /**
+   * Initializes the storage. The dictionaries of NOMINAL columns get
+   * initialized with the declared values, i.e., the codes are the indices
+   * of the values in the header.
+   *
+   * @param colNames		the names of the columns
+   * @param colTypes		the types of the columns
+   * @param nominalValues	the declared values of the NOMINAL columns (name/values)
+   * @param floatPrecision	whether NUMERIC values were parsed with float precision only
+   * @param selected		the flags of the columns to store, null for all columns
+   */
+  public ArffSparseData(List<String> colNames, List<ArffAttributeType> colTypes, Map<String,List<String>> nominalValues, boolean floatPrecision, boolean[] selected) {
+    int		i;
+
+    this.colNames       = colNames;
+    this.floatPrecision = floatPrecision;
+    this.selected       = selected;
+    types               = colTypes.toArray(new ArffAttributeType[0]);
+    dictionaries        = new ArffDictionary[types.length];
+    for (i = 0; i < types.length; i++) {
+      if ((types[i] == ArffAttributeType.NOMINAL) || (types[i] == ArffAttributeType.STRING)) {
+	dictionaries[i] = new ArffDictionary();
+	if (nominalValues.containsKey(colNames.get(i))) {
+	  for (String value: nominalValues.get(colNames.get(i)))
+	    dictionaries[i].encode(value);
+	}
+      }
+    }
+    numRows     = 0;
+    rowPointers = new int[1];
+    numValues   = 0;
+    colIndices  = new int[0];
+    values      = new double[0];
+    missing     = new BitSet();
+  }
+
+  /**
+   * Ensures that the storage can take the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  protected void ensureRowCapacity(int capacity) {
+    if (capacity + 1 > rowPointers.length)
+      rowPointers = Arrays.copyOf(rowPointers, Math.max(capacity + 1, Math.max(INITIAL_CAPACITY, rowPointers.length * 2)));
+  }
+
+  /**
+   * Ensures that the storage can take the specified number of values.
+   *
+   * @param capacity	the number of values
+   */
+  protected void ensureValueCapacity(int capacity) {
+    int		size;
+
+    if (capacity > values.length) {
+      size       = Math.max(capacity, Math.max(INITIAL_CAPACITY, values.length * 2));
+      colIndices = Arrays.copyOf(colIndices, size);
+      values     = Arrays.copyOf(values, size);
+    }
+  }
+
+  /**
+   * Appends the entry to the current row.
+   *
+   * @param col		the column index
+   * @param value	the value
+   * @param isMissing	whether the value is missing
+   */
+  protected void addEntry(int col, double value, boolean isMissing) {
+    ensureValueCapacity(numValues + 1);
+    colIndices[numValues] = col;
+    values[numValues]     = value;
+    if (isMissing)
+      missing.set(numValues);
+    numValues++;
+  }
+
+  /**
+   * Appends the cell of the decoded row to the current row, unless it is
+   * the default value.
+   *
+   * @param row		the decoded row
+   * @param cell	the index of the cell
+   * @param col		the column index of the cell
+   */
+  protected void addCell(ArffRow row, int cell, int col) {
+    int		code;
+
+    if (!isSelected(col))
+      return;
+    if (row.isMissing(cell)) {
+      addEntry(col, Double.NaN, true);
+      return;
+    }
+
+    switch (types[col]) {
+      case NUMERIC:
+	if (row.getDouble(cell) != 0)
+	  addEntry(col, row.getDouble(cell), false);
+	break;
+      case DATE:
+	if (row.getDate(cell) != 0)
+	  addEntry(col, row.getDate(cell), false);
+	break;
+      case NOMINAL:
+	code = dictionaries[col].encode(row.getText(), row.getStart(cell), row.getLength(cell));
+	if (code != 0)
+	  addEntry(col, code, false);
+	break;
+      case STRING:
+	if (row.getLength(cell) > 0)
+	  addEntry(col, dictionaries[col].encode(row.getText(), row.getStart(cell), row.getLength(cell)), false);
+	break;
+      default:
+	throw new IllegalStateException("Unhandled attribute type: " + types[col]);
+    }
+  }
+
+  /**
+   * Appends the decoded row, either sparse or dense.
+   *
+   * @param row		the row to add
+   */
+  public void add(ArffRow row) {
+    int		i;
+
+    for (i = 0; i < row.getNumCells(); i++)
+      addCell(row, i, row.getIndex(i));
+    // cells not present in dense rows are missing
+    if (!row.isSparse()) {
+      for (i = row.getNumCells(); i < types.length; i++) {
+	if (isSelected(i))
+	  addEntry(i, Double.NaN, true);
+      }
+    }
+
+    ensureRowCapacity(numRows + 1);
+    numRows++;
+    rowPointers[numRows] = numValues;
+  }
+
+  /**
+   * Appends all the rows of the other storage, translating the codes of
+   * NOMINAL and STRING values into the ones of this storage's dictionaries.
+   *
+   * @param other	the storage to append
+   */
+  public void addAll(ArffSparseData other) {
+    int[][]	mappings;
+    int		i;
+    int		col;
+
+    mappings = new int[types.length][];
+    for (i = 0; i < types.length; i++) {
+      if (dictionaries[i] != null)
+	mappings[i] = dictionaries[i].merge(other.dictionaries[i]);
+    }
+
+    ensureValueCapacity(numValues + other.numValues);
+    System.arraycopy(other.colIndices, 0, colIndices, numValues, other.numValues);
+    for (i = 0; i < other.numValues; i++) {
+      col = other.colIndices[i];
+      if (other.missing.get(i))
+	missing.set(numValues + i);
+      if ((mappings[col] != null) && !other.missing.get(i))
+	values[numValues + i] = mappings[col][(int) other.values[i]];
+      else
+	values[numValues + i] = other.values[i];
+    }
+
+    ensureRowCapacity(numRows + other.numRows);
+    for (i = 1; i <= other.numRows; i++)
+      rowPointers[numRows + i] = numValues + other.rowPointers[i];
+    numRows   += other.numRows;
+    numValues += other.numValues;
+  }
+
+  /**
+   * Trims the storage to the number of rows and values.
+   */
+  public void compact() {
+    if (rowPointers.length > numRows + 1)
+      rowPointers = Arrays.copyOf(rowPointers, numRows + 1);
+    if (values.length > numValues) {
+      colIndices = Arrays.copyOf(colIndices, numValues);
+      values     = Arrays.copyOf(values, numValues);
+    }
+  }
+
+  /**
+   * Returns the number of rows stored.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * Returns the number of columns.
+   *
+   * @return		the number of columns
+   */
+  public int getNumColumns() {
+    return types.length;
+  }
+
+  /**
+   * Returns the type of the column.
+   *
+   * @param col		the column index
+   * @return		the type
+   */
+  public ArffAttributeType getType(int col) {
+    return types[col];
+  }
+
+  /**
+   * Returns whether the column gets stored.
+   *
+   * @param col		the column index
+   * @return		true if stored
+   */
+  public boolean isSelected(int col) {
+    return (selected == null) || selected[col];
+  }
+
+  /**
+   * Returns the number of stored values, i.e., of all rows.
+   *
+   * @return		the number of values
+   */
+  public int getNumValues() {
+    return numValues;
+  }
+
+  /**
+   * Returns the position of the first entry of the row.
+   *
+   * @param row		the row index
+   * @return		the position
+   */
+  public int getRowStart(int row) {
+    return rowPointers[row];
+  }
+
+  /**
+   * Returns the position after the last entry of the row.
+   *
+   * @param row		the row index
+   * @return		the position
+   */
+  public int getRowEnd(int row) {
+    return rowPointers[row + 1];
+  }
+
+  /**
+   * Returns the column index of the entry.
+   *
+   * @param pos		the position of the entry
+   * @return		the column index
+   */
+  public int getColumnIndex(int pos) {
+    return colIndices[pos];
+  }
+
+  /**
+   * Returns the value of the entry: the number for NUMERIC columns,
+   * the epoch milliseconds for DATE columns and the code for NOMINAL and
+   * STRING columns.
+   *
+   * @param pos		the position of the entry
+   * @return		the value, NaN if missing
+   */
+  public double getValue(int pos) {
+    return values[pos];
+  }
+
+  /**
+   * Returns whether the value of the entry is missing.
+   *
+   * @param pos		the position of the entry
+   * @return		true if missing
+   */
+  public boolean isMissing(int pos) {
+    return missing.get(pos);
+  }
+
+  /**
+   * Locates the entry for the column in the row, using binary search.
+   *
+   * @param row		the row index
+   * @param col		the column index
+   * @return		the position of the entry, -1 if the row has no entry for the column
+   */
+  public int find(int row, int col) {
+    int		low;
+    int		high;
+    int		mid;
+
+    low  = rowPointers[row];
+    high = rowPointers[row + 1] - 1;
+    while (low <= high) {
+      mid = (low + high) >>> 1;
+      if (colIndices[mid] < col)
+	low = mid + 1;
+      else if (colIndices[mid] > col)
+	high = mid - 1;
+      else
+	return mid;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns whether the value is missing.
+   *
+   * @param row		the row index
+   * @param col		the column index
+   * @return		true if missing
+   */
+  public boolean isMissing(int row, int col) {
+    int		pos;
+
+    if (!isSelected(col))
+      return true;
+    pos = find(row, col);
+    return (pos > -1) && missing.get(pos);
+  }
+
+  /**
+   * Returns the value, see {@link #getValue(int)}.
+   *
+   * @param row		the row index
+   * @param col		the column index
+   * @return		the value, 0 if not stored, NaN if missing
+   */
+  public double getDouble(int row, int col) {
+    int		pos;
+
+    if (!isSelected(col))
+      return Double.NaN;
+    pos = find(row, col);
+    if (pos == -1)
+      return 0;
+    return values[pos];
+  }
+
+  /**
+   * Returns the value as string.
+   *
+   * @param row		the row index
+   * @param col		the column index
+   * @return		the value, null if missing
+   */
+  public String getString(int row, int col) {
+    int		pos;
+    double	value;
+
+    if (!isSelected(col))
+      return null;
+    pos = find(row, col);
+    if (pos == -1)
+      return getDefault(col);
+    if (missing.get(pos))
+      return null;
+
+    value = values[pos];
+    switch (types[col]) {
+      case NUMERIC:
+	return ArffColumn.formatNumber(value, floatPrecision);
+      case DATE:
+	return Long.toString((long) value);
+      default:
+	return dictionaries[col].get((int) value);
+    }
+  }
+
+  /**
+   * Returns the default value of the column as string, i.e., the value of
+   * cells that were not stored.
+   *
+   * @param col		the column index
+   * @return		the value
+   */
+  public String getDefault(int col) {
+    switch (types[col]) {
+      case NUMERIC:
+      case DATE:
+	return "0";
+      case NOMINAL:
+	if (dictionaries[col].size() > 0)
+	  return dictionaries[col].get(0);
+	else
+	  return "";
+      default:
+	return "";
+    }
+  }
+
+  /**
+   * Returns the dictionary of the NOMINAL or STRING column.
+   *
+   * @param col		the column index
+   * @return		the dictionary, null for other column types
+   */
+  public ArffDictionary getDictionary(int col) {
+    return dictionaries[col];
+  }
+
+  /**
+   * Returns read-only views of the columns.
+   *
+   * @return		the columns
+   */
+  public List<ArffColumn> getColumns() {
+    List<ArffColumn>	result;
+    int			i;
+
+    result = new ArrayList<>();
+    for (i = 0; i < types.length; i++)
+      result.add(new ArffSparseColumn(this, colNames.get(i), types[i], i));
+
+    return result;
+  }
+}
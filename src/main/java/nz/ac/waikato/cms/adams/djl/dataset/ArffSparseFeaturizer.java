@@ -0,0 +1,314 @@
+/*
+ * ArffSparseFeaturizer.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.basicdataset.tabular.utils.DynamicBuffer;
+import ai.djl.basicdataset.tabular.utils.Feature;
+import ai.djl.basicdataset.tabular.utils.Featurizers;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembles the features of a batch of rows of an {@link ArffSparseData}
+ * storage as a matrix in compressed sparse row (CSR) format, without
+ * materializing rows x features floats.
+ * <br>
+ * NUMERIC and DATE columns that use the plain numeric featurizer are mapped
+ * directly from the stored entries of a row, i.e., the work is proportional
+ * to the number of entries. Missing values of these columns become NaN. All other featurizers (e.g., one-hot encoding of
+ * NOMINAL columns) explicitly ask for the value of each cell, which gets
+ * featurized and only its non-zero outputs stored.
+ * <br>
+ * The mapping from columns to output positions is determined once, when
+ * the featurizer is instantiated.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffSparseFeaturizer {
+
+  /**
+   * A batch of features in compressed sparse row (CSR) format.
+   */
+  public static class Matrix {
+
+    /** the number of rows. */
+    public int numRows;
+
+    /** the number of columns, i.e., the width of the features. */
+    public int numColumns;
+
+    /** the number of non-zero values. */
+    public int numValues;
+
+    /** the row pointers (numRows + 1). */
+    public long[] indptr;
+
+    /** the column indices of the values. */
+    public long[] indices;
+
+    /** the values. */
+    public float[] values;
+
+    /**
+     * Creates a sparse NDArray with shape (numRows, numColumns).
+     * Requires an engine that supports the CSR format.
+     *
+     * @param manager	the manager to create the array with
+     * @return		the array
+     */
+    public NDArray toNDArray(NDManager manager) {
+      return manager.createCSR(FloatBuffer.wrap(values, 0, numValues), indptr, indices, new Shape(numRows, numColumns));
+    }
+
+    /**
+     * Turns the matrix into a dense, row-major array.
+     *
+     * @return		the array (numRows x numColumns)
+     */
+    public float[] toDense() {
+      float[]	result;
+      int	i;
+      int	n;
+
+      result = new float[numRows * numColumns];
+      for (i = 0; i < numRows; i++) {
+	for (n = (int) indptr[i]; n < indptr[i + 1]; n++)
+	  result[i * numColumns + (int) indices[n]] = values[n];
+      }
+
+      return result;
+    }
+
+    /**
+     * Creates a dense NDArray with shape (numRows, numColumns).
+     *
+     * @param manager	the manager to create the array with
+     * @return		the array
+     */
+    public NDArray toDenseNDArray(NDManager manager) {
+      return manager.create(toDense(), new Shape(numRows, numColumns));
+    }
+  }
+
+  protected ArffSparseData data;
+  protected List<Feature> features;
+  protected int[] columns;
+  protected int[] offsets;
+  protected int[] widths;
+  protected int[] plan;
+  protected int[] denseFeatures;
+  protected int width;
+
+  /**
+   * Initializes the featurizer.
+   *
+   * @param data	the sparse storage to get the values from
+   * @param attLookUp	the lookup for column name/index
+   * @param features	the features to assemble
+   */
+  public ArffSparseFeaturizer(ArffSparseData data, Map<String,Integer> attLookUp, List<Feature> features) {
+    List<Integer>	dense;
+    Feature		feature;
+    ArffAttributeType	type;
+    int			i;
+    int			col;
+
+    this.data     = data;
+    this.features = new ArrayList<>(features);
+    columns       = new int[features.size()];
+    offsets       = new int[features.size()];
+    widths        = new int[features.size()];
+    plan          = new int[data.getNumColumns()];
+    dense         = new ArrayList<>();
+    width         = 0;
+    Arrays.fill(plan, -1);
+    for (i = 0; i < features.size(); i++) {
+      feature    = features.get(i);
+      col        = attLookUp.get(feature.getName());
+      type       = data.getType(col);
+      columns[i] = col;
+      offsets[i] = width;
+      if ((feature.getFeaturizer() == Featurizers.getNumericFeaturizer())
+	    && ((type == ArffAttributeType.NUMERIC) || (type == ArffAttributeType.DATE))
+	    && (plan[col] == -1)) {
+	plan[col] = width;
+	widths[i] = 1;
+      }
+      else {
+	dense.add(i);
+	widths[i] = determineWidth(feature, col);
+      }
+      width += widths[i];
+    }
+    denseFeatures = new int[dense.size()];
+    for (i = 0; i < denseFeatures.length; i++)
+      denseFeatures[i] = dense.get(i);
+  }
+
+  /**
+   * Determines the number of values that the featurizer generates, featurizing
+   * the value of the first row if the featurizer can't tell.
+   *
+   * @param feature	the feature to determine the width for
+   * @param col		the column index of the feature
+   * @return		the width
+   */
+  protected int determineWidth(Feature feature, int col) {
+    DynamicBuffer	buffer;
+
+    try {
+      return feature.getFeaturizer().dataRequired();
+    }
+    catch (IllegalStateException e) {
+      if (data.getNumRows() == 0)
+	return 1;
+      buffer = new DynamicBuffer();
+      feature.getFeaturizer().featurize(buffer, data.getString(0, col));
+      return buffer.getLength();
+    }
+  }
+
+  /**
+   * Returns the number of values generated per row.
+   *
+   * @return		the width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the features that get assembled.
+   *
+   * @return		the features
+   */
+  public List<Feature> getFeatures() {
+    return features;
+  }
+
+  /**
+   * Sorts the entries of the row by column index.
+   *
+   * @param result	the matrix to sort the row in
+   * @param start	the first entry of the row
+   * @param end		the position after the last entry of the row
+   */
+  protected void sortRow(Matrix result, int start, int end) {
+    long[]	keys;
+    long[]	indices;
+    float[]	values;
+    int		i;
+    int		n;
+
+    keys = new long[end - start];
+    for (i = 0; i < keys.length; i++)
+      keys[i] = (result.indices[start + i] << 32) | i;
+    Arrays.sort(keys);
+    indices = Arrays.copyOfRange(result.indices, start, end);
+    values  = Arrays.copyOfRange(result.values, start, end);
+    for (i = 0; i < keys.length; i++) {
+      n                         = (int) (keys[i] & 0xFFFFFFFFL);
+      result.indices[start + i] = indices[n];
+      result.values[start + i]  = values[n];
+    }
+  }
+
+  /**
+   * Appends the value to the matrix.
+   *
+   * @param result	the matrix to add to
+   * @param index	the column index
+   * @param value	the value
+   */
+  protected void add(Matrix result, int index, float value) {
+    if (result.numValues == result.values.length) {
+      result.indices = Arrays.copyOf(result.indices, Math.max(16, result.numValues * 2));
+      result.values  = Arrays.copyOf(result.values, Math.max(16, result.numValues * 2));
+    }
+    result.indices[result.numValues] = index;
+    result.values[result.numValues]  = value;
+    result.numValues++;
+  }
+
+  /**
+   * Assembles the features of the rows.
+   *
+   * @param rows	the indices of the rows
+   * @return		the matrix
+   */
+  public Matrix featurize(long[] rows) {
+    Matrix		result;
+    DynamicBuffer	buffer;
+    FloatBuffer		output;
+    int			i;
+    int			j;
+    int			row;
+    int			pos;
+    int			col;
+    int			start;
+    int			last;
+    boolean		sorted;
+
+    result            = new Matrix();
+    result.numRows    = rows.length;
+    result.numColumns = width;
+    result.indptr     = new long[rows.length + 1];
+    result.indices    = new long[0];
+    result.values     = new float[0];
+
+    for (i = 0; i < rows.length; i++) {
+      row    = Math.toIntExact(rows[i]);
+      start  = result.numValues;
+      last   = -1;
+      sorted = true;
+
+      // values from the stored entries
+      for (pos = data.getRowStart(row); pos < data.getRowEnd(row); pos++) {
+	col = data.getColumnIndex(pos);
+	if (plan[col] == -1)
+	  continue;
+	if (!data.isMissing(pos))
+	  add(result, plan[col], ArffNumberParser.toFloat(data.getValue(pos)));
+	else
+	  add(result, plan[col], Float.NaN);
+	sorted = sorted && (plan[col] > last);
+	last   = plan[col];
+      }
+
+      // featurized values
+      for (int n: denseFeatures) {
+	buffer = new DynamicBuffer();
+	features.get(n).getFeaturizer().featurize(buffer, data.getString(row, columns[n]));
+	if (buffer.getLength() != widths[n])
+	  throw new IllegalStateException("Featurizer of '" + features.get(n).getName() + "' generated " + buffer.getLength() + " instead of " + widths[n] + " values!");
+	output = buffer.getBuffer();
+	for (j = 0; j < widths[n]; j++) {
+	  if (output.get(j) != 0) {
+	    add(result, offsets[n] + j, output.get(j));
+	    sorted = sorted && (offsets[n] + j > last);
+	    last   = offsets[n] + j;
+	  }
+	}
+      }
+
+      if (!sorted)
+	sortRow(result, start, result.numValues);
+      result.indptr[i + 1] = result.numValues;
+    }
+
+    result.indices = Arrays.copyOf(result.indices, result.numValues);
+    result.values  = Arrays.copyOf(result.values, result.numValues);
+
+    return result;
+  }
+}
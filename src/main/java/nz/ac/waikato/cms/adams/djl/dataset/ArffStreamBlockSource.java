@@ -0,0 +1,164 @@
+/*
+ * ArffStreamBlockSource.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns an input stream into blocks of complete lines.
+ * Each block uses its own buffer, with the partial line at the end of a read
+ * getting carried over into the next one. A buffer grows if a single line
+ * does not fit.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffStreamBlockSource
+  implements ArffBlockSource {
+
+  /** the default buffer size. */
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  protected InputStream stream;
+  protected int bufferSize;
+  protected byte[] buffer;
+  protected int start;
+  protected int end;
+  protected long offset;
+  protected long blockOffset;
+  protected boolean eof;
+
+  /**
+   * Initializes the source with the default buffer size.
+   *
+   * @param stream	the stream to read from
+   */
+  public ArffStreamBlockSource(InputStream stream) {
+    this(stream, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Initializes the source.
+   *
+   * @param stream	the stream to read from
+   * @param bufferSize	the (minimum) size of the buffer per block
+   */
+  public ArffStreamBlockSource(InputStream stream, int bufferSize) {
+    this.stream     = stream;
+    this.bufferSize = Math.max(1024, bufferSize);
+    buffer          = new byte[this.bufferSize];
+    start           = 0;
+    end             = 0;
+    offset          = 0;
+    blockOffset     = 0;
+    eof             = false;
+  }
+
+  /**
+   * Reads data till the buffer is full or the end of the stream is reached.
+   *
+   * @throws IOException	if reading fails
+   */
+  protected void fill() throws IOException {
+    int		read;
+    byte[]	larger;
+
+    if (end == buffer.length) {
+      larger = new byte[buffer.length * 2];
+      System.arraycopy(buffer, 0, larger, 0, end);
+      buffer = larger;
+    }
+
+    while (!eof && (end < buffer.length)) {
+      read = stream.read(buffer, end, buffer.length - end);
+      if (read == -1)
+	eof = true;
+      else
+	end += read;
+    }
+  }
+
+  /**
+   * Returns the next block of complete lines, from position to limit.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public ByteBuffer nextBlock() throws IOException {
+    ByteBuffer	result;
+    int		scanFrom;
+    int		i;
+    byte[]	next;
+
+    if (eof && (start == end))
+      return null;
+
+    // move partial line into a new buffer, the last block stays untouched
+    if (start > 0) {
+      next = new byte[Math.max(bufferSize, (end - start) * 2)];
+      System.arraycopy(buffer, start, next, 0, end - start);
+      buffer  = next;
+      offset += start;
+      end    -= start;
+      start   = 0;
+    }
+
+    // the carried over data never contains a newline
+    scanFrom = end;
+    while (true) {
+      fill();
+      for (i = end - 1; i >= scanFrom; i--) {
+	if (buffer[i] == '\n') {
+	  result      = ByteBuffer.wrap(buffer, 0, i + 1);
+	  start       = i + 1;
+	  blockOffset = offset;
+	  return result;
+	}
+      }
+      scanFrom = end;
+      if (eof) {
+	if (end == 0)
+	  return null;
+	result      = ByteBuffer.wrap(buffer, 0, end);
+	start       = end;
+	blockOffset = offset;
+	return result;
+      }
+    }
+  }
+
+  /**
+   * Returns the absolute offset in the input of the position of the last block.
+   *
+   * @return		the offset
+   */
+  @Override
+  public long getBlockOffset() {
+    return blockOffset;
+  }
+
+  /**
+   * Returns -1, as the size of a stream is not known.
+   *
+   * @return		always -1
+   */
+  @Override
+  public long getSize() {
+    return -1;
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+}
@@ -0,0 +1,784 @@
+/*
+ * ArffStreamingDataset.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.Device;
+import ai.djl.basicdataset.tabular.utils.Feature;
+import ai.djl.basicdataset.tabular.utils.PreparedFeaturizer;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.training.dataset.Batch;
+import ai.djl.training.dataset.BatchSampler;
+import ai.djl.training.dataset.Dataset;
+import ai.djl.training.dataset.Sampler;
+import ai.djl.translate.Batchifier;
+import ai.djl.translate.Pipeline;
+import ai.djl.util.Progress;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@code ArffStreamingDataset} iterates over the batches of an .arff[.gz] file
+ * without loading its data: while iterating, the rows get parsed in blocks of
+ * {@link #BLOCK_SIZE} rows, featurized and assembled into batches. The memory
+ * is therefore bounded by the block and the shuffle buffer rather than the
+ * size of the file, i.e., files larger than the available memory can be
+ * used for training. Every iteration reads the file again.
+ * <br>
+ * The rows get shuffled approximately, using a buffer of featurized rows
+ * from which the rows of the batches are drawn at random, each drawn row
+ * getting replaced by the next one from the file. The larger the buffer,
+ * the closer the order is to a random permutation. Without a buffer, the
+ * rows are returned in the order of the file.
+ * <br>
+ * The features, labels and parsing options are defined like the ones of an
+ * {@link ArffDataset} (see {@link ArffStreamingBuilder}). Featurizers that
+ * require preparing (e.g., the one-hot encoding of STRING columns treated as
+ * NOMINAL ones) get prepared with the distinct values of their columns,
+ * collected in a pass over the file. The pipelines get applied to the
+ * batches rather than to the single rows.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffStreamingDataset
+  implements Dataset {
+
+  /** the number of rows that get parsed and featurized at a time. */
+  public static final int BLOCK_SIZE = 1024;
+
+  /** the size of the shuffle buffer when sampling randomly, unless specified. */
+  public static final int DEFAULT_SHUFFLE_BUFFER = 10000;
+
+  /**
+   * Reads the rows of the file in blocks, parsed into columns that get
+   * released when the next block is read.
+   */
+  protected class BlockReader
+    implements Closeable {
+
+    protected ArffParser parser;
+
+    protected ArffReader reader;
+
+    protected ArffRow row;
+
+    protected List<ArffColumn> columns;
+
+    protected int size;
+
+    protected boolean eof;
+
+    /**
+     * Opens the file and reads the header.
+     *
+     * @throws IOException	if opening or reading the header fails
+     */
+    public BlockReader() throws IOException {
+      parser = definition.newParser();
+      reader = parser.newReader(new ArffTokenizer(definition.getArffSource()));
+      row    = reader.newRow();
+      size   = 0;
+      eof    = false;
+    }
+
+    /**
+     * Reads the next block of rows.
+     *
+     * @param max	the maximum number of rows to read
+     * @return		false if no more rows available
+     * @throws IOException	if reading fails
+     */
+    public boolean next(int max) throws IOException {
+      if (columns != null)
+	parser.release(columns);
+      columns = parser.newColumns();
+      size    = 0;
+      while (!eof && (size < max)) {
+	if (reader.next(row)) {
+	  parser.add(columns, row);
+	  size++;
+	}
+	else {
+	  eof = true;
+	}
+      }
+
+      return (size > 0);
+    }
+
+    /**
+     * Returns the columns of the current block.
+     *
+     * @return		the columns
+     */
+    public List<ArffColumn> getColumns() {
+      return columns;
+    }
+
+    /**
+     * Returns the number of rows in the current block.
+     *
+     * @return		the number of rows
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the lookup for column name/index.
+     *
+     * @return		the lookup
+     */
+    public Map<String,Integer> getAttLookUp() {
+      return parser.getAttLookUp();
+    }
+
+    /**
+     * Releases the columns and closes the file.
+     *
+     * @throws IOException	if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+      if (columns != null)
+	parser.release(columns);
+      columns = null;
+      reader.close();
+    }
+  }
+
+  /**
+   * Iterates over the batches, reading the file while iterating. The file
+   * gets opened when the first batch is requested and closed once all rows
+   * have been returned or when closing the iterator, e.g., when stopping
+   * the iteration early.
+   */
+  protected class BatchIterator
+    implements Iterator<Batch>, Closeable {
+
+    protected NDManager manager;
+
+    protected boolean opened;
+
+    protected BlockReader blocks;
+
+    protected Random random;
+
+    protected float[] blockFeatures;
+
+    protected float[] blockLabels;
+
+    protected int blockPos;
+
+    protected int featureWidth;
+
+    protected int labelWidth;
+
+    protected float[] bufferFeatures;
+
+    protected float[] bufferLabels;
+
+    protected int bufferSize;
+
+    protected float[] features;
+
+    protected float[] labels;
+
+    protected int numRows;
+
+    protected long numBatches;
+
+    protected long rowsLeft;
+
+    /**
+     * Initializes the iterator. The file gets opened when the first batch
+     * is requested.
+     *
+     * @param manager	the manager to create the arrays with
+     * @param random	the random number generator for shuffling
+     */
+    public BatchIterator(NDManager manager, Random random) {
+      this.manager = manager;
+      this.random  = random;
+      opened       = false;
+      blocks       = null;
+      blockPos     = 0;
+      bufferSize   = 0;
+      numRows      = -1;
+      numBatches   = 0;
+      rowsLeft     = limit;
+    }
+
+    /**
+     * Parses and featurizes the next block of rows.
+     *
+     * @return		false if no more rows available
+     * @throws IOException	if reading fails
+     */
+    protected boolean nextBlock() throws IOException {
+      ArffRowFeaturizer	featurizer;
+      ArffRowFeaturizer	labelizer;
+      long[]		rows;
+      int		i;
+
+      blockPos = 0;
+      if (!blocks.next(BLOCK_SIZE))
+	return false;
+
+      featurizer = new ArffRowFeaturizer(blocks.getColumns(), blocks.getAttLookUp(), definition.getFeatures());
+      labelizer  = new ArffRowFeaturizer(blocks.getColumns(), blocks.getAttLookUp(), definition.getLabels());
+      if (blockFeatures == null) {
+	featureWidth  = featurizer.getWidth();
+	labelWidth    = labelizer.getWidth();
+	blockFeatures = new float[BLOCK_SIZE * featureWidth];
+	blockLabels   = new float[BLOCK_SIZE * labelWidth];
+      }
+      else if ((featurizer.getWidth() != featureWidth) || (labelizer.getWidth() != labelWidth)) {
+	throw new IllegalStateException("Number of values per row changed from " + featureWidth + "/" + labelWidth
+					  + " to " + featurizer.getWidth() + "/" + labelizer.getWidth() + " (features/labels)!");
+      }
+
+      rows = new long[blocks.size()];
+      for (i = 0; i < rows.length; i++)
+	rows[i] = i;
+      featurizer.featurize(blockFeatures, rows);
+      labelizer.featurize(blockLabels, rows);
+
+      return true;
+    }
+
+    /**
+     * Copies the next row of the file into the arrays.
+     *
+     * @param features	the array for the features
+     * @param labels	the array for the labels
+     * @param pos	the position of the row in the arrays
+     * @return		false if no more rows available
+     * @throws IOException	if reading fails
+     */
+    protected boolean nextRow(float[] features, float[] labels, int pos) throws IOException {
+      if (rowsLeft <= 0)
+	return false;
+      if ((blockFeatures == null) || (blockPos >= blocks.size())) {
+	if (!nextBlock())
+	  return false;
+      }
+
+      System.arraycopy(blockFeatures, blockPos * featureWidth, features, pos * featureWidth, featureWidth);
+      System.arraycopy(blockLabels, blockPos * labelWidth, labels, pos * labelWidth, labelWidth);
+      blockPos++;
+      rowsLeft--;
+
+      return true;
+    }
+
+    /**
+     * Fills the shuffle buffer, if not yet done.
+     *
+     * @throws IOException	if reading fails
+     */
+    protected void fillBuffer() throws IOException {
+      if (bufferFeatures != null)
+	return;
+      if ((blockFeatures == null) && !nextBlock())
+	return;
+
+      bufferFeatures = new float[shuffleBuffer * featureWidth];
+      bufferLabels   = new float[shuffleBuffer * labelWidth];
+      while ((bufferSize < shuffleBuffer) && nextRow(bufferFeatures, bufferLabels, bufferSize))
+	bufferSize++;
+    }
+
+    /**
+     * Draws the next row from the shuffle buffer, replacing it with the next
+     * row of the file.
+     *
+     * @param features	the array for the features
+     * @param labels	the array for the labels
+     * @param pos	the position of the row in the arrays
+     * @return		false if no more rows available
+     * @throws IOException	if reading fails
+     */
+    protected boolean drawRow(float[] features, float[] labels, int pos) throws IOException {
+      int	index;
+
+      fillBuffer();
+      if (bufferSize == 0)
+	return false;
+
+      index = random.nextInt(bufferSize);
+      System.arraycopy(bufferFeatures, index * featureWidth, features, pos * featureWidth, featureWidth);
+      System.arraycopy(bufferLabels, index * labelWidth, labels, pos * labelWidth, labelWidth);
+      if (!nextRow(bufferFeatures, bufferLabels, index)) {
+	bufferSize--;
+	System.arraycopy(bufferFeatures, bufferSize * featureWidth, bufferFeatures, index * featureWidth, featureWidth);
+	System.arraycopy(bufferLabels, bufferSize * labelWidth, bufferLabels, index * labelWidth, labelWidth);
+      }
+
+      return true;
+    }
+
+    /**
+     * Assembles the values of the next batch, opening the file for the
+     * first batch and closing it once all rows have been read.
+     *
+     * @return		the number of rows in the batch, 0 if no more rows
+     * @throws IOException	if reading fails
+     */
+    protected int nextRows() throws IOException {
+      int	result;
+      boolean	read;
+
+      result = 0;
+      if (!opened) {
+	opened = true;
+	blocks = new BlockReader();
+      }
+      if (blocks == null)
+	return result;
+
+      if ((blockFeatures == null) && !nextBlock()) {
+	blocks.close();
+	blocks = null;
+	return result;
+      }
+      if (features == null) {
+	features = new float[batchSize * featureWidth];
+	labels   = new float[batchSize * labelWidth];
+      }
+
+      while (result < batchSize) {
+	if (shuffleBuffer > 1)
+	  read = drawRow(features, labels, result);
+	else
+	  read = nextRow(features, labels, result);
+	if (!read)
+	  break;
+	result++;
+      }
+
+      if ((result < batchSize) || (rowsLeft <= 0)) {
+	if (result < batchSize) {
+	  blocks.close();
+	  blocks = null;
+	}
+	if (dropLast && (result < batchSize))
+	  result = 0;
+      }
+
+      return result;
+    }
+
+    /**
+     * Checks whether another batch is available.
+     *
+     * @return		true if available
+     */
+    @Override
+    public boolean hasNext() {
+      if (numRows == -1) {
+	try {
+	  numRows = nextRows();
+	}
+	catch (IOException e) {
+	  throw new UncheckedIOException(e);
+	}
+      }
+      return (numRows > 0);
+    }
+
+    /**
+     * Returns the next batch.
+     *
+     * @return		the batch
+     */
+    @Override
+    public Batch next() {
+      NDManager	batchManager;
+      NDList	data;
+      NDList	target;
+      float[]	values;
+
+      if (!hasNext())
+	throw new NoSuchElementException("No more batches available!");
+
+      batchManager = manager.newSubManager();
+      batchManager.setName("dataIter fetch");
+      values       = new float[numRows * featureWidth];
+      System.arraycopy(features, 0, values, 0, values.length);
+      data         = new NDList(batchManager.create(values, new Shape(numRows, featureWidth)));
+      if (definition.getLabels().isEmpty()) {
+	target = new NDList();
+      }
+      else {
+	values = new float[numRows * labelWidth];
+	System.arraycopy(labels, 0, values, 0, values.length);
+	target = new NDList(batchManager.create(values, new Shape(numRows, labelWidth)));
+      }
+      if (pipeline != null)
+	data = pipeline.transform(data);
+      if (targetPipeline != null)
+	target = targetPipeline.transform(target);
+      if (device != null) {
+	data   = data.toDevice(device, false);
+	target = target.toDevice(device, false);
+      }
+      numBatches++;
+
+      try {
+	return new Batch(batchManager, data, target, numRows, dataBatchifier, labelBatchifier, numBatches, 0);
+      }
+      finally {
+	numRows = -1;
+      }
+    }
+
+    /**
+     * Closes the file, if still open, and ends the iteration, e.g., when
+     * stopping early.
+     *
+     * @throws IOException	if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+      opened  = true;
+      numRows = 0;
+      if (blocks != null) {
+	blocks.close();
+	blocks = null;
+      }
+    }
+  }
+
+  protected ArffDataset definition;
+  protected int batchSize;
+  protected boolean dropLast;
+  protected int shuffleBuffer;
+  protected long limit;
+  protected Batchifier dataBatchifier;
+  protected Batchifier labelBatchifier;
+  protected Pipeline pipeline;
+  protected Pipeline targetPipeline;
+  protected Device device;
+  protected Random random;
+  protected boolean prepared;
+
+  /**
+   * Initializes the dataset.
+   *
+   * @param builder	the builder with the definition
+   */
+  protected ArffStreamingDataset(ArffStreamingBuilder builder) {
+    definition      = new ArffDataset(builder);
+    batchSize       = builder.batchSize;
+    dropLast        = builder.dropLast;
+    shuffleBuffer   = builder.shuffleBuffer;
+    limit           = builder.getLimit();
+    dataBatchifier  = builder.getDataBatchifier();
+    labelBatchifier = builder.getLabelBatchifier();
+    pipeline        = builder.getPipeline();
+    targetPipeline  = builder.getTargetPipeline();
+    device          = builder.getDevice();
+    random          = (builder.seed == null) ? new Random() : new Random(builder.seed);
+    prepared        = false;
+  }
+
+  /**
+   * Returns the features.
+   *
+   * @return		the features
+   */
+  public List<Feature> getFeatures() {
+    return definition.getFeatures();
+  }
+
+  /**
+   * Returns the labels.
+   *
+   * @return		the labels
+   */
+  public List<Feature> getLabels() {
+    return definition.getLabels();
+  }
+
+  /**
+   * Returns the number of rows per batch.
+   *
+   * @return		the batch size
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Returns the number of rows that the shuffle buffer holds.
+   *
+   * @return		the size, less than 2 if not shuffling
+   */
+  public int getShuffleBuffer() {
+    return shuffleBuffer;
+  }
+
+  /**
+   * Prepares the featurizers that require preparing, using the distinct
+   * values of their columns from a pass over the file.
+   *
+   * @param progress	the progress, can be null
+   * @throws IOException	if reading fails
+   * @throws UnsupportedOperationException	if a featurizer of a NUMERIC or DATE column requires preparing
+   */
+  @Override
+  public void prepare(Progress progress) throws IOException {
+    List<Feature>	prepare;
+    List<Set<String>>	values;
+    ArffColumn		column;
+    String		value;
+    int			i;
+    int			n;
+
+    if (prepared)
+      return;
+
+    prepare = new ArrayList<>();
+    for (Feature feature: definition.getFeatures()) {
+      if (feature.getFeaturizer() instanceof PreparedFeaturizer)
+	prepare.add(feature);
+    }
+    for (Feature feature: definition.getLabels()) {
+      if (feature.getFeaturizer() instanceof PreparedFeaturizer)
+	prepare.add(feature);
+    }
+
+    if (!prepare.isEmpty()) {
+      values = new ArrayList<>();
+      for (i = 0; i < prepare.size(); i++)
+	values.add(new LinkedHashSet<>());
+      try (BlockReader blocks = new BlockReader()) {
+	while (blocks.next(BLOCK_SIZE)) {
+	  for (i = 0; i < prepare.size(); i++) {
+	    column = blocks.getColumns().get(blocks.getAttLookUp().get(prepare.get(i).getName()));
+	    if ((column.getType() != ArffAttributeType.NOMINAL) && (column.getType() != ArffAttributeType.STRING))
+	      throw new UnsupportedOperationException("Featurizer of '" + prepare.get(i).getName() + "' requires all the values of the column, which is not supported when streaming!");
+	    for (n = 0; n < blocks.size(); n++) {
+	      value = column.getString(n);
+	      if (value != null)
+		values.get(i).add(value);
+	    }
+	  }
+	}
+      }
+      for (i = 0; i < prepare.size(); i++)
+	((PreparedFeaturizer) prepare.get(i).getFeaturizer()).prepare(new ArrayList<>(values.get(i)));
+    }
+
+    prepared = true;
+  }
+
+  /**
+   * Returns the batches, reading the file while iterating.
+   * Each iteration reads the file again and, if shuffling, uses a
+   * different order. If enabled, the batches get assembled ahead using
+   * the prefetch executor (see {@link ArffDataset#getPrefetchExecutor()}).
+   *
+   * @param manager	the manager to create the arrays with
+   * @return		the batches
+   * @throws IOException	if preparing fails
+   */
+  @Override
+  public Iterable<Batch> getData(NDManager manager) throws IOException {
+    return getData(manager, definition.getPrefetchExecutor());
+  }
+
+  /**
+   * Returns the batches, reading the file while iterating.
+   * Each iteration reads the file again and, if shuffling, uses a
+   * different order. The batches get assembled ahead using the executor,
+   * one after the other. The iterators are {@link Closeable}, which closes
+   * the file (and any batches assembled ahead) when stopping the iteration early.
+   *
+   * @param manager	the manager to create the arrays with
+   * @param executor	the executor for assembling batches ahead, null for assembling them when requested
+   * @return		the batches
+   * @throws IOException	if preparing fails
+   */
+  @Override
+  public Iterable<Batch> getData(NDManager manager, ExecutorService executor) throws IOException {
+    prepare(null);
+    if (executor == null)
+      return () -> new BatchIterator(manager, new Random(random.nextLong()));
+    else
+      return () -> new ArffPrefetchIterator(new BatchIterator(manager, new Random(random.nextLong())), executor, definition.getPrefetchDepth());
+  }
+
+  /**
+   * Creates a builder to build a {@link ArffStreamingDataset}.
+   *
+   * @return a new builder
+   */
+  public static ArffStreamingBuilder builder() {
+    return new ArffStreamingBuilder();
+  }
+
+  /**
+   * Used to build a {@link ArffStreamingDataset}, with the features, labels
+   * and parsing options being defined as for {@link ArffDataset}.
+   * The batch size gets set via the sampling, e.g., setSampling(256, true)
+   * for batches of 256 rows that get shuffled using a buffer of
+   * {@link #DEFAULT_SHUFFLE_BUFFER} rows. {@link #buildStreaming()} creates
+   * the streaming dataset, {@link #build()} an {@link ArffDataset} that
+   * loads the data.
+   */
+  public static class ArffStreamingBuilder
+    extends ArffDataset.ArffBuilder<ArffStreamingBuilder> {
+
+    protected int batchSize;
+
+    protected boolean random;
+
+    protected boolean dropLast;
+
+    protected int shuffleBuffer;
+
+    protected Long seed;
+
+    /**
+     * Initializes the builder.
+     */
+    protected ArffStreamingBuilder() {
+      super();
+
+      batchSize     = -1;
+      random        = false;
+      dropLast      = false;
+      shuffleBuffer = -1;
+      seed          = null;
+    }
+
+    /**
+     * Sets the number of rows per batch and whether to shuffle them.
+     *
+     * @param batchSize the number of rows per batch
+     * @param random whether to shuffle the rows
+     * @param dropLast whether to drop the last batch if it is incomplete
+     * @return this builder
+     */
+    @Override
+    public ArffStreamingBuilder setSampling(int batchSize, boolean random, boolean dropLast) {
+      this.batchSize = batchSize;
+      this.random    = random;
+      this.dropLast  = dropLast;
+      return super.setSampling(batchSize, random, dropLast);
+    }
+
+    /**
+     * Sets the number of rows that the shuffle buffer holds.
+     *
+     * @param shuffleBuffer the number of rows, less than 2 for not shuffling
+     * @return this builder
+     */
+    public ArffStreamingBuilder optShuffleBuffer(int shuffleBuffer) {
+      this.shuffleBuffer = shuffleBuffer;
+      return self();
+    }
+
+    /**
+     * Sets the seed for shuffling the rows.
+     *
+     * @param seed the seed
+     * @return this builder
+     */
+    public ArffStreamingBuilder optSeed(long seed) {
+      this.seed = seed;
+      return self();
+    }
+
+    /**
+     * Returns the maximum number of rows to read.
+     *
+     * @return the limit
+     */
+    protected long getLimit() {
+      return limit;
+    }
+
+    /**
+     * Returns the batchifier for the features.
+     *
+     * @return the batchifier
+     */
+    protected Batchifier getDataBatchifier() {
+      return dataBatchifier;
+    }
+
+    /**
+     * Returns the batchifier for the labels.
+     *
+     * @return the batchifier
+     */
+    protected Batchifier getLabelBatchifier() {
+      return labelBatchifier;
+    }
+
+    /**
+     * Returns the pipeline for the features of the batches.
+     *
+     * @return the pipeline, null if none
+     */
+    protected Pipeline getPipeline() {
+      return pipeline;
+    }
+
+    /**
+     * Returns the pipeline for the labels of the batches.
+     *
+     * @return the pipeline, null if none
+     */
+    protected Pipeline getTargetPipeline() {
+      return targetPipeline;
+    }
+
+    /**
+     * Returns the device to move the batches to.
+     *
+     * @return the device, null for the default one
+     */
+    protected Device getDevice() {
+      return device;
+    }
+
+    /**
+     * Builds the new {@link ArffStreamingDataset}.
+     *
+     * @return the new {@link ArffStreamingDataset}
+     * @throws IllegalArgumentException if the batch size can't be determined from the sampler
+     */
+    public ArffStreamingDataset buildStreaming() {
+      Sampler	sampler;
+
+      sampler = getSampler();
+      if ((batchSize < 1) && (sampler instanceof BatchSampler))
+	batchSize = ((BatchSampler) sampler).getBatchSize();
+      if (batchSize < 1)
+	throw new IllegalArgumentException("Batch size must be set via setSampling(int, boolean)!");
+      if (shuffleBuffer < 0)
+	shuffleBuffer = random ? DEFAULT_SHUFFLE_BUFFER : 0;
+
+      return new ArffStreamingDataset(this);
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * ArffSubDataset.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.ndarray.NDManager;
+import ai.djl.training.dataset.Batch;
+import ai.djl.training.dataset.DataIterable;
+import ai.djl.training.dataset.RandomAccessDataset;
+import ai.djl.training.dataset.Record;
+import ai.djl.training.dataset.Sampler;
+import ai.djl.translate.TranslateException;
+import ai.djl.util.Progress;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A subset of the rows of an {@link ArffDataset}, e.g., as generated by
+ * {@link RandomAccessDataset#randomSplit(int...)}. Unlike the subsets of DJL,
+ * it gives access to the dataset it was taken from and the indices of its
+ * rows in that dataset, e.g., for looking up the instance weights
+ * (see {@link ArffWeightedSampler}). Subsets of subsets refer to the
+ * original dataset. Batches get assembled like the ones of the dataset,
+ * i.e., gathered, sparse and/or prefetched, depending on its settings.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffSubDataset
+  extends RandomAccessDataset {
+
+  protected ArffDataset dataset;
+  protected long[] indices;
+
+  /**
+   * Initializes the subset.
+   *
+   * @param builder	the builder with the rows and settings
+   */
+  protected ArffSubDataset(ArffSubBuilder builder) {
+    super(builder);
+    dataset = builder.dataset;
+    indices = builder.indices;
+  }
+
+  /**
+   * Returns the dataset the rows are taken from.
+   *
+   * @return		the dataset
+   */
+  public ArffDataset getDataset() {
+    return dataset;
+  }
+
+  /**
+   * Returns the index of the row in the underlying dataset.
+   *
+   * @param index	the index in the subset
+   * @return		the index in the dataset
+   */
+  public long getDatasetIndex(long index) {
+    return indices[Math.toIntExact(index)];
+  }
+
+  /**
+   * Returns the instance weights of the rows of the subset.
+   *
+   * @return		the weights, all 1 if the data has no weights
+   */
+  public double[] getWeights() {
+    double[]	result;
+    int		i;
+
+    result = new double[indices.length];
+    for (i = 0; i < indices.length; i++)
+      result[i] = dataset.getWeight(indices[i]);
+
+    return result;
+  }
+
+  /**
+   * Returns the row of the dataset.
+   *
+   * @param manager	the manager to use
+   * @param index	the index in the subset
+   * @return		the record
+   * @throws IOException	if retrieving the row fails
+   */
+  @Override
+  public Record get(NDManager manager, long index) throws IOException {
+    if ((index < 0) || (index >= indices.length))
+      throw new IndexOutOfBoundsException("Index " + index + " outside of subset with " + indices.length + " rows!");
+    return dataset.get(manager, indices[Math.toIntExact(index)]);
+  }
+
+  /**
+   * Returns the batches of the subset, assembled like the ones of the
+   * dataset: sparse batches if enabled for sparse data, otherwise gathered
+   * (see {@link ArffDataIterable}) or, if turned off, row-wise.
+   * Without an executor, the dataset's prefetch executor gets used, if
+   * enabled (see {@link ArffDataset#getPrefetchExecutor()}).
+   *
+   * @param manager the manager to create the arrays with
+   * @param sampler the sampler for the row indices
+   * @param executor the executor for fetching batches ahead, can be null
+   * @return the batches
+   * @throws IOException if preparing fails
+   * @throws TranslateException if preparing fails
+   */
+  @Override
+  public Iterable<Batch> getData(NDManager manager, Sampler sampler, ExecutorService executor) throws IOException, TranslateException {
+    Iterable<Batch>	sparse;
+    ExecutorService	prefetch;
+
+    prepare();
+    prefetch = (executor != null) ? executor : dataset.getPrefetchExecutor();
+    if (!dataset.sparseBatches || !dataset.isSparse()) {
+      if (dataset.gatherBatches)
+	return new ArffDataIterable(this, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, prefetch, prefetchNumber, device);
+      else
+	return new DataIterable(this, manager, sampler, dataBatchifier, labelBatchifier, pipeline, targetPipeline, prefetch, prefetchNumber, device);
+    }
+
+    sparse = dataset.getSparseData(manager, sampler, this, indices);
+    if (prefetch == null)
+      return sparse;
+    else
+      return () -> new ArffPrefetchIterator(sparse.iterator(), prefetch, prefetchNumber);
+  }
+
+  /**
+   * Returns the number of rows in the subset.
+   *
+   * @return		the number of rows
+   */
+  @Override
+  protected long availableSize() {
+    return indices.length;
+  }
+
+  /**
+   * Does nothing, as the rows come from the dataset, which has already
+   * been prepared when splitting it.
+   *
+   * @param progress	the progress tracker, can be null
+   */
+  @Override
+  public void prepare(Progress progress) {
+  }
+
+  /**
+   * Creates a subset of the subset, referring to the original dataset.
+   *
+   * @param indices	the indices of the rows in the subset
+   * @param fromIndex	the first index to use (incl)
+   * @param toIndex	the last index to use (excl)
+   * @return		the subset
+   */
+  @Override
+  protected RandomAccessDataset newSubDataset(int[] indices, int fromIndex, int toIndex) {
+    long[]	subset;
+    int		i;
+
+    subset = new long[toIndex - fromIndex];
+    for (i = fromIndex; i < toIndex; i++)
+      subset[i - fromIndex] = this.indices[indices[i]];
+
+    return newSubset(subset);
+  }
+
+  /**
+   * Creates a subset of the subset, referring to the original dataset.
+   *
+   * @param indices	the indices of the rows in the subset
+   * @return		the subset
+   */
+  @Override
+  protected RandomAccessDataset newSubDataset(List<Long> indices) {
+    long[]	subset;
+    int		i;
+
+    subset = new long[indices.size()];
+    for (i = 0; i < subset.length; i++)
+      subset[i] = this.indices[Math.toIntExact(indices.get(i))];
+
+    return newSubset(subset);
+  }
+
+  /**
+   * Creates a subset of the original dataset with the settings of this subset.
+   *
+   * @param indices	the indices of the rows in the original dataset
+   * @return		the subset
+   */
+  protected ArffSubDataset newSubset(long[] indices) {
+    ArffSubBuilder	builder;
+
+    builder = builder();
+    builder.setRows(dataset, indices);
+    builder.setSampling(sampler);
+    builder.optDataBatchifier(dataBatchifier);
+    builder.optLabelBatchifier(labelBatchifier);
+    builder.optPipeline(pipeline);
+    builder.optTargetPipeline(targetPipeline);
+    builder.optPrefetchNumber(prefetchNumber);
+    builder.optDevice(device);
+
+    return builder.build();
+  }
+
+  /**
+   * Creates a builder to build a {@link ArffSubDataset}.
+   *
+   * @return a new builder
+   */
+  public static ArffSubBuilder builder() {
+    return new ArffSubBuilder();
+  }
+
+  /** Used to build a {@link ArffSubDataset}. */
+  public static class ArffSubBuilder
+    extends BaseBuilder<ArffSubBuilder> {
+
+    protected ArffDataset dataset;
+
+    protected long[] indices;
+
+    /**
+     * Sets the dataset and the rows to take from it.
+     *
+     * @param dataset the dataset to take the rows from
+     * @param indices the indices of the rows in the dataset
+     * @return this builder
+     */
+    public ArffSubBuilder setRows(ArffDataset dataset, long[] indices) {
+      this.dataset = dataset;
+      this.indices = indices;
+      return self();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected ArffSubBuilder self() {
+      return this;
+    }
+
+    /**
+     * Builds the subset.
+     *
+     * @return the subset
+     */
+    public ArffSubDataset build() {
+      if (dataset == null)
+	throw new IllegalStateException("No dataset provided!");
+      return new ArffSubDataset(this);
+    }
+  }
+}
@@ -0,0 +1,530 @@
+/*
+ * ArffTokenizer.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level tokenizer for ARFF files. Header lines are returned as strings,
+ * whereas data lines get split directly from the raw bytes into the cell spans
+ * of a reusable {@link ArffRow}, without creating any intermediate strings.
+ * <br>
+ * Follows the same rules as the line-based splitting in {@link ArffUtils}:
+ * cells get trimmed, single quotes (not preceded by a backslash) protect commas,
+ * quoted cells get unquoted and back-quoted characters restored.
+ * Sparse data lines ("{index value, ...}") get split the same way, with the
+ * column index of each cell stored in the row. Instance weights at the end
+ * of data lines (",{weight}") get stored separately in the row.
+ * Cells of columns that are not selected get skipped without unquoting or
+ * copying them, and are reported as missing.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffTokenizer
+  implements Closeable {
+
+  protected ArffBlockSource source;
+  protected ByteBuffer block;
+  protected long blockOffset;
+  protected int blockStart;
+  protected int pos;
+  protected int limit;
+  protected int lineStart;
+  protected int lineEnd;
+  protected long lineIndex;
+  protected boolean[] selected;
+
+  /**
+   * Initializes the tokenizer.
+   *
+   * @param source	the source for the blocks of bytes
+   */
+  public ArffTokenizer(ArffBlockSource source) {
+    this.source = source;
+    block       = null;
+    blockOffset = source.getBlockOffset();
+    lineIndex   = 0;
+    selected    = null;
+  }
+
+  /**
+   * Sets the columns to tokenize, the cells of all other columns get skipped.
+   *
+   * @param value	the flags per column, null for all columns
+   */
+  public void setSelectedColumns(boolean[] value) {
+    selected = value;
+  }
+
+  /**
+   * Returns the columns to tokenize, the cells of all other columns get skipped.
+   *
+   * @return		the flags per column, null for all columns
+   */
+  public boolean[] getSelectedColumns() {
+    return selected;
+  }
+
+  /**
+   * Advances to the next line, skipping the line terminator.
+   *
+   * @return		false if no more lines available
+   * @throws IOException	if reading fails
+   */
+  protected boolean nextLine() throws IOException {
+    int		i;
+
+    while ((block == null) || (pos >= limit)) {
+      block = source.nextBlock();
+      if (block == null)
+	return false;
+      blockOffset = source.getBlockOffset();
+      blockStart  = block.position();
+      pos         = blockStart;
+      limit       = block.limit();
+    }
+
+    lineStart = pos;
+    for (i = pos; i < limit; i++) {
+      if (block.get(i) == '\n')
+	break;
+    }
+    lineEnd = i;
+    pos     = i + 1;
+    lineIndex++;
+
+    return true;
+  }
+
+  /**
+   * Copies bytes from the current block into the array.
+   *
+   * @param index	the index in the block
+   * @param dst		the array to copy into
+   * @param offset	the offset in the array
+   * @param length	the number of bytes to copy
+   */
+  protected void get(int index, byte[] dst, int offset, int length) {
+    int		i;
+
+    if (block.hasArray()) {
+      System.arraycopy(block.array(), block.arrayOffset() + index, dst, offset, length);
+    }
+    else {
+      for (i = 0; i < length; i++)
+	dst[offset + i] = block.get(index + i);
+    }
+  }
+
+  /**
+   * Returns the next line as string, e.g., for parsing the header.
+   *
+   * @return		the line (without line terminator), null if no more lines
+   * @throws IOException	if reading fails
+   */
+  public String readLine() throws IOException {
+    byte[]	bytes;
+    int		end;
+
+    if (!nextLine())
+      return null;
+
+    end = lineEnd;
+    if ((end > lineStart) && (block.get(end - 1) == '\r'))
+      end--;
+    bytes = new byte[end - lineStart];
+    get(lineStart, bytes, 0, bytes.length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks whether the byte is whitespace in the sense of {@link String#trim()}.
+   *
+   * @param b		the byte to check
+   * @return		true if whitespace
+   */
+  protected static boolean isWhitespace(byte b) {
+    return (b >= 0) && (b <= ' ');
+  }
+
+  /**
+   * Reads the next data line into the row, skipping empty lines and comments.
+   *
+   * @param row		the row to fill
+   * @return		false if no more rows available
+   * @throws IOException	if reading fails
+   */
+  public boolean next(ArffRow row) throws IOException {
+    int		start;
+    int		end;
+
+    while (nextLine()) {
+      start = lineStart;
+      end   = lineEnd;
+      while ((start < end) && isWhitespace(block.get(start)))
+	start++;
+      while ((end > start) && isWhitespace(block.get(end - 1)))
+	end--;
+      if (start == end)
+	continue;
+      if (block.get(start) == '%')
+	continue;
+
+      row.clear();
+      row.lineIndex = lineIndex;
+      end = splitWeight(row, start, end);
+      if (block.get(start) == '{') {
+	row.sparse = true;
+	start++;
+	if (block.get(end - 1) == '}')
+	  end--;
+	while ((start < end) && isWhitespace(block.get(start)))
+	  start++;
+	while ((end > start) && isWhitespace(block.get(end - 1)))
+	  end--;
+      }
+      split(row, start, end);
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Checks whether the line ends with an instance weight, i.e., ",{weight}",
+   * and copies the weight into the row's text buffer if so.
+   *
+   * @param row		the row to fill
+   * @param start	the start of the (trimmed) line
+   * @param end		the end of the (trimmed) line
+   * @return		the end of the (trimmed) line without the weight
+   */
+  protected int splitWeight(ArffRow row, int start, int end) {
+    int		open;
+    int		comma;
+    byte	b;
+
+    if (block.get(end - 1) != '}')
+      return end;
+
+    // locate opening brace, weight can't contain quotes, commas or braces
+    for (open = end - 2; open >= start; open--) {
+      b = block.get(open);
+      if (b == '{')
+	break;
+      if ((b == '}') || (b == ',') || (b == '\''))
+	return end;
+    }
+    if (open < start)
+      return end;
+
+    // must be preceded by a comma
+    comma = open - 1;
+    while ((comma >= start) && isWhitespace(block.get(comma)))
+      comma--;
+    if ((comma < start) || (block.get(comma) != ','))
+      return end;
+
+    open++;
+    end--;
+    while ((open < end) && isWhitespace(block.get(open)))
+      open++;
+    while ((end > open) && isWhitespace(block.get(end - 1)))
+      end--;
+    row.ensureCapacity(end - open);
+    row.hasWeight    = true;
+    row.weightStart  = row.textLength;
+    row.weightLength = end - open;
+    copy(row, open, end);
+
+    end = comma;
+    while ((end > start) && isWhitespace(block.get(end - 1)))
+      end--;
+
+    return end;
+  }
+
+  /**
+   * Splits the line into cells.
+   *
+   * @param row		the row to fill
+   * @param start	the start of the (trimmed) line
+   * @param end		the end of the (trimmed) line
+   */
+  protected void split(ArffRow row, int start, int end) {
+    int		i;
+    int		cellStart;
+    boolean	quoted;
+    boolean	backslash;
+    byte	b;
+
+    cellStart = start;
+    quoted    = false;
+    backslash = false;
+    for (i = start; i < end; i++) {
+      b = block.get(i);
+      if (b == '\'') {
+	if (!backslash)
+	  quoted = !quoted;
+      }
+      else if ((b == ',') && !quoted) {
+	addCell(row, cellStart, i);
+	cellStart = i + 1;
+      }
+      backslash = (b == '\\');
+    }
+
+    // last cell only gets added if not empty
+    if (cellStart < end)
+      addCell(row, cellStart, end);
+  }
+
+  /**
+   * Parses the column index at the start of a cell of a sparse row.
+   * The index is set to -1 if it is not followed by whitespace and a value.
+   *
+   * @param row		the row to add to
+   * @param cell	the index of the cell
+   * @param start	the start of the (trimmed) cell
+   * @param end		the end of the (trimmed) cell
+   * @return		the start of the value
+   */
+  protected int parseIndex(ArffRow row, int cell, int start, int end) {
+    long	index;
+    int		i;
+    byte	b;
+
+    index = 0;
+    for (i = start; i < end; i++) {
+      b = block.get(i);
+      if ((b < '0') || (b > '9'))
+	break;
+      index = Math.min(index * 10 + (b - '0'), Integer.MAX_VALUE);
+    }
+    if ((i == start) || (i == end) || !isWhitespace(block.get(i)))
+      index = -1;
+    while ((i < end) && isWhitespace(block.get(i)))
+      i++;
+    row.index[cell] = (int) index;
+
+    return i;
+  }
+
+  /**
+   * Checks whether the column is not selected.
+   *
+   * @param col		the column index
+   * @return		true if to skip
+   */
+  protected boolean isSkipped(int col) {
+    return (selected != null) && (col >= 0) && (col < selected.length) && !selected[col];
+  }
+
+  /**
+   * Adds the cell to the row, trimming and unquoting it.
+   * Cells beyond the number of columns are ignored, cells of columns that
+   * are not selected are stored as missing.
+   *
+   * @param row		the row to add to
+   * @param start	the start of the cell
+   * @param end		the end of the cell
+   */
+  protected void addCell(ArffRow row, int start, int end) {
+    int		col;
+
+    col = row.numCells;
+    if (col >= row.numColumns)
+      return;
+    row.numCells++;
+
+    if (!row.sparse && isSkipped(col)) {
+      row.missing[col] = true;
+      row.start[col]   = row.textLength;
+      row.length[col]  = 0;
+      return;
+    }
+
+    while ((start < end) && isWhitespace(block.get(start)))
+      start++;
+    while ((end > start) && isWhitespace(block.get(end - 1)))
+      end--;
+    if (row.sparse)
+      start = parseIndex(row, col, start, end);
+
+    if (((end - start == 1) && (block.get(start) == '?')) || (row.sparse && isSkipped(row.index[col]))) {
+      row.missing[col] = true;
+      row.start[col]   = row.textLength;
+      row.length[col]  = 0;
+      return;
+    }
+
+    row.missing[col] = false;
+    row.start[col]   = row.textLength;
+    row.ensureCapacity(end - start);
+    if ((end - start >= 2) && (block.get(start) == '\'') && (block.get(end - 1) == '\''))
+      copyUnquoted(row, start + 1, end - 1);
+    else
+      copy(row, start, end);
+    row.length[col] = row.textLength - row.start[col];
+  }
+
+  /**
+   * Copies the bytes as is into the row's text buffer.
+   *
+   * @param row		the row to copy into
+   * @param start	the start of the bytes to copy
+   * @param end		the end of the bytes to copy
+   */
+  protected void copy(ArffRow row, int start, int end) {
+    get(start, row.text, row.textLength, end - start);
+    row.textLength += end - start;
+  }
+
+  /**
+   * Copies the content of a quoted cell into the row's text buffer,
+   * restoring back-quoted characters.
+   *
+   * @param row		the row to copy into
+   * @param start	the start of the bytes to copy (after the quote)
+   * @param end		the end of the bytes to copy (before the quote)
+   */
+  protected void copyUnquoted(ArffRow row, int start, int end) {
+    int		i;
+    byte	b;
+    byte[]	text;
+    int		len;
+
+    text = row.text;
+    len  = row.textLength;
+    for (i = start; i < end; i++) {
+      b = block.get(i);
+      if ((b == '\\') && (i + 1 < end)) {
+	switch (block.get(i + 1)) {
+	  case '\\':
+	    b = '\\';
+	    i++;
+	    break;
+	  case '\'':
+	    b = '\'';
+	    i++;
+	    break;
+	  case 't':
+	    b = '\t';
+	    i++;
+	    break;
+	  case 'n':
+	    b = '\n';
+	    i++;
+	    break;
+	  case 'r':
+	    b = '\r';
+	    i++;
+	    break;
+	  case '"':
+	    b = '"';
+	    i++;
+	    break;
+	  default:
+	    // not back-quoted
+	}
+      }
+      text[len++] = b;
+    }
+    row.textLength = len;
+  }
+
+  /**
+   * Hands out the unprocessed remainder of the current block or, if none left,
+   * the next block from the source. The tokenizer does not process these
+   * bytes itself, nor does it count their lines.
+   *
+   * @return		the block, null if no more data available
+   * @throws IOException	if reading fails
+   * @see #getRawBlockOffset()
+   */
+  public ByteBuffer nextRawBlock() throws IOException {
+    ByteBuffer	result;
+
+    if ((block != null) && (pos < limit)) {
+      result = block.duplicate();
+      result.position(pos);
+      result.limit(limit);
+      blockOffset += pos - blockStart;
+      blockStart   = pos;
+      pos          = limit;
+      return result;
+    }
+
+    block = source.nextBlock();
+    if (block == null)
+      return null;
+    blockOffset = source.getBlockOffset();
+    blockStart  = block.position();
+    pos         = block.limit();
+    limit       = block.limit();
+    return block;
+  }
+
+  /**
+   * Returns the absolute offset of the position of the block last returned
+   * by {@link #nextRawBlock()}.
+   *
+   * @return		the offset
+   */
+  public long getRawBlockOffset() {
+    return blockOffset;
+  }
+
+  /**
+   * Returns the number of lines read so far.
+   *
+   * @return		the number of lines
+   */
+  public long getLineIndex() {
+    return lineIndex;
+  }
+
+  /**
+   * Returns the absolute offset of the start of the current line in the input.
+   *
+   * @return		the offset
+   */
+  public long getLineOffset() {
+    return blockOffset + (lineStart - blockStart);
+  }
+
+  /**
+   * Returns the absolute offset in the input of the first byte that has not
+   * been read yet, e.g., the end of the header after reading it.
+   *
+   * @return		the offset
+   */
+  public long getPosition() {
+    return blockOffset + (Math.min(pos, limit) - blockStart);
+  }
+
+  /**
+   * Returns the source of the blocks.
+   *
+   * @return		the source
+   */
+  public ArffBlockSource getSource() {
+    return source;
+  }
+
+  /**
+   * Closes the underlying source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+}
@@ -208,8 +208,75 @@ public class ArffUtils {
     return result.toArray(new String[0]);
   }
 
+  /**
+   * Parses the declaration of the values of a NOMINAL attribute, e.g.,
+   * "{a, 'b c', "d"}". The values are returned in the order they were declared.
+   *
+   * @param values	the declaration, including the curly brackets
+   * @return		the values
+   */
+  public static List<String> parseNominalValues(String values) {
+    List<String>	result;
+    StringBuilder	current;
+    char		quote;
+    boolean		backslash;
+    boolean		found;
+    char		c;
+    int			i;
+    int			start;
+    int			end;
+
+    result    = new ArrayList<>();
+    start     = values.indexOf('{') + 1;
+    end       = values.lastIndexOf('}');
+    if (end < start)
+      end = values.length();
+    current   = new StringBuilder();
+    quote     = 0;
+    backslash = false;
+    found     = false;
+    for (i = start; i < end; i++) {
+      c = values.charAt(i);
+      if ((quote == 0) && (c == ',')) {
+	result.add(unquoteValue(current.toString().trim()));
+	current.delete(0, current.length());
+	found = false;
+	continue;
+      }
+      if (!backslash) {
+	if ((quote == 0) && ((c == '\'') || (c == '"')))
+	  quote = c;
+	else if (c == quote)
+	  quote = 0;
+      }
+      backslash = (c == '\\') && !backslash;
+      current.append(c);
+      if (c > ' ')
+	found = true;
+    }
+    if (found || !result.isEmpty())
+      result.add(unquoteValue(current.toString().trim()));
+
+    return result;
+  }
+
+  /**
+   * Removes single or double quotes from a value.
+   *
+   * @param value	the value to unquote
+   * @return		the unquoted value
+   */
+  protected static String unquoteValue(String value) {
+    if (value.startsWith("\""))
+      return unDoubleQuote(value);
+    else
+      return unquote(value);
+  }
+
   /**
    * Extracts the attribute name, type and date format from the line.
+   * For NOMINAL attributes, the declaration of the values (including the
+   * curly brackets) is stored as well.
    *
    * @param line	the line to parse
    * @return		the extracted data
@@ -221,10 +288,11 @@ public class ArffUtils {
     String 			current;
     String			lower;
     String			format;
+    int				end;
 
+    // tabs are not replaced, as they may be part of quoted NOMINAL values
     result  = new HashMap<>();
-    current = line.replace("\t", " ");
-    current = current.substring(ArffKeywords.ATTRIBUTE.length() + 1).trim();
+    current = line.substring(ArffKeywords.ATTRIBUTE.length() + 1).trim();
 
     // name
     if (current.startsWith("'")) {
@@ -237,7 +305,10 @@ public class ArffUtils {
     }
     else {
       quoted = false;
-      result.put("name", current.substring(0, current.indexOf(' ', 1)).trim());
+      end    = 1;
+      while ((end < current.length()) && (current.charAt(end) > ' '))
+	end++;
+      result.put("name", current.substring(0, end).trim());
     }
     current = current.substring(result.get("name").length() + (quoted ? 2 : 0)).trim();
 
@@ -254,6 +325,10 @@ public class ArffUtils {
     else
       throw new IllegalStateException("Unsupported attribute: " + current);
 
+    // nominal values
+    if (result.get("type").equals(ArffAttributeType.NOMINAL.toString()))
+      result.put("values", current.substring(0, current.lastIndexOf('}') + 1));
+
     // date format
     if (result.get("type").equals(ArffAttributeType.DATE.toString())) {
       current = current.substring(5).trim();   // remove "date "
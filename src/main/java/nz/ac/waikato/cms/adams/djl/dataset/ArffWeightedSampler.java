@@ -0,0 +1,223 @@
+/*
+ * ArffWeightedSampler.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import ai.djl.training.dataset.RandomAccessDataset;
+import ai.djl.training.dataset.Sampler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Sampler that draws rows (with replacement) in proportion to their instance
+ * weights, using the alias method: building the table is O(n) per epoch,
+ * each draw is O(1). An epoch consists of as many draws as the dataset has
+ * rows. Only {@link ArffDataset} and its subsets ({@link ArffSubDataset},
+ * e.g., from randomSplit) provide weights, other datasets get rejected.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffWeightedSampler
+  implements Sampler {
+
+  /**
+   * The alias table for drawing indices in proportion to their weights
+   * (Vose's method).
+   */
+  public static class AliasTable {
+
+    /** the probability of keeping the index of a column. */
+    protected double[] probability;
+
+    /** the alias of a column. */
+    protected int[] alias;
+
+    /**
+     * Builds the table.
+     *
+     * @param weights	the weights, null for uniform weights
+     * @param size	the number of indices, can be less than the number of weights
+     */
+    public AliasTable(double[] weights, int size) {
+      double[]	scaled;
+      int[]	small;
+      int[]	large;
+      int	numSmall;
+      int	numLarge;
+      double	sum;
+      int	i;
+      int	s;
+      int	l;
+
+      probability = new double[size];
+      alias       = new int[size];
+      if (weights == null) {
+	for (i = 0; i < size; i++)
+	  probability[i] = 1.0;
+	return;
+      }
+
+      sum = 0;
+      for (i = 0; i < size; i++) {
+	if (!(weights[i] >= 0) || Double.isInfinite(weights[i]))
+	  throw new IllegalArgumentException("Weights must be non-negative and finite, row #" + (i + 1) + ": " + weights[i]);
+	sum += weights[i];
+      }
+      if (!(sum > 0))
+	throw new IllegalArgumentException("The sum of the weights must be positive!");
+
+      scaled   = new double[size];
+      small    = new int[size];
+      large    = new int[size];
+      numSmall = 0;
+      numLarge = 0;
+      for (i = 0; i < size; i++) {
+	scaled[i] = weights[i] * size / sum;
+	if (scaled[i] < 1.0)
+	  small[numSmall++] = i;
+	else
+	  large[numLarge++] = i;
+      }
+      while ((numSmall > 0) && (numLarge > 0)) {
+	s              = small[--numSmall];
+	l              = large[--numLarge];
+	probability[s] = scaled[s];
+	alias[s]       = l;
+	scaled[l]      = (scaled[l] + scaled[s]) - 1.0;
+	if (scaled[l] < 1.0)
+	  small[numSmall++] = l;
+	else
+	  large[numLarge++] = l;
+      }
+      // remaining ones are (numerically) 1
+      while (numLarge > 0)
+	probability[large[--numLarge]] = 1.0;
+      while (numSmall > 0)
+	probability[small[--numSmall]] = 1.0;
+    }
+
+    /**
+     * Returns the number of indices.
+     *
+     * @return		the number
+     */
+    public int size() {
+      return probability.length;
+    }
+
+    /**
+     * Draws an index.
+     *
+     * @param random	the random number generator to use
+     * @return		the index
+     */
+    public int draw(Random random) {
+      int	result;
+
+      result = random.nextInt(probability.length);
+      if (random.nextDouble() < probability[result])
+	return result;
+      else
+	return alias[result];
+    }
+  }
+
+  protected int batchSize;
+  protected Random random;
+
+  /**
+   * Initializes the sampler.
+   *
+   * @param batchSize	the number of rows per batch
+   */
+  public ArffWeightedSampler(int batchSize) {
+    this(batchSize, new Random());
+  }
+
+  /**
+   * Initializes the sampler.
+   *
+   * @param batchSize	the number of rows per batch
+   * @param seed	the seed for the random number generator
+   */
+  public ArffWeightedSampler(int batchSize, long seed) {
+    this(batchSize, new Random(seed));
+  }
+
+  /**
+   * Initializes the sampler.
+   *
+   * @param batchSize	the number of rows per batch
+   * @param random	the random number generator to use
+   */
+  public ArffWeightedSampler(int batchSize, Random random) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+    this.batchSize = batchSize;
+    this.random    = random;
+  }
+
+  /**
+   * Returns the batches of row indices for an epoch, drawn in proportion to
+   * the weights of the rows.
+   *
+   * @param dataset	the dataset to sample from
+   * @return		the batches
+   * @throws IllegalArgumentException	if the dataset provides no instance weights
+   */
+  @Override
+  public Iterator<List<Long>> sample(RandomAccessDataset dataset) {
+    AliasTable	table;
+    int		size;
+
+    size = Math.toIntExact(dataset.size());
+    if (dataset instanceof ArffDataset)
+      table = new AliasTable(((ArffDataset) dataset).getWeights(), size);
+    else if (dataset instanceof ArffSubDataset)
+      table = new AliasTable(((ArffSubDataset) dataset).getWeights(), size);
+    else
+      throw new IllegalArgumentException("Dataset provides no instance weights: " + dataset.getClass().getName());
+
+    return new Iterator<>() {
+      protected int remaining = size;
+
+      @Override
+      public boolean hasNext() {
+	return (remaining > 0);
+      }
+
+      @Override
+      public List<Long> next() {
+	List<Long>	result;
+	int		i;
+	int		n;
+
+	if (remaining <= 0)
+	  throw new NoSuchElementException();
+	n          = Math.min(batchSize, remaining);
+	remaining -= n;
+	result     = new ArrayList<>(n);
+	for (i = 0; i < n; i++)
+	  result.add((long) table.draw(random));
+
+	return result;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of rows per batch.
+   *
+   * @return		the batch size
+   */
+  @Override
+  public int getBatchSize() {
+    return batchSize;
+  }
+}
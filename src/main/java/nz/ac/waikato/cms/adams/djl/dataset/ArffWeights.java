@@ -0,0 +1,130 @@
+/*
+ * ArffWeights.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Stores the instance weights of the rows as primitives. The array only gets
+ * allocated once a weight other than 1 is encountered, i.e., unweighted
+ * data does not require any memory.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffWeights {
+
+  protected int size;
+  protected double[] weights;
+
+  /**
+   * Initializes the weights.
+   */
+  public ArffWeights() {
+    size    = 0;
+    weights = null;
+  }
+
+  /**
+   * Allocates the array, with all the weights so far being 1.
+   *
+   * @param capacity	the number of rows
+   */
+  protected void allocate(int capacity) {
+    weights = new double[Math.max(capacity, ArffColumn.INITIAL_CAPACITY)];
+    Arrays.fill(weights, 0, size, 1.0);
+  }
+
+  /**
+   * Ensures that the array can store the specified number of rows.
+   *
+   * @param capacity	the number of rows
+   */
+  protected void ensureCapacity(int capacity) {
+    if (capacity > weights.length)
+      weights = Arrays.copyOf(weights, Math.max(capacity, weights.length * 2));
+  }
+
+  /**
+   * Appends the weight.
+   *
+   * @param weight	the weight to add
+   */
+  public void add(double weight) {
+    if ((weights == null) && (weight != 1.0))
+      allocate(size + 1);
+    if (weights != null) {
+      ensureCapacity(size + 1);
+      weights[size] = weight;
+    }
+    size++;
+  }
+
+  /**
+   * Appends all the weights of the other instance.
+   *
+   * @param other	the weights to append
+   */
+  public void addAll(ArffWeights other) {
+    if ((weights == null) && (other.weights != null))
+      allocate(size + other.size);
+    if (weights != null) {
+      ensureCapacity(size + other.size);
+      if (other.weights != null)
+	System.arraycopy(other.weights, 0, weights, size, other.size);
+      else
+	Arrays.fill(weights, size, size + other.size, 1.0);
+    }
+    size += other.size;
+  }
+
+  /**
+   * Trims the storage to the number of rows.
+   */
+  public void compact() {
+    if ((weights != null) && (weights.length > size))
+      weights = Arrays.copyOf(weights, size);
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether any weight differs from 1.
+   *
+   * @return		true if weighted
+   */
+  public boolean isWeighted() {
+    return (weights != null);
+  }
+
+  /**
+   * Returns the weight of the row.
+   *
+   * @param row		the row index
+   * @return		the weight
+   */
+  public double get(int row) {
+    if (weights == null)
+      return 1.0;
+    return weights[row];
+  }
+
+  /**
+   * Returns the weights of all rows.
+   *
+   * @return		the weights, null if all weights are 1
+   */
+  public double[] getWeights() {
+    compact();
+    return weights;
+  }
+}
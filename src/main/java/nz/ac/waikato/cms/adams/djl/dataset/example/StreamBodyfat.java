@@ -0,0 +1,52 @@
+/*
+ * StreamBodyfat.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset.example;
+
+import nz.ac.waikato.cms.adams.djl.dataset.ArffMappedBlockSource;
+import nz.ac.waikato.cms.adams.djl.dataset.ArffReader;
+import nz.ac.waikato.cms.adams.djl.dataset.ArffRow;
+
+import java.nio.file.Path;
+
+/**
+ * Streams the bodyfat ARFF file row by row, without loading it into memory.
+ * Computes the mean of the class (last column) using the pull iterator and
+ * counts the rows with a class value above the mean using a visitor.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class StreamBodyfat {
+
+  public static void main(String[] args) throws Exception {
+    Path file = Path.of("src/main/resources/bodyfat.arff");
+
+    double sum = 0;
+    long count = 0;
+    int classIndex;
+    try (ArffReader reader = new ArffReader(new ArffMappedBlockSource(file))) {
+      classIndex = reader.getColNames().size() - 1;
+      while (reader.hasNext()) {
+	ArffRow row = reader.next();
+	if (row.isMissing(classIndex))
+	  continue;
+	sum += row.getDouble(classIndex);
+	count++;
+      }
+    }
+    double mean = sum / count;
+    System.out.println("Mean of class: " + mean);
+
+    long[] above = new long[1];
+    try (ArffReader reader = new ArffReader(new ArffMappedBlockSource(file))) {
+      reader.accept((ArffRow row) -> {
+	if (!row.isMissing(classIndex) && (row.getDouble(classIndex) > mean))
+	  above[0]++;
+	return true;
+      });
+    }
+    System.out.println("Rows above mean: " + above[0] + "/" + count);
+  }
+}
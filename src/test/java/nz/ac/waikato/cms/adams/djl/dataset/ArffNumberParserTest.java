@@ -0,0 +1,280 @@
+/*
+ * ArffNumberParserTest.java
+ * Copyright (C) 2025 University of Waikato, Hamilton, New Zealand
+ */
+
+package nz.ac.waikato.cms.adams.djl.dataset;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares {@link ArffNumberParser} against {@link Double#parseDouble(String)}
+ * and {@link Float#parseFloat(String)}, using edge cases (exponents, NaN,
+ * Infinity, leading '+', subnormals, halfway cases, long mantissas, invalid
+ * numbers) and randomly generated numbers. The results must be bit-identical
+ * and invalid numbers must fail in both. Trusted mode gets checked on valid,
+ * plain decimal numbers. {@link ArffNumberParser#toFloat(double)} gets
+ * checked against parsing the string representation of the value.
+ * <br>
+ * The number of random values can be set via the system property
+ * {@link #PROP_RANDOM} (default: 10000), e.g., use
+ * <code>mvn test -Darff.test.random=1000000</code> for a thorough sweep.
+ * The seed via {@link #PROP_SEED} (default: 42).
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class ArffNumberParserTest {
+
+  /** the system property for the number of random values. */
+  public static final String PROP_RANDOM = "arff.test.random";
+
+  /** the system property for the seed. */
+  public static final String PROP_SEED = "arff.test.seed";
+
+  /** the edge cases. */
+  public static final String[] EDGE_CASES = {
+    "0", "-0", "+0", "0.0", "-0.0", "00000", "0e999999", "0.000e-5",
+    "1", "+1", "-1", "+4.5", "1.", ".5", "-.5e-2", "+.5E+2", "1e3", "1E-3", "1e+3",
+    "NaN", "+NaN", "-NaN", "Infinity", "+Infinity", "-Infinity",
+    "1e308", "1.7976931348623157e308", "1.7976931348623158e308", "1.8e308", "1e309", "-1e400",
+    "2.2250738585072014E-308", "2.2250738585072011e-308", "4.9e-324", "2.5e-324", "2.4e-324", "1e-400",
+    "3.4028235e38", "3.4028236e38", "3.5e38", "1.4e-45", "7e-46", "1.17549435e-38",
+    "9007199254740992", "9007199254740993", "9007199254740994", "9007199254740995",
+    "16777216", "16777217", "16777218", "16777219",
+    "123456789012345678", "1234567890123456789", "12345678901234567890", "123456789012345678901234567890",
+    "0.1", "0.2", "0.3", "0.30000000000000004", "3.141592653589793238462643383279",
+    "2.7182818284590452353602874713527", "1e22", "1e23", "8.41e21", "5e-324",
+    "7.2057594037927933e16", "1.00000000000000011102230246251565404236316680908203125",
+    "1.00000000000000011102230246251565404236316680908203124",
+    "1.00000000000000011102230246251565404236316680908203126",
+    "0.000000000000000000000000000000000000000000000000000000001",
+    "100000000000000000000000000000000000000000000000000000000000000000000000000",
+    "", "+", "-", ".", "e5", "1e", "1e+", "1e-", "--1", "+-1", "1..2", "1.2.3", "0x10", "0x1p3",
+    "1.5d", "1.5f", "1.5D", " 3", "3 ", "1_000", "nan", "inf", "infinity", "NaNx", "Infinityx", "1,5", "abc",
+  };
+
+  /** plain decimal numbers. */
+  public static final Pattern DECIMAL = Pattern.compile("[+-]?(NaN|Infinity|([0-9]+\\.?[0-9]*|\\.[0-9]+)([eE][+-]?[0-9]+)?)");
+
+  /**
+   * Compares the parsers on a single value.
+   *
+   * @param s		the value to parse
+   * @param errors	for adding the differences
+   */
+  protected static void check(String s, List<String> errors) {
+    byte[]	bytes;
+    String	expected;
+    String	actual;
+
+    // pad with garbage to make sure the parser adheres to offset/length
+    bytes = ("#" + s + "#").getBytes(StandardCharsets.UTF_8);
+
+    try {
+      expected = Long.toHexString(Double.doubleToLongBits(Double.parseDouble(s)));
+    }
+    catch (NumberFormatException e) {
+      expected = "error";
+    }
+    try {
+      actual = Long.toHexString(Double.doubleToLongBits(ArffNumberParser.parseDouble(bytes, 1, bytes.length - 2, false)));
+    }
+    catch (NumberFormatException e) {
+      actual = "error";
+    }
+    if (!expected.equals(actual))
+      errors.add("double: '" + s + "' expected=" + expected + " actual=" + actual);
+    // trusted mode ignores trailing characters, i.e., Java-specific suffixes and hex notation
+    if (!expected.equals("error") && DECIMAL.matcher(s).matches()) {
+      actual = Long.toHexString(Double.doubleToLongBits(ArffNumberParser.parseDouble(bytes, 1, bytes.length - 2, true)));
+      if (!expected.equals(actual))
+	errors.add("double (trusted): '" + s + "' expected=" + expected + " actual=" + actual);
+    }
+
+    try {
+      expected = Integer.toHexString(Float.floatToIntBits(Float.parseFloat(s)));
+    }
+    catch (NumberFormatException e) {
+      expected = "error";
+    }
+    try {
+      actual = Integer.toHexString(Float.floatToIntBits(ArffNumberParser.parseFloat(bytes, 1, bytes.length - 2, false)));
+    }
+    catch (NumberFormatException e) {
+      actual = "error";
+    }
+    if (!expected.equals(actual))
+      errors.add("float: '" + s + "' expected=" + expected + " actual=" + actual);
+  }
+
+  /**
+   * Generates a random number string.
+   *
+   * @param random	the random number generator to use
+   * @return		the number
+   */
+  protected static String randomNumber(Random random) {
+    StringBuilder	result;
+    int			i;
+    int			n;
+    double		d;
+
+    switch (random.nextInt(8)) {
+      case 0:
+	// any double
+	return Double.toString(Double.longBitsToDouble(random.nextLong()));
+      case 1:
+	// any float
+	return Float.toString(Float.intBitsToFloat(random.nextInt()));
+      case 2:
+	// exact decimal expansion of a double, i.e., plenty of digits
+	d = Double.longBitsToDouble(random.nextLong());
+	if (Double.isNaN(d) || Double.isInfinite(d))
+	  return "0";
+	return new BigDecimal(d).toString();
+      case 3:
+	// halfway between two adjacent doubles
+	d = Double.longBitsToDouble(random.nextLong() & 0x7FEFFFFFFFFFFFFFL);
+	return new BigDecimal(d).add(new BigDecimal(Math.nextUp(d))).divide(BigDecimal.valueOf(2)).toString();
+      case 4:
+	// fixed notation
+	return String.format("%." + random.nextInt(20) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 10));
+      case 5:
+	// digits with exponent
+	result = new StringBuilder();
+	if (random.nextBoolean())
+	  result.append(random.nextBoolean() ? '-' : '+');
+	n = 1 + random.nextInt(30);
+	for (i = 0; i < n; i++)
+	  result.append((char) ('0' + random.nextInt(10)));
+	if (random.nextBoolean())
+	  result.insert(random.nextInt(result.length() + 1), '.');
+	result.append('e').append(random.nextInt(700) - 350);
+	return result.toString();
+      case 6:
+	// integers
+	return Long.toString(random.nextLong() >> random.nextInt(64));
+      default:
+	// random characters, mostly invalid
+	result = new StringBuilder();
+	n = random.nextInt(12);
+	for (i = 0; i < n; i++)
+	  result.append("0123456789.eE+-NIa ".charAt(random.nextInt(19)));
+	return result.toString();
+    }
+  }
+
+  /**
+   * Fails if there were any differences.
+   *
+   * @param checked	the number of values checked
+   * @param errors	the differences
+   */
+  protected static void assertNoErrors(int checked, List<String> errors) {
+    StringBuilder	msg;
+    int			i;
+
+    msg = new StringBuilder("Checked: " + checked + ", differences: " + errors.size());
+    for (i = 0; i < Math.min(100, errors.size()); i++)
+      msg.append("\n").append(errors.get(i));
+    assertTrue(errors.isEmpty(), msg.toString());
+  }
+
+  /**
+   * Checks the edge cases.
+   */
+  @Test
+  public void testEdgeCases() {
+    List<String>	errors;
+
+    errors = new ArrayList<>();
+    for (String s : EDGE_CASES)
+      check(s, errors);
+    assertNoErrors(EDGE_CASES.length, errors);
+  }
+
+  /**
+   * Checks randomly generated numbers.
+   */
+  @Test
+  public void testRandom() {
+    int			num;
+    Random		random;
+    List<String>	errors;
+    int			i;
+
+    num    = Integer.getInteger(PROP_RANDOM, 10000);
+    random = new Random(Long.getLong(PROP_SEED, 42L));
+    errors = new ArrayList<>();
+    for (i = 0; i < num; i++)
+      check(randomNumber(random), errors);
+    assertNoErrors(num, errors);
+  }
+
+  /**
+   * Checks the conversion of a stored double to float against parsing the
+   * string representation of the value.
+   *
+   * @param d		the value to check
+   * @param errors	for adding the differences
+   */
+  protected static void checkToFloat(double d, List<String> errors) {
+    String	expected;
+    String	actual;
+
+    expected = Integer.toHexString(Float.floatToIntBits(Float.parseFloat(Double.toString(d))));
+    actual   = Integer.toHexString(Float.floatToIntBits(ArffNumberParser.toFloat(d)));
+    if (!expected.equals(actual))
+      errors.add("toFloat: " + d + " expected=" + expected + " actual=" + actual);
+  }
+
+  /**
+   * Checks the conversion of stored doubles to float, in particular values
+   * halfway between two floats, which a cast rounds differently.
+   */
+  @Test
+  public void testToFloat() {
+    int			num;
+    Random		random;
+    List<String>	errors;
+    float		f;
+    double		mid;
+    int			i;
+
+    assertEquals(1.0000001f, ArffNumberParser.toFloat(Double.parseDouble("1.000000059604644776")));
+
+    num    = Integer.getInteger(PROP_RANDOM, 10000);
+    random = new Random(Long.getLong(PROP_SEED, 42L));
+    errors = new ArrayList<>();
+    for (String s : EDGE_CASES) {
+      try {
+	checkToFloat(Double.parseDouble(s), errors);
+      }
+      catch (NumberFormatException e) {
+	// ignored
+      }
+    }
+    for (i = 0; i < num; i++) {
+      f = Float.intBitsToFloat(random.nextInt());
+      if (Float.isNaN(f) || Float.isInfinite(f))
+	continue;
+      // halfway to the next float and its neighbours
+      mid = ((double) f + (double) Math.nextUp(f)) / 2;
+      checkToFloat(mid, errors);
+      checkToFloat(Math.nextUp(mid), errors);
+      checkToFloat(Math.nextDown(mid), errors);
+      checkToFloat(Double.longBitsToDouble(random.nextLong()), errors);
+    }
+    assertNoErrors(EDGE_CASES.length + num, errors);
+  }
+}